@@ -1,22 +1,252 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class DBUtil {
-    // 记得改成你自己的密码！
-    private static final String URL = "jdbc:mysql://localhost:3306/smart_parking_db?serverTimezone=Asia/Shanghai&useSSL=false";
-    private static final String USER = "root";
-    private static final String PASSWORD = "20050214"; // <--- 只有这里需要改
+    private static final Logger LOG = Logger.getLogger(DBUtil.class.getName());
+
+    // 连接参数和连接池参数从 db.properties 读取：先读类路径下的默认值，工作目录下有同名文件时覆盖
+    private static final String CONFIG_FILE = "db.properties";
+    private static final Properties CONFIG = loadConfig();
+
+    // 后面的参数打开服务端预编译语句缓存：连接复用后，同一条 SQL 只在 MySQL 上编译一次
+    private static final String URL = CONFIG.getProperty("db.url",
+            "jdbc:mysql://localhost:3306/smart_parking_db?serverTimezone=Asia/Shanghai&useSSL=false"
+                    + "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048");
+    private static final String USER = CONFIG.getProperty("db.user", "root");
+    private static final String PASSWORD = CONFIG.getProperty("db.password", "");
+
+    // 最多同时借出的连接数、借连接的最长等待时间
+    private static final int POOL_SIZE = intConfig("pool.size", 8);
+    private static final long BORROW_TIMEOUT_MS = longConfig("pool.borrow-timeout-ms", 5000);
+    // 空闲超过 max-idle 的连接关掉（要小于 MySQL 的 wait_timeout），使用超过 max-lifetime 的连接到期重建；0 表示不限
+    private static final long MAX_IDLE_MS = longConfig("pool.max-idle-ms", 600_000);
+    private static final long MAX_LIFETIME_MS = longConfig("pool.max-lifetime-ms", 1_800_000);
+    // 借出超过这个时间还没归还就记一条带借出位置的警告，用来找忘了 close 的代码；0 表示不检测
+    private static final long LEAK_THRESHOLD_MS = longConfig("pool.leak-threshold-ms", 30_000);
+
+    // 空闲连接后进先出：常用的几个连接一直保持热的，多出来的留在队尾等着过期回收
+    private static final Deque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private static final Semaphore permits = new Semaphore(POOL_SIZE);
+    private static final ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "db-pool-housekeeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 连接池统计
+    private static final AtomicLong created = new AtomicLong();
+    private static final AtomicLong retired = new AtomicLong();
+    private static final AtomicLong borrowed = new AtomicLong();
+    private static final AtomicLong timeouts = new AtomicLong();
+    private static final AtomicLong leaks = new AtomicLong();
 
     static {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+            LOG.log(Level.SEVERE, "找不到 MySQL 驱动", e);
         }
+        long period = Math.max(1000, Math.min(60_000, MAX_IDLE_MS > 0 ? MAX_IDLE_MS / 2 : 60_000));
+        housekeeper.scheduleWithFixedDelay(DBUtil::evictExpired, period, period, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * 从连接池借一个连接。调用 close() 时连接不会真正断开，而是归还到池中，
+     * 这样每次刷新、入场、出场都不用重新做 TCP 握手和登录认证。
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("数据库连接池已耗尽，等待超时 (" + stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        try {
+            PooledConnection pooled;
+            // 丢弃已过期或已被 MySQL 断开 (wait_timeout) 的空闲连接
+            while ((pooled = idle.pollFirst()) != null && (pooled.expired(System.currentTimeMillis()) || !pooled.raw.isValid(2))) {
+                retire(pooled);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(URL, USER, PASSWORD));
+                created.incrementAndGet();
+            }
+            borrowed.incrementAndGet();
+            return wrap(pooled);
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 连接池当前状态，出错时附在日志里方便排查
+     */
+    public static String stats() {
+        return "借出 " + (POOL_SIZE - permits.availablePermits()) + "/" + POOL_SIZE
+                + "，空闲 " + idle.size()
+                + "，累计新建 " + created.get() + "、回收 " + retired.get()
+                + "、借用 " + borrowed.get() + "、等待超时 " + timeouts.get() + "、疑似泄漏 " + leaks.get();
+    }
+
+    private static Connection wrap(PooledConnection pooled) {
+        Connection raw = pooled.raw;
+        AtomicBoolean closed = new AtomicBoolean(false);
+        ScheduledFuture<?> leakCheck = LEAK_THRESHOLD_MS <= 0 ? null : watchLeak(new Exception("连接借出位置"));
+        return (Connection) Proxy.newProxyInstance(DBUtil.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                if (leakCheck != null) {
+                                    leakCheck.cancel(false);
+                                }
+                                release(pooled);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed.get() || raw.isClosed();
+                        default:
+                            if (closed.get()) {
+                                throw new SQLException("连接已归还到连接池");
+                            }
+                            try {
+                                return method.invoke(raw, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    private static ScheduledFuture<?> watchLeak(Exception borrowedAt) {
+        return housekeeper.schedule(() -> {
+            leaks.incrementAndGet();
+            LOG.log(Level.WARNING, "数据库连接借出超过 " + LEAK_THRESHOLD_MS + " ms 仍未归还 (" + stats() + ")", borrowedAt);
+        }, LEAK_THRESHOLD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // 归还连接：回滚未提交的事务并恢复自动提交，保证下一个使用者拿到干净的连接；到期的连接直接关掉
+    private static void release(PooledConnection pooled) {
+        try {
+            Connection raw = pooled.raw;
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            long now = System.currentTimeMillis();
+            if (pooled.expired(now)) {
+                retire(pooled);
+            } else {
+                pooled.lastUsed = now;
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // 后台定期关掉空闲太久或到期的连接；借出中的连接在归还时检查
+    private static void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            // remove 成功才关闭，避免和正在借这个连接的线程冲突
+            if (pooled.expired(now) && idle.remove(pooled)) {
+                retire(pooled);
+            }
+        }
+        LOG.fine(() -> "数据库连接池: " + stats());
+    }
+
+    private static void retire(PooledConnection pooled) {
+        retired.incrementAndGet();
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            // 忽略
+        }
+    }
+
+    private static Properties loadConfig() {
+        Properties props = new Properties();
+        try (InputStream in = DBUtil.class.getResourceAsStream("/" + CONFIG_FILE)) {
+            if (in != null) {
+                props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "读取类路径下的 " + CONFIG_FILE + " 失败", e);
+        }
+        Path local = Paths.get(CONFIG_FILE);
+        if (Files.isRegularFile(local)) {
+            try (Reader reader = Files.newBufferedReader(local, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "读取 " + local.toAbsolutePath() + " 失败", e);
+            }
+        }
+        return props;
+    }
+
+    private static int intConfig(String key, int defaultValue) {
+        return (int) longConfig(key, defaultValue);
+    }
+
+    private static long longConfig(String key, long defaultValue) {
+        String value = CONFIG.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warning(CONFIG_FILE + " 中 " + key + " 不是整数: " + value + "，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static final class PooledConnection {
+        final Connection raw;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsed = createdAt;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        boolean expired(long now) {
+            return (MAX_LIFETIME_MS > 0 && now - createdAt > MAX_LIFETIME_MS)
+                    || (MAX_IDLE_MS > 0 && now - lastUsed > MAX_IDLE_MS);
+        }
     }
-}
\ No newline at end of file
+}
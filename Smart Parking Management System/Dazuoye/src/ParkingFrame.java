@@ -5,12 +5,38 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ParkingFrame extends JFrame {
+    private static final Logger LOG = Logger.getLogger(ParkingFrame.class.getName());
+
     private JPanel gridPanel;
+    private JLabel syncLabel; // 底部状态栏：最近一次同步的结果
     private ParkingService service = new ParkingService();
 
+    // 已创建的车位面板 (按 spotId 排序)，刷新时只修改有变化的面板
+    private final Map<Integer, ParkingSpotPanel> panels = new TreeMap<>();
+    private long spotsVersion = 0; // 已同步到的数据版本号
+    private boolean refreshing = false; // 只在 EDT 上读写
+    private long lastFullSync = 0; // 上一次全量同步的时间
+
+    // 自动拉取变更的间隔、本地更新停车时长的间隔
+    private static final int POLL_INTERVAL_MS = 5000;
+    private static final int DURATION_TICK_MS = 30000;
+    // 增量查询看不到被删除的车位，隔一段时间全量同步一次，把已删除的车位从网格中去掉
+    private static final long FULL_RESYNC_INTERVAL_MS = 60000;
+    private static final DateTimeFormatter SYNC_TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
     // 定义一些美化用的颜色
     private static final Color BG_DARK = new Color(45, 45, 45); // 深色背景
     private static final Color FREE_BG = new Color(225, 245, 230); // 空闲浅绿背景
@@ -57,33 +83,98 @@ public class ParkingFrame extends JFrame {
         btnRefresh.setBackground(new Color(245, 245, 245));
         btnRefresh.addActionListener(e -> loadSpots());
         bottomPanel.add(btnRefresh);
+        syncLabel = new JLabel(" ");
+        syncLabel.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        bottomPanel.add(syncLabel);
         add(bottomPanel, BorderLayout.SOUTH);
 
         // 初始化加载数据
         loadSpots();
+
+        // 定时拉取增量变更；停车时长只在本地重新计算，不查数据库
+        new Timer(POLL_INTERVAL_MS, e -> loadSpots()).start();
+        new Timer(DURATION_TICK_MS, e -> panels.values().forEach(ParkingSpotPanel::updateDuration)).start();
     }
 
-    // 核心：读取数据库，创建自定义漂亮面板
+    // 核心：在后台线程查询变更过的车位，回到 EDT 后只修改对应的面板
     private void loadSpots() {
-        gridPanel.removeAll(); // 清空旧面板
+        if (refreshing) {
+            return; // 上一次查询还没回来
+        }
+        refreshing = true;
+        long startedAt = System.currentTimeMillis();
+        boolean full = startedAt - lastFullSync >= FULL_RESYNC_INTERVAL_MS;
+        long since = full ? 0 : spotsVersion;
 
-        // --- 重点更正：这里调用的是新的详细信息接口 ---
-        List<String[]> spots = service.getAllSpotsDetailed();
+        new SwingWorker<ParkingService.SpotChanges, Void>() {
+            @Override
+            protected ParkingService.SpotChanges doInBackground() throws Exception {
+                return service.getSpotChangesSince(since);
+            }
 
-        for (String[] spotData : spots) {
+            @Override
+            protected void done() {
+                refreshing = false;
+                try {
+                    applyChanges(get(), full);
+                    if (full) {
+                        lastFullSync = startedAt;
+                    }
+                    syncLabel.setForeground(Color.GRAY);
+                    syncLabel.setText("已同步 " + LocalTime.now().format(SYNC_TIME) + "，共 " + panels.size() + " 个车位");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    LOG.log(Level.WARNING, "刷新车位状态失败", cause);
+                    syncLabel.setForeground(OCCUPIED_BORDER);
+                    syncLabel.setText("刷新失败 " + LocalTime.now().format(SYNC_TIME) + "：" + cause.getMessage()
+                            + "，稍后自动重试");
+                }
+            }
+        }.execute();
+    }
+
+    // full 为 true 时 changes 是全部车位，不在其中的面板对应已删除的车位
+    private void applyChanges(ParkingService.SpotChanges changes, boolean full) {
+        boolean layoutChanged = false;
+        Set<Integer> seen = new HashSet<>();
+        for (String[] spotData : changes.rows) {
             int spotId = Integer.parseInt(spotData[0]);
+            seen.add(spotId);
             String spotNum = spotData[1];
             String status = spotData[2];
             String entryTimeStr = spotData[3]; // 可能为空
 
-            // 创建我们自定义的漂亮面板
-            ParkingSpotPanel spotPanel = new ParkingSpotPanel(spotId, spotNum, status, entryTimeStr);
-            gridPanel.add(spotPanel);
+            ParkingSpotPanel panel = panels.get(spotId);
+            if (panel == null) {
+                // 新车位：按 spotId 顺序插入到网格中
+                panel = new ParkingSpotPanel(spotId, spotNum, status, entryTimeStr);
+                panels.put(spotId, panel);
+                gridPanel.add(panel, ((TreeMap<Integer, ParkingSpotPanel>) panels).headMap(spotId).size());
+                layoutChanged = true;
+            } else {
+                panel.update(status, entryTimeStr);
+            }
         }
+        if (full) {
+            Iterator<Map.Entry<Integer, ParkingSpotPanel>> it = panels.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, ParkingSpotPanel> entry = it.next();
+                if (!seen.contains(entry.getKey())) {
+                    gridPanel.remove(entry.getValue());
+                    it.remove();
+                    layoutChanged = true;
+                }
+            }
+        }
+        spotsVersion = changes.version;
 
-        // 强制刷新界面布局
-        gridPanel.revalidate();
-        gridPanel.repaint();
+        // 只有增删面板时才需要重新布局
+        if (layoutChanged) {
+            gridPanel.revalidate();
+            gridPanel.repaint();
+        }
     }
 
     // ==========================================
@@ -92,6 +183,14 @@ public class ParkingFrame extends JFrame {
     private class ParkingSpotPanel extends JPanel {
         private int spotId;
         private String spotNum;
+        private String status;
+        private String entryTimeStr;
+        private boolean isOccupied;
+        private Color bgColor;
+
+        private final JLabel numLabel;
+        private final JLabel iconLabel;
+        private final JLabel statusLabel;
 
         public ParkingSpotPanel(int id, String num, String status, String entryTimeStr) {
             this.spotId = id;
@@ -101,50 +200,24 @@ public class ParkingFrame extends JFrame {
             // 设置首选大小，让卡片看起来是个方形
             setPreferredSize(new Dimension(180, 150));
 
-            // 根据状态设置样式
-            boolean isOccupied = "OCCUPIED".equals(status);
-            Color bgColor = isOccupied ? OCCUPIED_BG : FREE_BG;
-            Color borderColor = isOccupied ? OCCUPIED_BORDER : FREE_BORDER;
-            String iconEmoji = isOccupied ? "🚗" : "🅿️";
-
-            // 1. 设置背景和边框
-            setBackground(bgColor);
-            // 创建一个复合边框：外层是实线，内层是空白边距
-            Border lineBorder = BorderFactory.createLineBorder(borderColor, 2);
-            Border emptyBorder = BorderFactory.createEmptyBorder(10, 15, 10, 15);
-            setBorder(BorderFactory.createCompoundBorder(lineBorder, emptyBorder));
-
-            // 2. 顶部：车位号 (大字体，清爽)
-            JLabel numLabel = new JLabel(spotNum, JLabel.CENTER);
+            // 1. 顶部：车位号 (大字体，清爽)
+            numLabel = new JLabel(spotNum, JLabel.CENTER);
             numLabel.setFont(new Font("Arial Black", Font.BOLD, 22));
-            numLabel.setForeground(borderColor); // 字体颜色和边框一致
             add(numLabel, BorderLayout.NORTH);
 
-            // 3. 中间：大图标
-            JLabel iconLabel = new JLabel(iconEmoji, JLabel.CENTER);
+            // 2. 中间：大图标
+            iconLabel = new JLabel("", JLabel.CENTER);
             iconLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 48));
             add(iconLabel, BorderLayout.CENTER);
 
-            // 4. 底部：状态和时长
-            String statusText;
-            if (isOccupied && entryTimeStr != null && !entryTimeStr.isEmpty()) {
-                // 计算停车时长
-                try {
-                    LocalDateTime entryTime = LocalDateTime.parse(entryTimeStr);
-                    String durationStr = calculateDuration(entryTime);
-                    statusText = "<html><center>已停: <font color=red>" + durationStr + "</font></center></html>";
-                } catch (Exception e) {
-                    statusText = "<html><center>已停</center></html>";
-                }
-            } else {
-                statusText = "<html><center><font color=green>空闲可停</font></center></html>";
-            }
-
-            JLabel statusLabel = new JLabel(statusText, JLabel.CENTER);
+            // 3. 底部：状态和时长
+            statusLabel = new JLabel("", JLabel.CENTER);
             statusLabel.setFont(new Font("微软雅黑", Font.PLAIN, 14));
             add(statusLabel, BorderLayout.SOUTH);
 
-            // 5. 添加鼠标点击事件 (把面板当按钮用)
+            update(status, entryTimeStr);
+
+            // 4. 添加鼠标点击事件 (把面板当按钮用)
             addMouseListener(new MouseAdapter() {
                 @Override
                 public void mouseClicked(MouseEvent e) {
@@ -167,6 +240,51 @@ public class ParkingFrame extends JFrame {
                 }
             });
         }
+
+        // 根据最新状态修改样式，状态没变就什么都不做
+        public void update(String newStatus, String newEntryTimeStr) {
+            if (newStatus.equals(status) && newEntryTimeStr.equals(entryTimeStr)) {
+                return;
+            }
+            this.status = newStatus;
+            this.entryTimeStr = newEntryTimeStr;
+
+            // 根据状态设置样式
+            isOccupied = "OCCUPIED".equals(status);
+            bgColor = isOccupied ? OCCUPIED_BG : FREE_BG;
+            Color borderColor = isOccupied ? OCCUPIED_BORDER : FREE_BORDER;
+
+            // 设置背景和边框
+            setBackground(bgColor);
+            // 创建一个复合边框：外层是实线，内层是空白边距
+            Border lineBorder = BorderFactory.createLineBorder(borderColor, 2);
+            Border emptyBorder = BorderFactory.createEmptyBorder(10, 15, 10, 15);
+            setBorder(BorderFactory.createCompoundBorder(lineBorder, emptyBorder));
+
+            numLabel.setForeground(borderColor); // 字体颜色和边框一致
+            iconLabel.setText(isOccupied ? "🚗" : "🅿️");
+            updateDuration();
+        }
+
+        // 只根据本地保存的入场时间重新计算停车时长
+        public void updateDuration() {
+            String statusText;
+            if (isOccupied && entryTimeStr != null && !entryTimeStr.isEmpty()) {
+                // 计算停车时长
+                try {
+                    LocalDateTime entryTime = LocalDateTime.parse(entryTimeStr);
+                    String durationStr = calculateDuration(entryTime);
+                    statusText = "<html><center>已停: <font color=red>" + durationStr + "</font></center></html>";
+                } catch (Exception e) {
+                    statusText = "<html><center>已停</center></html>";
+                }
+            } else {
+                statusText = "<html><center><font color=green>空闲可停</font></center></html>";
+            }
+            if (!statusText.equals(statusLabel.getText())) {
+                statusLabel.setText(statusText);
+            }
+        }
     }
 
     // --- 辅助方法：计算停车时长 ---
@@ -1,22 +1,56 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.sql.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class ParkingService {
+    private static final Logger LOG = Logger.getLogger(ParkingService.class.getName());
+    // 客户端停车记录 ID 的起点，与 Web 后端 ParkingServiceImpl.DESKTOP_RECORD_ID_BASE 保持一致
+    private static final int RECORD_ID_BASE = 1_000_000_000;
 
-    // 1. 验证管理员登录 (保持不变)
+    // 1. 验证管理员登录：只按用户名查出密码摘要，在本地校验
+    // 摘要格式与 Web 后端一致 (pbkdf2$迭代次数$盐$摘要)，后端登录时会把历史明文密码升级为摘要，这里两种都认
     public boolean login(String username, String password) {
-        String sql = "SELECT * FROM admin_users WHERE username = ? AND password = ?";
+        String sql = "SELECT password FROM admin_users WHERE username = ?";
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
-            ps.setString(2, password);
             ResultSet rs = ps.executeQuery();
-            return rs.next();
+            return rs.next() && verifyPassword(password, rs.getString(1));
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "管理员登录查询失败", e);
+            return false;
+        }
+    }
+
+    private static boolean verifyPassword(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith("pbkdf2$")) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] salt = b64.decode(parts[2]);
+            byte[] expected = b64.decode(parts[3]);
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, Integer.parseInt(parts[1]), expected.length * 8);
+            byte[] actual = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
             return false;
         }
     }
@@ -53,11 +87,59 @@ public class ParkingService {
                 });
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "查询车位列表失败", e);
         }
         return list;
     }
 
+    /**
+     * 增量变更查询的结果：变更的车位行 (格式同 getAllSpotsDetailed) + 新的版本号
+     */
+    public static class SpotChanges {
+        public final long version;
+        public final List<String[]> rows;
+
+        SpotChanges(long version, List<String[]> rows) {
+            this.version = version;
+            this.rows = rows;
+        }
+    }
+
+    // 事务提交顺序可能和 updated_at 的先后不一致，查询时往前多看一段时间，重复的行由界面自己比对过滤
+    private static final long CHANGE_OVERLAP_MS = 2000;
+
+    /**
+     * 只查询版本号 (parking_spots.updated_at 毫秒值) 之后有变化的车位，version 传 0 即全量。
+     * 查询失败时抛出异常，由界面提示，不能当作“没有变化”或“没有车位”处理
+     */
+    public SpotChanges getSpotChangesSince(long version) throws SQLException {
+        List<String[]> list = new ArrayList<>();
+        long newVersion = version;
+        String sql = "SELECT s.spot_id, s.spot_number, s.status, s.updated_at, r.entry_time " +
+                "FROM parking_spots s " +
+                "LEFT JOIN parking_records r ON s.spot_id = r.spot_id AND r.exit_time IS NULL " +
+                "WHERE s.updated_at > ? " +
+                "ORDER BY s.spot_id";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(Math.max(0, version - CHANGE_OVERLAP_MS)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    newVersion = Math.max(newVersion, rs.getTimestamp("updated_at").getTime());
+                    Timestamp ts = rs.getTimestamp("entry_time");
+                    list.add(new String[]{
+                            String.valueOf(rs.getInt("spot_id")),
+                            rs.getString("spot_number"),
+                            rs.getString("status"),
+                            ts == null ? "" : ts.toLocalDateTime().toString()
+                    });
+                }
+            }
+        }
+        return new SpotChanges(newVersion, list);
+    }
+
     // 3. 车辆入场 (保持不变)
     public boolean parkIn(int spotId, String plateNum) {
         Connection conn = null;
@@ -65,30 +147,48 @@ public class ParkingService {
             conn = DBUtil.getConnection();
             conn.setAutoCommit(false);
 
+            // 连接会归还到连接池复用，语句用完要及时关闭
             String checkSql = "SELECT status FROM parking_spots WHERE spot_id = ? FOR UPDATE";
-            PreparedStatement psCheck = conn.prepareStatement(checkSql);
-            psCheck.setInt(1, spotId);
-            ResultSet rs = psCheck.executeQuery();
-            if (rs.next() && !"FREE".equals(rs.getString("status"))) {
-                conn.rollback(); return false;
+            try (PreparedStatement psCheck = conn.prepareStatement(checkSql)) {
+                psCheck.setInt(1, spotId);
+                ResultSet rs = psCheck.executeQuery();
+                if (rs.next() && !"FREE".equals(rs.getString("status"))) {
+                    LOG.info("车位 " + spotId + " 已被占用，入场失败");
+                    conn.rollback(); return false;
+                }
             }
 
-            String insertSql = "INSERT INTO parking_records (plate_num, spot_id, entry_time) VALUES (?, ?, NOW())";
-            PreparedStatement psInsert = conn.prepareStatement(insertSql);
-            psInsert.setString(1, plateNum);
-            psInsert.setInt(2, spotId);
-            psInsert.executeUpdate();
+            // Web 后端在内存中分配记录 ID，这里不能用自增主键，只在客户端专用的区间内取号；
+            // 多个客户端同时取到同一个号时插入会因主键冲突失败，整笔回滚
+            int recordId;
+            String idSql = "SELECT COALESCE(MAX(record_id), ?) + 1 FROM parking_records WHERE record_id >= ?";
+            try (PreparedStatement psId = conn.prepareStatement(idSql)) {
+                psId.setInt(1, RECORD_ID_BASE - 1);
+                psId.setInt(2, RECORD_ID_BASE);
+                ResultSet rs = psId.executeQuery();
+                rs.next();
+                recordId = rs.getInt(1);
+            }
+
+            String insertSql = "INSERT INTO parking_records (record_id, plate_num, spot_id, entry_time) VALUES (?, ?, ?, NOW())";
+            try (PreparedStatement psInsert = conn.prepareStatement(insertSql)) {
+                psInsert.setInt(1, recordId);
+                psInsert.setString(2, plateNum);
+                psInsert.setInt(3, spotId);
+                psInsert.executeUpdate();
+            }
 
             String updateSql = "UPDATE parking_spots SET status = 'OCCUPIED' WHERE spot_id = ?";
-            PreparedStatement psUpdate = conn.prepareStatement(updateSql);
-            psUpdate.setInt(1, spotId);
-            psUpdate.executeUpdate();
+            try (PreparedStatement psUpdate = conn.prepareStatement(updateSql)) {
+                psUpdate.setInt(1, spotId);
+                psUpdate.executeUpdate();
+            }
 
             conn.commit();
             return true;
         } catch (Exception e) {
             try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "入场登记失败，车位 " + spotId, e);
             return false;
         } finally {
             try { if (conn != null) conn.close(); } catch (SQLException e) {}
@@ -107,20 +207,22 @@ public class ParkingService {
             // 实际项目中，应该先查询 entry_time，算出时长，再结合费率规则算钱
 
             String updateRecord = "UPDATE parking_records SET exit_time = NOW(), payment = ? WHERE spot_id = ? AND exit_time IS NULL";
-            PreparedStatement psRecord = conn.prepareStatement(updateRecord);
-            psRecord.setDouble(1, fee);
-            psRecord.setInt(2, spotId);
-            psRecord.executeUpdate();
+            try (PreparedStatement psRecord = conn.prepareStatement(updateRecord)) {
+                psRecord.setDouble(1, fee);
+                psRecord.setInt(2, spotId);
+                psRecord.executeUpdate();
+            }
 
             String updateSpot = "UPDATE parking_spots SET status = 'FREE' WHERE spot_id = ?";
-            PreparedStatement psSpot = conn.prepareStatement(updateSpot);
-            psSpot.setInt(1, spotId);
-            psSpot.executeUpdate();
+            try (PreparedStatement psSpot = conn.prepareStatement(updateSpot)) {
+                psSpot.setInt(1, spotId);
+                psSpot.executeUpdate();
+            }
 
             conn.commit();
         } catch (Exception e) {
             try { if (conn != null) conn.rollback(); } catch (SQLException ex) {}
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "出场结算失败，车位 " + spotId, e);
         } finally {
             try { if (conn != null) conn.close(); } catch (SQLException e) {}
         }
@@ -0,0 +1,45 @@
+package com.example.parkingwebbackend.benchmark;
+
+import java.util.Random;
+
+/**
+ * 压测的到达过程：给出下一辆车与上一辆之间的间隔。
+ * <ul>
+ *     <li>constant：匀速到达</li>
+ *     <li>poisson：泊松到达，间隔服从指数分布</li>
+ *     <li>peak：早高峰，到达率从 20% 升到中点的 100% 再回落，模拟周一早上的进场潮</li>
+ * </ul>
+ */
+interface ArrivalProcess {
+
+    /**
+     * @param elapsedNanos 从压测开始到上一辆车到达的时间，peak 据此确定当前的到达率
+     */
+    long nextGapNanos(long elapsedNanos, Random random);
+
+    /**
+     * @param ratePerSecond 每秒到达的车辆数（peak 为峰值）
+     * @param durationNanos 压测时长，peak 在其中点达到峰值
+     */
+    static ArrivalProcess of(String kind, double ratePerSecond, long durationNanos) {
+        double meanGap = 1e9 / ratePerSecond;
+        switch (kind) {
+            case "constant":
+                return (elapsed, random) -> (long) meanGap;
+            case "poisson":
+                return (elapsed, random) -> exponential(meanGap, random);
+            case "peak":
+                return (elapsed, random) -> {
+                    double phase = Math.min(1.0, (double) elapsed / durationNanos);
+                    double factor = 0.2 + 0.8 * Math.sin(Math.PI * phase);
+                    return exponential(meanGap / factor, random);
+                };
+            default:
+                throw new IllegalArgumentException("未知的到达分布: " + kind + "（可选 constant / poisson / peak）");
+        }
+    }
+
+    static long exponential(double mean, Random random) {
+        return (long) (-mean * Math.log(1 - random.nextDouble()));
+    }
+}
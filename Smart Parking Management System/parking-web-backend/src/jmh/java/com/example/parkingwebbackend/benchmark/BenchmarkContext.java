@@ -0,0 +1,46 @@
+package com.example.parkingwebbackend.benchmark;
+
+import com.example.parkingwebbackend.ParkingWebBackendApplication;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.impl.ParkingServiceImpl;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 基准测试共用的 Spring 上下文：使用测试配置里的 H2 内存库，默认不启动 Web 服务器，
+ * 额外插入一批车位后重新加载占用表
+ */
+final class BenchmarkContext {
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(int extraSpots, String... properties) {
+        return start(WebApplicationType.NONE, new Class<?>[0], extraSpots, properties);
+    }
+
+    /**
+     * @param web     SERVLET 时在随机端口启动 Tomcat
+     * @param sources 额外的配置类，如模拟数据库延迟的拦截器
+     */
+    static ConfigurableApplicationContext start(WebApplicationType web, Class<?>[] sources, int extraSpots,
+                                                String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ParkingWebBackendApplication.class)
+                .sources(sources)
+                .web(web)
+                .properties("logging.level.root=WARN")
+                .properties(properties)
+                .run();
+        ParkingSpotMapper spotMapper = context.getBean(ParkingSpotMapper.class);
+        for (int i = 0; i < extraSpots; i++) {
+            ParkingSpot spot = new ParkingSpot();
+            spot.setSpotNumber(String.format("BM-%04d", i));
+            spot.setStatus("FREE");
+            spot.setFloor(i % 4 + 1);
+            spotMapper.insertSpot(spot);
+        }
+        context.getBean(ParkingServiceImpl.class).load();
+        return context;
+    }
+}
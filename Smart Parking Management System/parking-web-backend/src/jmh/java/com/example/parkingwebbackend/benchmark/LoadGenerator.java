@@ -0,0 +1,329 @@
+package com.example.parkingwebbackend.benchmark;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.AvailabilityCounters;
+import com.example.parkingwebbackend.service.ParkingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 闸口压测：N 个闸口线程直接调用 ParkingService 的 parkIn / parkOut，跑在测试配置的 H2 内存库上，
+ * 上线前在本机复现早高峰。两种负载：
+ * <ul>
+ *     <li>生成：按到达分布（constant / poisson / peak）进场，停留时长服从指数分布，到时出场</li>
+ *     <li>回放：按 /api/records/export 导出的停车记录的原始间隔加速回放，--speed 60 即 1 小时压缩为 1 分钟</li>
+ * </ul>
+ * 开环压测：每辆车按计划时间到达，不等前一辆处理完，调度滞后单独统计，闸口线程跟不上时能看出来。
+ * 入场失败时区分车位冲突（车位已被占用，换车位重试）和写入队列背压（退避后重试）。
+ * <p>
+ * mvn -P benchmark test-compile exec:exec@loadgen -Dloadgen.args="--gates 32 --rate 500 --arrivals peak"
+ * <pre>
+ * --gates N         闸口数（线程数），默认 16
+ * --duration S      生成模式的压测时长（秒），默认 30
+ * --rate R          生成模式每秒到达的车辆数，peak 为峰值，默认 200
+ * --arrivals KIND   constant / poisson / peak，默认 poisson
+ * --dwell S         生成模式的平均停留时长（秒），默认 5
+ * --assign MODE     生成模式下 random：司机随机选车位调用 parkIn，冲突时换一个；auto：闸口自动分配 (parkInAuto)。默认 random
+ * --spots N         压测前插入的车位数，回放时不少于导出文件中的车位数，默认 500
+ * --max-retries N   冲突或背压时的最多重试次数，默认 3
+ * --replay CSV      回放导出的停车记录，忽略 duration / rate / arrivals / dwell
+ * --speed X         回放加速倍数，默认 60
+ * --fsync B         本地日志是否 fsync，默认 false
+ * --seed N          随机数种子，默认 42
+ * </pre>
+ */
+public final class LoadGenerator {
+    private final Map<String, String> options;
+    private final ParkingService parkingService;
+    private final AvailabilityCounters counters;
+    private final List<Integer> spotIds = new ArrayList<>();
+    private final int gates;
+    private final int maxRetries;
+    private final boolean randomAssign;
+    private boolean replaying;
+    private long startNanos;
+    private long endNanos;
+
+    private LoadGenerator(Map<String, String> options, ConfigurableApplicationContext context) {
+        this.options = options;
+        this.parkingService = context.getBean(ParkingService.class);
+        this.counters = context.getBean(AvailabilityCounters.class);
+        for (ParkingSpot spot : parkingService.getAllSpots()) {
+            spotIds.add(spot.getSpotId());
+        }
+        this.gates = Integer.parseInt(option("gates", "16"));
+        this.maxRetries = Integer.parseInt(option("max-retries", "3"));
+        String assign = option("assign", "random");
+        if (!assign.equals("random") && !assign.equals("auto")) {
+            throw new IllegalArgumentException("--assign 须为 random 或 auto");
+        }
+        this.randomAssign = assign.equals("random");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String csv = options.get("replay");
+        RecordReplay replay = csv == null ? null : RecordReplay.read(Paths.get(csv));
+        int spots = Integer.parseInt(options.getOrDefault("spots", "500"));
+        if (replay != null) {
+            spots = Math.max(spots, replay.spotIds.size());
+        }
+        ConfigurableApplicationContext context = BenchmarkContext.start(spots,
+                "parking.write-behind.fsync=" + options.getOrDefault("fsync", "false"),
+                "parking.snapshot.enabled=false");
+        try {
+            new LoadGenerator(options, context).run(replay, context.getBean(MeterRegistry.class), System.out);
+        } finally {
+            context.close();
+        }
+    }
+
+    private void run(RecordReplay replay, MeterRegistry registry, PrintStream out) throws InterruptedException {
+        long seed = Long.parseLong(option("seed", "42"));
+        List<Gate> gateList = new ArrayList<>();
+        for (int i = 0; i < gates; i++) {
+            gateList.add(new Gate(i, new Random(seed + i)));
+        }
+        if (replay == null) {
+            double rate = Double.parseDouble(option("rate", "200"));
+            String kind = option("arrivals", "poisson");
+            double dwellNanos = Double.parseDouble(option("dwell", "5")) * 1e9;
+            endNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option("duration", "30")));
+            ArrivalProcess arrivals = ArrivalProcess.of(kind, rate / gates, endNanos);
+            gateList.forEach(gate -> gate.generate(arrivals, dwellNanos));
+            out.printf("生成负载：%s 到达，%.0f 辆/s，平均停留 %.1f s，%d 个闸口，%d 个车位，%s 选车位%n",
+                    kind, rate, dwellNanos / 1e9, gates, spotIds.size(), randomAssign ? "随机" : "自动分配");
+        } else {
+            replaying = true;
+            double speed = Double.parseDouble(option("speed", "60"));
+            endNanos = (long) (replay.spanMillis * 1e6 / speed);
+            Map<Integer, Integer> spotMap = new HashMap<>();
+            for (int i = 0; i < replay.spotIds.size(); i++) {
+                spotMap.put(replay.spotIds.get(i), spotIds.get(i % spotIds.size()));
+            }
+            for (int i = 0; i < replay.visits.size(); i++) {
+                gateList.get(i % gates).replay(replay.visits.get(i), speed, spotMap);
+            }
+            out.printf("回放 %d 条停车记录，原始跨度 %.1f h，加速 %.0f 倍，%d 个闸口%n",
+                    replay.visits.size(), replay.spanMillis / 3.6e6, speed, gates);
+        }
+
+        double conflictsBefore = serverCount(registry, "parking.spot.conflicts");
+        double timeoutsBefore = serverCount(registry, "parking.write_behind.slot_timeouts");
+        List<Thread> threads = new ArrayList<>();
+        startNanos = System.nanoTime();
+        for (Gate gate : gateList) {
+            Thread thread = new Thread(gate, "gate-" + gate.index);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long finished = gateList.stream().mapToLong(gate -> gate.finishedNanos).max().orElse(startNanos);
+
+        LoadStats.merge(gateList.stream().map(gate -> gate.stats).toList()).print(out, (finished - startNanos) / 1e9);
+        out.printf("服务端计数：CAS 冲突 %.0f 次，写入队列等待超时 %.0f 次%n",
+                serverCount(registry, "parking.spot.conflicts") - conflictsBefore,
+                serverCount(registry, "parking.write_behind.slot_timeouts") - timeoutsBefore);
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static double serverCount(MeterRegistry registry, String name) {
+        return registry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("参数格式应为 --name value: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private enum Kind { ARRIVAL, ENTRY, EXIT }
+
+    /**
+     * 一辆车：spotId 为入场后实际停的车位
+     */
+    private static final class Car {
+        final String plateNum;
+        final Integer preferredSpotId;
+        Integer spotId;
+
+        Car(String plateNum, Integer preferredSpotId) {
+            this.plateNum = plateNum;
+            this.preferredSpotId = preferredSpotId;
+        }
+    }
+
+    private record Action(long dueNanos, Kind kind, Car car) {
+    }
+
+    /**
+     * 一个闸口：单线程按计划时间依次处理本闸口的到达、入场和出场
+     */
+    private final class Gate implements Runnable {
+        final int index;
+        final Random random;
+        final LoadStats stats = new LoadStats();
+        final PriorityQueue<Action> queue = new PriorityQueue<>(Comparator.comparingLong(Action::dueNanos));
+        ArrivalProcess arrivals;
+        double dwellNanos;
+        int plates;
+        long finishedNanos;
+
+        Gate(int index, Random random) {
+            this.index = index;
+            this.random = random;
+        }
+
+        void generate(ArrivalProcess arrivals, double dwellNanos) {
+            this.arrivals = arrivals;
+            this.dwellNanos = dwellNanos;
+            queue.add(new Action(arrivals.nextGapNanos(0, random), Kind.ARRIVAL, null));
+        }
+
+        void replay(RecordReplay.Visit visit, double speed, Map<Integer, Integer> spotMap) {
+            Car car = new Car(visit.plateNum, spotMap.get(visit.spotId));
+            queue.add(new Action((long) (visit.entryMillis * 1e6 / speed), Kind.ENTRY, car));
+            if (visit.exitMillis >= 0) {
+                queue.add(new Action((long) (visit.exitMillis * 1e6 / speed), Kind.EXIT, car));
+            }
+        }
+
+        @Override
+        public void run() {
+            Action action;
+            while ((action = queue.peek()) != null && action.dueNanos() <= endNanos) {
+                long wait = startNanos + action.dueNanos() - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                queue.poll();
+                stats.lag.record(Math.max(0, System.nanoTime() - startNanos - action.dueNanos()));
+                switch (action.kind()) {
+                    case ARRIVAL -> arrive(action.dueNanos());
+                    case ENTRY -> enter(action.car());
+                    case EXIT -> {
+                        if (action.car().spotId != null) {
+                            exit(action.car());
+                        }
+                    }
+                }
+            }
+            finishedNanos = System.nanoTime();
+            // 压测结束时仍在场的车直接出场，不计入结果，车位留空以便再跑一轮
+            for (Action left : queue) {
+                if (left.kind() == Kind.EXIT && left.car().spotId != null) {
+                    parkingService.parkOut(left.car().spotId);
+                }
+            }
+        }
+
+        private void arrive(long dueNanos) {
+            queue.add(new Action(dueNanos + arrivals.nextGapNanos(dueNanos, random), Kind.ARRIVAL, null));
+            Car car = new Car(String.format("LG%03d%06d", index, ++plates), randomAssign ? randomSpot() : null);
+            if (enter(car)) {
+                long now = System.nanoTime() - startNanos;
+                queue.add(new Action(now + ArrivalProcess.exponential(dwellNanos, random), Kind.EXIT, car));
+            }
+        }
+
+        private boolean enter(Car car) {
+            // 入口显示屏已满时车辆不进场
+            if (counters.getFacility().getFree() == 0) {
+                stats.full++;
+                return false;
+            }
+            Integer spotId = car.preferredSpotId;
+            for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                if (attempt > 0) {
+                    stats.retries++;
+                }
+                long t0 = System.nanoTime();
+                if (spotId != null) {
+                    boolean ok = parkingService.parkIn(car.plateNum, spotId);
+                    stats.entry.record(System.nanoTime() - t0);
+                    if (ok) {
+                        car.spotId = spotId;
+                        stats.entries++;
+                        return true;
+                    }
+                    if (parkingService.getActiveRecordBySpotId(spotId) != null) {
+                        // 车位被别的车抢先占了：随机模式换一个车位，回放时改为在原车位附近自动分配
+                        stats.entryConflicts++;
+                        spotId = randomAssign && !replaying ? randomSpot() : null;
+                        continue;
+                    }
+                } else {
+                    ParkingRecord record = parkingService.parkInAuto(car.plateNum, null, null, car.preferredSpotId);
+                    stats.entry.record(System.nanoTime() - t0);
+                    if (record != null) {
+                        car.spotId = record.getSpotId();
+                        stats.entries++;
+                        return true;
+                    }
+                    if (counters.getFacility().getFree() == 0) {
+                        stats.full++;
+                        return false;
+                    }
+                }
+                stats.busy++;
+                backoff(attempt);
+            }
+            stats.failed++;
+            return false;
+        }
+
+        private void exit(Car car) {
+            for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                if (attempt > 0) {
+                    stats.retries++;
+                }
+                long t0 = System.nanoTime();
+                boolean ok = parkingService.parkOut(car.spotId) != null;
+                stats.exit.record(System.nanoTime() - t0);
+                if (ok) {
+                    stats.exits++;
+                    return;
+                }
+                if (parkingService.getActiveRecordBySpotId(car.spotId) == null) {
+                    stats.exitConflicts++;
+                    return;
+                }
+                stats.busy++;
+                backoff(attempt);
+            }
+            stats.failed++;
+        }
+
+        private Integer randomSpot() {
+            return spotIds.get(random.nextInt(spotIds.size()));
+        }
+
+        private void backoff(int attempt) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(attempt + 1));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.parkingwebbackend.benchmark;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一个闸口线程的压测计数，只由该线程写入，结束后再合并，不需要同步。
+ * 延迟逐条记下纳秒数，合并后排序取分位数；一次压测几十万次调用，数组开销可以接受。
+ */
+final class LoadStats {
+    final Latencies entry = new Latencies();
+    final Latencies exit = new Latencies();
+    // 实际开始时间比计划晚了多少：闸口线程跟不上到达率时变大，此时吞吐已到上限
+    final Latencies lag = new Latencies();
+    long entries;
+    long exits;
+    long entryConflicts;
+    long exitConflicts;
+    long busy;
+    long retries;
+    long full;
+    long failed;
+
+    void add(LoadStats other) {
+        entry.add(other.entry);
+        exit.add(other.exit);
+        lag.add(other.lag);
+        entries += other.entries;
+        exits += other.exits;
+        entryConflicts += other.entryConflicts;
+        exitConflicts += other.exitConflicts;
+        busy += other.busy;
+        retries += other.retries;
+        full += other.full;
+        failed += other.failed;
+    }
+
+    static LoadStats merge(List<LoadStats> all) {
+        LoadStats total = new LoadStats();
+        all.forEach(total::add);
+        return total;
+    }
+
+    void print(PrintStream out, double seconds) {
+        long calls = entry.size + exit.size;
+        out.printf("耗时 %.1f s，调用 %d 次，吞吐 %.0f 次/s（入场 %.0f 辆/s，出场 %.0f 辆/s）%n",
+                seconds, calls, calls / seconds, entries / seconds, exits / seconds);
+        out.println("延迟 (ms)        p50      p90      p99    p99.9      max");
+        entry.print(out, "入场调用");
+        exit.print(out, "出场调用");
+        lag.print(out, "调度滞后");
+        out.printf("车位冲突：入场 %d（%.2f%%），出场 %d%n", entryConflicts, percent(entryConflicts, entry.size),
+                exitConflicts);
+        out.printf("重试 %d 次（占调用 %.2f%%），写入队列背压 %d 次%n", retries, percent(retries, calls), busy);
+        out.printf("满场拒绝 %d 辆，重试用尽放弃 %d 辆%n", full, failed);
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    static final class Latencies {
+        private long[] nanos = new long[1024];
+        private int size;
+        private boolean sorted;
+
+        void record(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+            sorted = false;
+        }
+
+        void add(Latencies other) {
+            if (size + other.size > nanos.length) {
+                nanos = Arrays.copyOf(nanos, Math.max(size + other.size, nanos.length * 2));
+            }
+            System.arraycopy(other.nanos, 0, nanos, size, other.size);
+            size += other.size;
+            sorted = false;
+        }
+
+        double percentileMillis(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(nanos, 0, size);
+                sorted = true;
+            }
+            int index = (int) Math.min(size - 1, Math.ceil(p / 100 * size) - 1);
+            return nanos[Math.max(0, index)] / 1e6;
+        }
+
+        private void print(PrintStream out, String label) {
+            out.printf("%-8s %8.3f %8.3f %8.3f %8.3f %8.3f%n", label, percentileMillis(50), percentileMillis(90),
+                    percentileMillis(99), percentileMillis(99.9), percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.parkingwebbackend.benchmark;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 入场 + 出场一个完整周期的吞吐量。每个线程固定使用自己的车位（模拟各闸口互不冲突），
+ * 另有自动分配车位的版本，所有线程从同一批空闲车位中抢占。
+ * 写入经 write-behind 异步落到 H2，队列满时的背压也计入结果。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParkingBenchmark {
+    private static final int SPOTS = 512;
+
+    @Param({"false"})
+    public boolean fsync;
+
+    private ConfigurableApplicationContext context;
+    private ParkingService parkingService;
+    private final AtomicInteger nextGate = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start(SPOTS, "parking.write-behind.fsync=" + fsync);
+        parkingService = context.getBean(ParkingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Gate {
+        int spotId;
+        String plateNum;
+
+        @Setup(Level.Trial)
+        public void setup(ParkingBenchmark benchmark) {
+            // 种子数据占用了 1..10，基准插入的车位从 11 开始
+            spotId = 11 + benchmark.nextGate.getAndIncrement() % SPOTS;
+            plateNum = "沪A" + (10000 + spotId);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BigDecimal parkInOut1(Gate gate) {
+        return cycle(gate);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal parkInOut4(Gate gate) {
+        return cycle(gate);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public BigDecimal parkInOutMax(Gate gate) {
+        return cycle(gate);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public BigDecimal autoAssignMax(Gate gate) {
+        ParkingRecord record = parkingService.parkInAuto(gate.plateNum, null, null);
+        if (record == null) {
+            throw new IllegalStateException("没有空闲车位");
+        }
+        return parkingService.parkOut(record.getSpotId());
+    }
+
+    private BigDecimal cycle(Gate gate) {
+        if (!parkingService.parkIn(gate.plateNum, gate.spotId)) {
+            throw new IllegalStateException("车位被占用: " + gate.spotId);
+        }
+        return parkingService.parkOut(gate.spotId);
+    }
+}
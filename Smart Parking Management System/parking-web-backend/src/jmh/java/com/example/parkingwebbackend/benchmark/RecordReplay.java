@@ -0,0 +1,94 @@
+package com.example.parkingwebbackend.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 读取 /api/records/export 导出的 CSV（record_id,plate_num,spot_id,entry_time,exit_time,payment），
+ * 按入场时间排序，供压测按原来的时间间隔加速回放。出场时间为空的记录回放时只入场。
+ */
+final class RecordReplay {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    final List<Visit> visits;
+    // 导出文件中出现过的车位，回放时按顺序映射到压测库里的车位
+    final List<Integer> spotIds;
+    final long spanMillis;
+
+    private RecordReplay(List<Visit> visits, List<Integer> spotIds, long spanMillis) {
+        this.visits = visits;
+        this.spotIds = spotIds;
+        this.spanMillis = spanMillis;
+    }
+
+    static RecordReplay read(Path csv) throws IOException {
+        List<Visit> visits = new ArrayList<>();
+        TreeSet<Integer> spots = new TreeSet<>();
+        ZoneId zone = ZoneId.systemDefault();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("record_id,")) {
+                throw new IOException("不是停车记录导出文件: " + csv);
+            }
+            int lineNo = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] cols = line.split(",", -1);
+                if (cols.length < 5) {
+                    throw new IOException(csv + " 第 " + lineNo + " 行列数不足");
+                }
+                long entry = LocalDateTime.parse(cols[3], TIME).atZone(zone).toInstant().toEpochMilli();
+                long exit = cols[4].isEmpty() ? -1 : LocalDateTime.parse(cols[4], TIME).atZone(zone).toInstant().toEpochMilli();
+                int spotId = Integer.parseInt(cols[2]);
+                spots.add(spotId);
+                visits.add(new Visit(cols[1], spotId, entry, exit));
+            }
+        }
+        if (visits.isEmpty()) {
+            throw new IOException(csv + " 中没有停车记录");
+        }
+        visits.sort(Comparator.comparingLong(v -> v.entryMillis));
+        long origin = visits.get(0).entryMillis;
+        long end = origin;
+        for (Visit visit : visits) {
+            end = Math.max(end, Math.max(visit.entryMillis, visit.exitMillis));
+        }
+        for (Visit visit : visits) {
+            visit.entryMillis -= origin;
+            if (visit.exitMillis >= 0) {
+                visit.exitMillis = Math.max(visit.entryMillis, visit.exitMillis - origin);
+            }
+        }
+        return new RecordReplay(visits, new ArrayList<>(spots), end - origin);
+    }
+
+    /**
+     * 一次停车：时间为相对第一条记录入场的毫秒数，exitMillis 为 -1 表示未出场
+     */
+    static final class Visit {
+        final String plateNum;
+        final int spotId;
+        long entryMillis;
+        long exitMillis;
+
+        Visit(String plateNum, int spotId, long entryMillis, long exitMillis) {
+            this.plateNum = plateNum;
+            this.spotId = spotId;
+            this.entryMillis = entryMillis;
+            this.exitMillis = exitMillis;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.parkingwebbackend.benchmark;
+
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全场车位快照：桌面端 getAllSpotsDetailed 的 LEFT JOIN 查询（走 H2）对比后端内存占用表
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+    private static final int SPOTS = 512;
+    private static final String DETAILED_SQL = "SELECT s.spot_id, s.spot_number, s.status, r.entry_time "
+            + "FROM parking_spots s "
+            + "LEFT JOIN parking_records r ON s.spot_id = r.spot_id AND r.exit_time IS NULL "
+            + "ORDER BY s.spot_id";
+
+    private ConfigurableApplicationContext context;
+    private ParkingService parkingService;
+    private DataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        context = BenchmarkContext.start(SPOTS);
+        parkingService = context.getBean(ParkingService.class);
+        dataSource = context.getBean(DataSource.class);
+        // 占用一半车位，并等 write-behind 落库，让 JOIN 有记录可连
+        for (int spotId = 11; spotId < 11 + SPOTS; spotId += 2) {
+            parkingService.parkIn("苏E" + (10000 + spotId), spotId);
+        }
+        Thread.sleep(2000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String[]> detailedQuery() throws SQLException {
+        List<String[]> list = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(DETAILED_SQL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp ts = rs.getTimestamp("entry_time");
+                list.add(new String[]{
+                        String.valueOf(rs.getInt("spot_id")),
+                        rs.getString("spot_number"),
+                        rs.getString("status"),
+                        ts == null ? "" : ts.toLocalDateTime().toString()
+                });
+            }
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<ParkingSpot> inMemorySnapshot() {
+        return parkingService.getAllSpots();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.parkingwebbackend.benchmark;
+
+import com.example.parkingwebbackend.fee.Tariff;
+import com.example.parkingwebbackend.model.FeeRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 data.sql 中的默认收费规则（10 元/小时，免费 30 分钟，日封顶 100 元）计费
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TariffBenchmark {
+    private static final int STAYS = 1024;
+
+    private Tariff tariff;
+    private final long[] entryMillis = new long[STAYS];
+    private final long[] exitMillis = new long[STAYS];
+    private final long[] out = new long[STAYS];
+    private int next;
+
+    @Setup
+    public void setup() {
+        FeeRule rule = new FeeRule();
+        rule.setRuleId(1);
+        rule.setBasePrice(new BigDecimal("10.00"));
+        rule.setFreeMinutes(30);
+        rule.setDailyCap(new BigDecimal("100.00"));
+        tariff = new Tariff(rule);
+        // 停车时长 0 ~ 3 天，覆盖免费、按小时、跨天几种情况
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < STAYS; i++) {
+            entryMillis[i] = now - random.nextInt(3 * 24 * 60) * 60000L;
+            exitMillis[i] = now;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal singleFee() {
+        int i = next++ & (STAYS - 1);
+        return Tariff.toYuan(tariff.feeCents(entryMillis[i], exitMillis[i]));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long[] batchReprice() {
+        for (int i = 0; i < STAYS; i++) {
+            out[i] = tariff.feeCents(entryMillis[i], exitMillis[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.parkingwebbackend.benchmark;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 平台线程 vs 虚拟线程：大量闸口/大屏并发请求查询停车记录（每次都走 JDBC）时的吞吐量和延迟分布 (p99 见 SampleTime 结果)。
+ * <p>
+ * H2 内存库太快，体现不出阻塞，用拦截器给每条查询加上 db-latency-ms 的延迟模拟远程 MySQL 的往返；
+ * 两种模式的 Tomcat 线程上限、连接池大小相同，虚拟线程模式另由数据库闸门限制并发。
+ * 默认只测 platform，Java 17 下也能跑；virtual 需要 Java 21，同时启用 virtual-threads 时才加入对比：
+ * mvn -P benchmark,virtual-threads verify -Djmh.args="ThreadMode"（由 pom 中的 jmh.thread-modes 以 -p mode=... 传入）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ThreadModeBenchmark {
+
+    @Param({"platform"})
+    public String mode;
+
+    @Param({"5"})
+    public int dbLatencyMs;
+
+    @Param({"/api/records?limit=20"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("虚拟线程模式需要 Java 21，当前为 " + Runtime.version());
+        }
+        context = BenchmarkContext.start(WebApplicationType.SERVLET, new Class<?>[]{DbLatency.class}, 0,
+                "server.port=0",
+                "server.tomcat.threads.max=50",
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "spring.threads.virtual.enabled=" + virtual,
+                "parking.db.max-concurrent=" + (virtual ? 20 : 0),
+                "benchmark.db-latency-ms=" + dbLatencyMs);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        uri = URI.create("http://localhost:" + port + "/parking" + path);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(200)
+    public int queryRecords() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class DbLatency {
+        @Bean
+        Interceptor dbLatencyInterceptor(@Value("${benchmark.db-latency-ms:0}") long latencyMs) {
+            return new LatencyInterceptor(latencyMs);
+        }
+    }
+
+    @Intercepts(@Signature(type = Executor.class, method = "query",
+            args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}))
+    static class LatencyInterceptor implements Interceptor {
+        private final long latencyMs;
+
+        LatencyInterceptor(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            // 连接在执行语句时才取得，到 SqlSession 关闭才归还，放在 proceed 之后等待才会像真实的往返一样占着连接
+            Object result = invocation.proceed();
+            Thread.sleep(latencyMs);
+            return result;
+        }
+    }
+}
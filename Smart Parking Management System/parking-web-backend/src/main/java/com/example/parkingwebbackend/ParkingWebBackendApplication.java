@@ -2,8 +2,10 @@ package com.example.parkingwebbackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ParkingWebBackendApplication {
 
 	public static void main(String[] args) {
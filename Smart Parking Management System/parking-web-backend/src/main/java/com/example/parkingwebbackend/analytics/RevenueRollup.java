@@ -0,0 +1,608 @@
+package com.example.parkingwebbackend.analytics;
+
+import com.example.parkingwebbackend.cluster.LotTopology;
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.model.RevenueBucket;
+import com.example.parkingwebbackend.model.RevenueReport;
+import com.example.parkingwebbackend.service.OccupancyListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按小时 / 天 × 停车场 × 楼层预先汇总的营收、车次和停留时长，报表直接读内存汇总，不扫 parking_records。
+ * 多停车场部署时只汇总本节点负责的停车场，跨场报表由 {@link com.example.parkingwebbackend.cluster.ClusterQueries} 合并。
+ * <p>
+ * 停车按出场时间归入时段。本次运行中出场的记录由车位变化通知实时累加；
+ * 启动时用 fork-join 按主键区间分块并行读取历史记录回填，启动时仍在场的记录留给实时累加，两边不会重复计数。
+ * 汇总随占用表快照写入检查点 ({@link RollupCheckpoint})，有可用检查点时只回填检查点之后的记录。
+ * 桌面客户端直接写库的记录（ID 在外部区间内）不经过本进程，定期从水位线之后补读已出场的部分，
+ * 补读时仍在场的记录单独登记，之后按主键复查；
+ * 回填未完成或补读落后时报表标记为不完整。小时汇总只保留 hourly-retention-days 天，按天汇总不受影响。
+ */
+@Component
+public class RevenueRollup implements OccupancyListener {
+    private static final Logger log = LoggerFactory.getLogger(RevenueRollup.class);
+    private static final int NO_FLOOR = 0; // 车位已删除或 floor 为空的记录记在 0 层
+    private static final int DEFAULT_LOT = 1;
+    private static final int MAX_BUCKETS = 24 * 366;
+    private static final long INDEX_MASK = (1L << 40) - 1;
+
+    public enum Granularity { HOUR, DAY }
+
+    private final ParkingRecordMapper recordMapper;
+    private final LotTopology topology;
+    private final int chunkSize;
+    private final long catchUpIntervalMs;
+    private final long retentionHours;
+    private final ForkJoinPool pool;
+    private final Path checkpointFile; // 为 null 时不写检查点
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<Long, Bucket> hourly = new ConcurrentHashMap<>();
+    private final Map<Long, Bucket> daily = new ConcurrentHashMap<>();
+    // 停车场 + 楼层 (见 segment) -> 稠密编号，编号放在汇总键的高位
+    private final Map<Long, Integer> segmentIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSegmentId = new AtomicInteger();
+    private volatile Map<Integer, Integer> floorOfSpot = Map.of();
+    private volatile Map<Long, Integer> spotsPerSegment = Map.of();
+    private volatile boolean backfilled;
+    private volatile long lastCatchUp;
+    // 更早的小时汇总已被清理
+    private volatile long oldestHour = Long.MIN_VALUE;
+
+    // 外部写入的记录：ID 不小于 externalFromId。水位线及以下的要么已计入，要么在 openExternal 中等出场；
+    // 水位线以上已由实时累加计入的 ID 记在 countedExternal，补读越过它们时移除。三者都由本对象的锁保护
+    private volatile int externalFromId = Integer.MAX_VALUE;
+    private int watermark;
+    private final Set<Integer> openExternal = new HashSet<>();
+    private final Set<Integer> countedExternal = new HashSet<>();
+
+    // 本服务分配的记录中仍在场的，和上次检查点之后实时计入的；只在写检查点时维护。
+    // 实时累加持读锁，写检查点持写锁，保证检查点里的汇总桶和这两个集合是同一时刻的
+    private final Set<Integer> openLocal = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> countedLocal = ConcurrentHashMap.newKeySet();
+    private final ReentrantReadWriteLock countLock = new ReentrantReadWriteLock();
+    private final AtomicLong changes = new AtomicLong();
+    private long checkpointed = -1;
+
+    public RevenueRollup(ParkingRecordMapper recordMapper, LotTopology topology,
+                         @Value("${parking.analytics.backfill-parallelism:4}") int parallelism,
+                         @Value("${parking.analytics.backfill-chunk:5000}") int chunkSize,
+                         @Value("${parking.analytics.catch-up-interval-ms:60000}") long catchUpIntervalMs,
+                         @Value("${parking.analytics.hourly-retention-days:90}") int retentionDays,
+                         @Value("${parking.snapshot.enabled:true}") boolean checkpointEnabled,
+                         @Value("${parking.snapshot.dir:data/snapshot}") String checkpointDir) {
+        this.recordMapper = recordMapper;
+        this.topology = topology;
+        this.chunkSize = chunkSize;
+        this.catchUpIntervalMs = catchUpIntervalMs;
+        this.retentionHours = retentionDays * 24L;
+        this.pool = new ForkJoinPool(parallelism);
+        this.checkpointFile = checkpointEnabled ? Paths.get(checkpointDir).resolve(RollupCheckpoint.FILE) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 清空汇总并在后台回填 record_id 不超过 maxRecordId、且不在 active 中的已结束记录（只含本节点负责的停车场），
+     * 完成后立即补读一次 ID 不小于 externalFromId 的外部记录。
+     * 有可用检查点时先恢复检查点，只回填检查点之后的记录，并按主键复查检查点时仍在场的记录
+     */
+    public synchronized ForkJoinTask<Void> startBackfill(Collection<ParkingSpot> spots, Collection<ParkingRecord> active,
+                                                         int maxRecordId, int externalFromId) {
+        Map<Integer, Integer> spotFloors = new HashMap<>();
+        Map<Long, Integer> counts = new HashMap<>();
+        Set<Integer> lots = new HashSet<>();
+        hourly.clear();
+        daily.clear();
+        openExternal.clear();
+        countedExternal.clear();
+        openLocal.clear();
+        countedLocal.clear();
+        this.externalFromId = externalFromId;
+        watermark = externalFromId - 1;
+        for (ParkingSpot spot : spots) {
+            int floor = spot.getFloor() == null ? NO_FLOOR : spot.getFloor();
+            spotFloors.put(spot.getSpotId(), floor);
+            long segment = segment(spot.getLotId(), floor);
+            segmentId(segment);
+            counts.merge(segment, 1, Integer::sum);
+            lots.add(spot.getLotId() == null ? DEFAULT_LOT : spot.getLotId());
+        }
+        floorOfSpot = spotFloors;
+        spotsPerSegment = counts;
+        backfilled = false;
+        lastCatchUp = 0;
+
+        Set<Integer> activeIds = new HashSet<>();
+        for (ParkingRecord record : active) {
+            activeIds.add(record.getRecordId());
+            if (checkpointFile != null && record.getRecordId() < externalFromId) {
+                openLocal.add(record.getRecordId());
+            }
+        }
+        RollupCheckpoint checkpoint = checkpointFile == null ? null : RollupCheckpoint.read(checkpointFile);
+        if (checkpoint != null && (checkpoint.externalFromId != externalFromId || !checkpoint.lots.equals(lots)
+                || checkpoint.settledId > maxRecordId)) {
+            log.info("营收汇总检查点与当前停车场或数据库不符，全量回填");
+            checkpoint = null;
+        }
+        int fromId = 0;
+        Set<Integer> skipped = activeIds;
+        Set<Integer> recheck = Set.of();
+        if (checkpoint != null) {
+            restore(checkpoint);
+            fromId = checkpoint.settledId;
+            skipped = new HashSet<>(activeIds);
+            skipped.addAll(checkpoint.countedLocal);
+            recheck = new HashSet<>(checkpoint.openLocal);
+            recheck.removeAll(activeIds);
+        }
+        int backfillFrom = fromId;
+        Set<Integer> skip = skipped;
+        List<Integer> reopened = new ArrayList<>(recheck);
+        long start = System.currentTimeMillis();
+        return pool.submit(() -> {
+            try {
+                Partial partial = new Chunk(backfillFrom, maxRecordId, skip).invoke();
+                // 检查点时仍在场、启动时已出场的记录
+                for (int i = 0; i < reopened.size(); i += chunkSize) {
+                    for (ParkingRecord record : recordMapper.getClosedRecordsByIds(
+                            reopened.subList(i, Math.min(reopened.size(), i + chunkSize)))) {
+                        partial.add(record, this);
+                    }
+                }
+                partial.mergeInto(this);
+                changes.incrementAndGet();
+                backfilled = true;
+                catchUp();
+                log.info("营收统计回填完成: 记录 ID > {} 的 {} 条记录, {} ms",
+                        backfillFrom, partial.records, System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                log.error("营收统计回填失败", e);
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record) {
+        if (record == null) {
+            return;
+        }
+        int recordId = record.getRecordId();
+        if (recordId >= externalFromId) {
+            if (record.getExitTime() != null) {
+                countExternalExit(spot, record);
+            }
+            return;
+        }
+        if (checkpointFile == null) {
+            if (record.getExitTime() != null) {
+                count(spot, record);
+            }
+            return;
+        }
+        countLock.readLock().lock();
+        try {
+            if (record.getExitTime() == null) {
+                openLocal.add(recordId);
+            } else {
+                openLocal.remove(recordId);
+                countedLocal.add(recordId);
+                count(spot, record);
+            }
+        } finally {
+            countLock.readLock().unlock();
+        }
+    }
+
+    // 实时累加外部记录前先登记：水位线以上的记入 countedExternal，水位线及以下的须仍在 openExternal 中
+    private synchronized void countExternalExit(ParkingSpot spot, ParkingRecord record) {
+        int recordId = record.getRecordId();
+        if (recordId > watermark ? countedExternal.add(recordId) : openExternal.remove(recordId)) {
+            count(spot, record);
+        }
+    }
+
+    private void count(ParkingSpot spot, ParkingRecord record) {
+        int floor = spot.getFloor() == null ? NO_FLOOR : spot.getFloor();
+        int segmentId = segmentId(segment(spot.getLotId(), floor));
+        long hour = hourIndex(record.getExitTime());
+        long cents = toCents(record.getPayment());
+        long dwell = dwellMinutes(record);
+        hourly.computeIfAbsent(key(segmentId, hour), k -> new Bucket()).add(1, cents, dwell);
+        daily.computeIfAbsent(key(segmentId, dayOf(hour)), k -> new Bucket()).add(1, cents, dwell);
+        changes.incrementAndGet();
+    }
+
+    /**
+     * 写检查点：settledId 及以下的记录 ID 都已落定（进入占用表并发出通知，或被丢弃），
+     * 由调用方随占用表快照传入。距上次检查点没有新计入的停车时不重写
+     */
+    public synchronized void checkpoint(int settledId) {
+        if (checkpointFile == null || !backfilled) {
+            return;
+        }
+        RollupCheckpoint checkpoint = new RollupCheckpoint();
+        long version;
+        countLock.writeLock().lock();
+        try {
+            version = changes.get();
+            if (version == checkpointed) {
+                return;
+            }
+            Map<Integer, Long> segments = new HashMap<>();
+            segmentIds.forEach((segment, id) -> segments.put(id, segment));
+            hourly.forEach((k, b) -> checkpoint.hourly.add(b.toEntry(segments.get((int) (k >>> 40)), k & INDEX_MASK)));
+            daily.forEach((k, b) -> checkpoint.daily.add(b.toEntry(segments.get((int) (k >>> 40)), k & INDEX_MASK)));
+            for (long segment : spotsPerSegment.keySet()) {
+                checkpoint.lots.add((int) (segment >>> 32));
+            }
+            checkpoint.settledId = settledId;
+            // 大于 settledId 的在场记录恢复时从数据库重读，不记
+            for (int id : openLocal) {
+                if (id <= settledId) {
+                    checkpoint.openLocal.add(id);
+                }
+            }
+            countedLocal.removeIf(id -> id <= settledId);
+            checkpoint.countedLocal.addAll(countedLocal);
+            checkpoint.externalFromId = externalFromId;
+            checkpoint.externalWatermark = watermark;
+            checkpoint.openExternal.addAll(openExternal);
+            checkpoint.countedExternal.addAll(countedExternal);
+        } finally {
+            countLock.writeLock().unlock();
+        }
+        try {
+            checkpoint.write(checkpointFile);
+            checkpointed = version;
+        } catch (IOException e) {
+            log.warn("写营收汇总检查点失败", e);
+        }
+    }
+
+    private void restore(RollupCheckpoint checkpoint) {
+        for (long[] e : checkpoint.hourly) {
+            hourly.computeIfAbsent(key(segmentId(e[0]), e[1]), k -> new Bucket()).add(e[2], e[3], e[4]);
+        }
+        for (long[] e : checkpoint.daily) {
+            daily.computeIfAbsent(key(segmentId(e[0]), e[1]), k -> new Bucket()).add(e[2], e[3], e[4]);
+        }
+        openLocal.addAll(checkpoint.openLocal);
+        countedLocal.addAll(checkpoint.countedLocal);
+        watermark = checkpoint.externalWatermark;
+        openExternal.addAll(checkpoint.openExternal);
+        countedExternal.addAll(checkpoint.countedExternal);
+    }
+
+    /**
+     * 先按主键复查上次仍在场的外部记录，再从水位线之后补读：已出场的计入，仍在场的登记到 openExternal，
+     * 水位线推进到读到的最后一条。同时清理超出保留期的小时汇总
+     */
+    @Scheduled(initialDelayString = "${parking.analytics.catch-up-interval-ms:60000}",
+            fixedDelayString = "${parking.analytics.catch-up-interval-ms:60000}")
+    public synchronized void catchUp() {
+        if (!backfilled) {
+            return;
+        }
+        try {
+            int counted = 0;
+            List<Integer> open = new ArrayList<>(openExternal);
+            for (int i = 0; i < open.size(); i += chunkSize) {
+                List<Integer> ids = open.subList(i, Math.min(open.size(), i + chunkSize));
+                // 先查仍在场的再查已出场的：两次查询之间出场的记录会出现在后者中，不会漏掉
+                Set<Integer> stillOpen = new HashSet<>(recordMapper.getOpenRecordIds(ids));
+                for (ParkingRecord record : recordMapper.getClosedRecordsByIds(ids)) {
+                    openExternal.remove(record.getRecordId());
+                    countExternal(record);
+                    counted++;
+                }
+                // 两次都查不到的记录已被删除，不再等它出场
+                for (Integer id : ids) {
+                    if (!stillOpen.contains(id)) {
+                        openExternal.remove(id);
+                    }
+                }
+            }
+            int last = watermark;
+            for (ParkingRecord record : recordMapper.getRecordsAfter(watermark)) {
+                last = record.getRecordId();
+                if (!topology.ownsLot(record.getLotId())) {
+                    continue;
+                }
+                if (record.getExitTime() == null) {
+                    openExternal.add(last);
+                } else if (!countedExternal.contains(last)) {
+                    countExternal(record);
+                    counted++;
+                }
+            }
+            int next = last;
+            watermark = next;
+            countedExternal.removeIf(id -> id <= next);
+            evictHourly();
+            lastCatchUp = System.currentTimeMillis();
+            if (counted > 0) {
+                log.debug("营收统计补读外部记录 {} 条，水位线 {}", counted, watermark);
+            }
+        } catch (RuntimeException e) {
+            log.warn("营收统计补读外部记录失败，水位线 {}", watermark, e);
+        }
+    }
+
+    private void countExternal(ParkingRecord record) {
+        int floor = floorOfSpot.getOrDefault(record.getSpotId(), NO_FLOOR);
+        int segmentId = segmentId(segment(record.getLotId(), floor));
+        long hour = hourIndex(record.getExitTime());
+        long cents = toCents(record.getPayment());
+        long dwell = dwellMinutes(record);
+        hourly.computeIfAbsent(key(segmentId, hour), k -> new Bucket()).add(1, cents, dwell);
+        daily.computeIfAbsent(key(segmentId, dayOf(hour)), k -> new Bucket()).add(1, cents, dwell);
+        changes.incrementAndGet();
+    }
+
+    private void evictHourly() {
+        if (retentionHours <= 0) {
+            return;
+        }
+        long boundary = hourIndex(new Date()) - retentionHours;
+        hourly.keySet().removeIf(k -> (k & INDEX_MASK) < boundary);
+        oldestHour = boundary;
+    }
+
+    /**
+     * 回填已完成，且最近两个补读周期内补读成功过
+     */
+    public boolean isComplete() {
+        return backfilled && System.currentTimeMillis() - lastCatchUp <= 2 * catchUpIntervalMs;
+    }
+
+    /**
+     * 统计 [from, to) 内出场的停车，按小时或按天分段
+     *
+     * @param floor 为 null 时统计全场
+     */
+    public RevenueReport report(Date from, Date to, Granularity granularity, Integer floor) {
+        return report(from, to, granularity, floor, null);
+    }
+
+    /**
+     * @param lots 只统计这些停车场，为 null 时统计本节点负责的全部停车场
+     */
+    public RevenueReport report(Date from, Date to, Granularity granularity, Integer floor, Collection<Integer> lots) {
+        long first = hourIndex(from);
+        long last = hourIndex(new Date(to.getTime() - 1));
+        Map<Long, Bucket> source = granularity == Granularity.HOUR ? hourly : daily;
+        if (granularity == Granularity.DAY) {
+            first = dayOf(first);
+            last = dayOf(last);
+        }
+        if (last < first || last - first >= MAX_BUCKETS) {
+            throw new IllegalArgumentException("统计区间为空或过长");
+        }
+        List<Integer> selected = new ArrayList<>();
+        Set<Integer> selectedLots = new TreeSet<>();
+        Map<Long, Integer> spotCounts = spotsPerSegment;
+        int spotCount = 0;
+        for (Map.Entry<Long, Integer> e : segmentIds.entrySet()) {
+            int lot = (int) (e.getKey() >>> 32);
+            if ((floor == null || floor == (int) (long) e.getKey()) && (lots == null || lots.contains(lot))) {
+                selected.add(e.getValue());
+                selectedLots.add(lot);
+                spotCount += spotCounts.getOrDefault(e.getKey(), 0);
+            }
+        }
+
+        List<RevenueBucket> buckets = new ArrayList<>();
+        long sessions = 0, cents = 0, dwell = 0;
+        for (long index = first; index <= last; index++) {
+            long s = 0, c = 0, d = 0;
+            for (Integer segmentId : selected) {
+                Bucket bucket = source.get(key(segmentId, index));
+                if (bucket != null) {
+                    s += bucket.sessions.sum();
+                    c += bucket.revenueCents.sum();
+                    d += bucket.dwellMinutes.sum();
+                }
+            }
+            buckets.add(toBucket(startOf(index, granularity), s, c, d, spotCount));
+            sessions += s;
+            cents += c;
+            dwell += d;
+        }
+        RevenueReport report = new RevenueReport();
+        report.setFloor(floor);
+        report.setLots(new ArrayList<>(selectedLots));
+        report.setSpotCount(spotCount);
+        report.setGranularity(granularity.name());
+        // 按小时统计时，超出保留期的时段已被清理
+        report.setComplete(isComplete() && (granularity == Granularity.DAY || first >= oldestHour));
+        report.setTotal(toBucket(startOf(first, granularity), sessions, cents, dwell, spotCount));
+        report.setBuckets(buckets);
+        return report;
+    }
+
+    private long hourIndex(Date time) {
+        LocalDateTime local = LocalDateTime.ofInstant(time.toInstant(), zone).truncatedTo(ChronoUnit.HOURS);
+        return local.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static long dayOf(long hourIndex) {
+        return Math.floorDiv(hourIndex, 24);
+    }
+
+    private Date startOf(long index, Granularity granularity) {
+        long hours = granularity == Granularity.HOUR ? index : index * 24;
+        LocalDateTime local = LocalDateTime.ofEpochSecond(hours * 3600, 0, ZoneOffset.UTC);
+        return Date.from(local.atZone(zone).toInstant());
+    }
+
+    private static RevenueBucket toBucket(Date start, long sessions, long cents, long dwell, int spotCount) {
+        RevenueBucket bucket = new RevenueBucket();
+        bucket.setStart(start);
+        bucket.setSessions(sessions);
+        bucket.setRevenue(BigDecimal.valueOf(cents, 2));
+        bucket.setAvgDwellMinutes(sessions == 0 ? 0 : (double) dwell / sessions);
+        bucket.setTurnover(spotCount == 0 ? 0 : (double) sessions / spotCount);
+        return bucket;
+    }
+
+    // 停车场放高 32 位、楼层放低 32 位
+    private static long segment(Integer lotId, int floor) {
+        return ((long) (lotId == null ? DEFAULT_LOT : lotId) << 32) | (floor & 0xFFFFFFFFL);
+    }
+
+    private int segmentId(long segment) {
+        return segmentIds.computeIfAbsent(segment, k -> nextSegmentId.getAndIncrement());
+    }
+
+    // 分段编号放高位、时段序号放低 40 位拼成一个 long 键
+    private static long key(int segmentId, long index) {
+        return segmentId * (1L << 40) + index;
+    }
+
+    private static long toCents(BigDecimal payment) {
+        return payment == null ? 0 : payment.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static long dwellMinutes(ParkingRecord record) {
+        return record.getEntryTime() == null ? 0
+                : Math.max(0, (record.getExitTime().getTime() - record.getEntryTime().getTime()) / 60000);
+    }
+
+    private static final class Bucket {
+        final LongAdder sessions = new LongAdder();
+        final LongAdder revenueCents = new LongAdder();
+        final LongAdder dwellMinutes = new LongAdder();
+
+        void add(long count, long cents, long dwell) {
+            sessions.add(count);
+            revenueCents.add(cents);
+            dwellMinutes.add(dwell);
+        }
+
+        long[] toEntry(long segment, long index) {
+            return new long[]{segment, index, sessions.sum(), revenueCents.sum(), dwellMinutes.sum()};
+        }
+    }
+
+    /**
+     * 回填的局部汇总：每个叶子任务各自累加，合并时才写入共享的汇总表
+     */
+    private static final class Partial {
+        final Map<Long, long[]> hourly = new HashMap<>();
+        final Map<Long, long[]> daily = new HashMap<>();
+        long records;
+
+        void add(long key, long dayKey, long cents, long dwell) {
+            accumulate(hourly, key, 1, cents, dwell);
+            accumulate(daily, dayKey, 1, cents, dwell);
+            records++;
+        }
+
+        void add(ParkingRecord record, RevenueRollup rollup) {
+            if (!rollup.topology.ownsLot(record.getLotId())) {
+                return;
+            }
+            int floor = rollup.floorOfSpot.getOrDefault(record.getSpotId(), NO_FLOOR);
+            int segmentId = rollup.segmentId(segment(record.getLotId(), floor));
+            long hour = rollup.hourIndex(record.getExitTime());
+            add(key(segmentId, hour), key(segmentId, dayOf(hour)), toCents(record.getPayment()), dwellMinutes(record));
+        }
+
+        Partial merge(Partial other) {
+            Partial big = hourly.size() >= other.hourly.size() ? this : other;
+            Partial small = big == this ? other : this;
+            small.hourly.forEach((k, v) -> accumulate(big.hourly, k, v[0], v[1], v[2]));
+            small.daily.forEach((k, v) -> accumulate(big.daily, k, v[0], v[1], v[2]));
+            big.records += small.records;
+            return big;
+        }
+
+        void mergeInto(RevenueRollup rollup) {
+            hourly.forEach((k, v) -> rollup.hourly.computeIfAbsent(k, x -> new Bucket()).add(v[0], v[1], v[2]));
+            daily.forEach((k, v) -> rollup.daily.computeIfAbsent(k, x -> new Bucket()).add(v[0], v[1], v[2]));
+        }
+
+        private static void accumulate(Map<Long, long[]> map, long key, long count, long cents, long dwell) {
+            long[] v = map.computeIfAbsent(key, k -> new long[3]);
+            v[0] += count;
+            v[1] += cents;
+            v[2] += dwell;
+        }
+    }
+
+    // 主键区间 (fromId, toId]：超过 chunkSize 就对半拆分并行处理。只在本进程的 fork-join 池中执行，不会被序列化
+    @SuppressWarnings("serial")
+    private final class Chunk extends RecursiveTask<Partial> {
+        private final int fromId;
+        private final int toId;
+        private final Set<Integer> skipped;
+
+        Chunk(int fromId, int toId, Set<Integer> skipped) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.skipped = skipped;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (toId - fromId > chunkSize) {
+                int mid = fromId + (toId - fromId) / 2;
+                Chunk left = new Chunk(fromId, mid, skipped);
+                left.fork();
+                Partial right = new Chunk(mid, toId, skipped).compute();
+                return right.merge(left.join());
+            }
+            Partial partial = new Partial();
+            if (toId <= fromId) {
+                return partial;
+            }
+            for (ParkingRecord record : recordMapper.getClosedRecordsInRange(fromId, toId)) {
+                if (!skipped.contains(record.getRecordId())) {
+                    partial.add(record, RevenueRollup.this);
+                }
+            }
+            return partial;
+        }
+    }
+}
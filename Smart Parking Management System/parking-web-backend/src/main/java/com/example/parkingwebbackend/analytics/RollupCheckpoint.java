@@ -0,0 +1,158 @@
+package com.example.parkingwebbackend.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 营收汇总的检查点：汇总桶和“哪些记录已计入”的边界一起写入快照目录，启动时据此恢复，
+ * 只回填检查点之后的记录，不必每次重扫全部历史 parking_records。
+ * <p>
+ * 整个文件先写临时文件再原子替换，文件头带 CRC32；读取失败或内容不符时返回 null，调用方退回全量回填。
+ */
+final class RollupCheckpoint {
+    private static final Logger log = LoggerFactory.getLogger(RollupCheckpoint.class);
+    private static final int MAGIC = 0x5052564E; // "PRVN"
+    private static final int VERSION = 1;
+    // magic(4) version(4) length(4) crc(4)
+    private static final int HEADER_BYTES = 16;
+    static final String FILE = "revenue-rollup.snap";
+
+    // 本节点负责的停车场，变了说明汇总范围变了，检查点作废
+    Set<Integer> lots = new HashSet<>();
+    // 本服务分配的记录：不大于 settledId 且不在 openLocal 中的都已计入（或从未落库），
+    // 大于 settledId 的只有 countedLocal 中的已计入
+    int settledId;
+    Set<Integer> openLocal = new HashSet<>();
+    Set<Integer> countedLocal = new HashSet<>();
+    // 外部写入的记录：含义同 RevenueRollup 中的同名字段
+    int externalFromId;
+    int externalWatermark;
+    Set<Integer> openExternal = new HashSet<>();
+    Set<Integer> countedExternal = new HashSet<>();
+    // 每项为 停车场+楼层 (segment)、时段序号、车次、营收(分)、停留分钟
+    List<long[]> hourly = new ArrayList<>();
+    List<long[]> daily = new ArrayList<>();
+
+    static RollupCheckpoint read(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                return null;
+            }
+            int length = buf.getInt(8);
+            if (length < 0 || length != buf.capacity() - HEADER_BYTES) {
+                log.warn("营收汇总检查点 {} 长度不符，忽略", file);
+                return null;
+            }
+            byte[] body = new byte[length];
+            buf.get(HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buf.getInt(12)) {
+                log.warn("营收汇总检查点 {} 校验失败，忽略", file);
+                return null;
+            }
+            return decode(body);
+        } catch (IOException e) {
+            log.warn("读取营收汇总检查点 {} 失败", file, e);
+            return null;
+        }
+    }
+
+    void write(Path file) throws IOException {
+        byte[] body = encode();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(body.length).putInt((int) crc.getValue()).put(body);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, buf.array());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (hourly.size() + daily.size()) * 40);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeIds(out, lots);
+        out.writeInt(settledId);
+        writeIds(out, openLocal);
+        writeIds(out, countedLocal);
+        out.writeInt(externalFromId);
+        out.writeInt(externalWatermark);
+        writeIds(out, openExternal);
+        writeIds(out, countedExternal);
+        writeBuckets(out, hourly);
+        writeBuckets(out, daily);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static RollupCheckpoint decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        RollupCheckpoint checkpoint = new RollupCheckpoint();
+        checkpoint.lots = readIds(in);
+        checkpoint.settledId = in.readInt();
+        checkpoint.openLocal = readIds(in);
+        checkpoint.countedLocal = readIds(in);
+        checkpoint.externalFromId = in.readInt();
+        checkpoint.externalWatermark = in.readInt();
+        checkpoint.openExternal = readIds(in);
+        checkpoint.countedExternal = readIds(in);
+        checkpoint.hourly = readBuckets(in);
+        checkpoint.daily = readBuckets(in);
+        return checkpoint;
+    }
+
+    private static void writeIds(DataOutputStream out, Set<Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static Set<Integer> readIds(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        Set<Integer> ids = new HashSet<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ids.add(in.readInt());
+        }
+        return ids;
+    }
+
+    private static void writeBuckets(DataOutputStream out, List<long[]> buckets) throws IOException {
+        out.writeInt(buckets.size());
+        for (long[] b : buckets) {
+            for (long v : b) {
+                out.writeLong(v);
+            }
+        }
+    }
+
+    private static List<long[]> readBuckets(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<long[]> buckets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            buckets.add(new long[]{in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong()});
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.parkingwebbackend.auth;
+
+import com.example.parkingwebbackend.model.AdminSession;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 校验请求头 Authorization: Bearer &lt;token&gt;，只验签名和过期时间，不查库。
+ * 通过后会话放在请求属性 {@link #SESSION_ATTRIBUTE} 中。
+ */
+public class AuthInterceptor implements HandlerInterceptor {
+    public static final String SESSION_ATTRIBUTE = "parking.adminSession";
+    private static final String BEARER = "Bearer ";
+
+    private final AuthService authService;
+
+    public AuthInterceptor(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        AdminSession session = authService.validate(bearer(request.getHeader(HttpHeaders.AUTHORIZATION)));
+        if (session == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        request.setAttribute(SESSION_ATTRIBUTE, session);
+        return true;
+    }
+
+    public static String bearer(String authorization) {
+        return authorization != null && authorization.startsWith(BEARER)
+                ? authorization.substring(BEARER.length()).trim() : null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.parkingwebbackend.auth;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.metrics.ParkingMetrics;
+import com.example.parkingwebbackend.model.AdminSession;
+import com.example.parkingwebbackend.model.AdminUser;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 管理员登录：限流 -> 查账号（走 {@link ReferenceDataCache}）-> 在专用线程池中校验慢摘要 -> 签发令牌。
+ * <p>
+ * 摘要计算放在有界线程池中，不占用请求线程；线程和队列都满时直接返回 BUSY。
+ * 账号不存在时也计算一次摘要，响应时间不暴露用户名是否存在。历史明文密码校验通过后就地升级为摘要。
+ */
+@Component
+public class AuthService {
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
+    public enum Status { OK, INVALID, LIMITED, BUSY }
+
+    private final ReferenceDataCache referenceDataCache;
+    private final PasswordHasher hasher;
+    private final SessionTokens tokens;
+    private final LoginLimiter limiter;
+    private final ParkingMetrics metrics;
+    private final ThreadPoolExecutor executor;
+    private final String dummyHash;
+
+    public AuthService(ReferenceDataCache referenceDataCache, PasswordHasher hasher, SessionTokens tokens,
+                       LoginLimiter limiter, ParkingMetrics metrics,
+                       @Value("${parking.auth.hash-threads:2}") int hashThreads,
+                       @Value("${parking.auth.hash-queue:64}") int hashQueue) {
+        this.referenceDataCache = referenceDataCache;
+        this.hasher = hasher;
+        this.tokens = tokens;
+        this.limiter = limiter;
+        this.metrics = metrics;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hashThreads, hashThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hashQueue), r -> {
+                    Thread t = new Thread(r, "parking-auth-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = hasher.hash("dummy");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public CompletableFuture<Result> login(String username, String password, String ip) {
+        if (username == null || username.isBlank() || password == null) {
+            return CompletableFuture.completedFuture(new Result(Status.INVALID, null));
+        }
+        if (!limiter.tryAcquire(username, ip)) {
+            metrics.conflict("login");
+            return CompletableFuture.completedFuture(new Result(Status.LIMITED, null));
+        }
+        Timer.Sample sample = metrics.start();
+        try {
+            return CompletableFuture.supplyAsync(() -> authenticate(username, password, ip), executor)
+                    .whenComplete((result, e) -> metrics.stop(sample, "login", result != null && result.status == Status.OK));
+        } catch (RejectedExecutionException e) {
+            metrics.stop(sample, "login", false);
+            return CompletableFuture.completedFuture(new Result(Status.BUSY, null));
+        }
+    }
+
+    /**
+     * 校验令牌，不查库
+     */
+    public AdminSession validate(String token) {
+        return tokens.verify(token);
+    }
+
+    private Result authenticate(String username, String password, String ip) {
+        AdminUser user = referenceDataCache.getUserByUsername(username);
+        if (user == null) {
+            hasher.verify(password, dummyHash);
+            return new Result(Status.INVALID, null);
+        }
+        if (!hasher.verify(password, user.getPassword())) {
+            return new Result(Status.INVALID, null);
+        }
+        limiter.succeeded(username, ip);
+        if (hasher.needsRehash(user.getPassword())) {
+            user.setPassword(hasher.hash(password));
+            try {
+                referenceDataCache.updateUser(user);
+            } catch (RuntimeException e) {
+                log.warn("升级密码摘要失败: {}", username, e);
+            }
+        }
+        return new Result(Status.OK, tokens.issue(user.getUserId(), user.getUsername()));
+    }
+
+    public static final class Result {
+        private final Status status;
+        private final AdminSession session;
+
+        Result(Status status, AdminSession session) {
+            this.status = status;
+            this.session = session;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public AdminSession getSession() {
+            return session;
+        }
+    }
+}
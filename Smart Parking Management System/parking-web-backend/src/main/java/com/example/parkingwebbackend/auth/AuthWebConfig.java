@@ -0,0 +1,32 @@
+package com.example.parkingwebbackend.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * parking.auth.enforce=true 时，protected-paths 下的接口要求登录令牌；
+ * 默认关闭，现有的闸口终端和大屏不需要改动
+ */
+@Configuration
+public class AuthWebConfig implements WebMvcConfigurer {
+    private final AuthService authService;
+    private final boolean enforce;
+    private final String[] protectedPaths;
+
+    public AuthWebConfig(AuthService authService,
+                         @Value("${parking.auth.enforce:false}") boolean enforce,
+                         @Value("${parking.auth.protected-paths:/api/analytics/**,/api/records/**,/api/cluster/revenue,/api/fee-rules/**}") String[] protectedPaths) {
+        this.authService = authService;
+        this.enforce = enforce;
+        this.protectedPaths = protectedPaths;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enforce) {
+            registry.addInterceptor(new AuthInterceptor(authService)).addPathPatterns(protectedPaths);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.parkingwebbackend.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登录尝试限流：同一 用户名+IP 和同一 IP 在窗口内的尝试次数各有上限。
+ * <p>
+ * 在计算摘要、查账号之前判断，撞库式的突发请求直接被拒绝，不会占满摘要线程和数据库连接。
+ * 窗口从该键第一次尝试开始计算。登录成功清零该 用户名+IP 的计数，并从该 IP 的计数中扣掉这些次数，
+ * 同一出口 IP 后面的多个管理员不会因为彼此输错密码被一起挡住。按 IP 而不单按用户名计数，
+ * 避免别人远程把管理员账号锁住。
+ */
+@Component
+public class LoginLimiter {
+    private final Cache<String, AtomicInteger> attempts;
+    private final int maxPerUser;
+    private final int maxPerIp;
+
+    public LoginLimiter(@Value("${parking.auth.max-attempts-per-user:5}") int maxPerUser,
+                        @Value("${parking.auth.max-attempts-per-ip:20}") int maxPerIp,
+                        @Value("${parking.auth.attempt-window-seconds:300}") long windowSeconds) {
+        this.maxPerUser = maxPerUser;
+        this.maxPerIp = maxPerIp;
+        this.attempts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * 登记一次尝试，超过任一上限返回 false
+     */
+    public boolean tryAcquire(String username, String ip) {
+        boolean ipOk = count("ip|" + ip) <= maxPerIp;
+        boolean userOk = count(userKey(username, ip)) <= maxPerUser;
+        return ipOk && userOk;
+    }
+
+    public void succeeded(String username, String ip) {
+        AtomicInteger userCount = attempts.asMap().remove(userKey(username, ip));
+        AtomicInteger ipCount = attempts.getIfPresent("ip|" + ip);
+        if (userCount != null && ipCount != null) {
+            int n = userCount.get();
+            ipCount.updateAndGet(c -> Math.max(0, c - n));
+        }
+    }
+
+    private int count(String key) {
+        return attempts.get(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static String userKey(String username, String ip) {
+        return "user|" + username + "|" + ip;
+    }
+}
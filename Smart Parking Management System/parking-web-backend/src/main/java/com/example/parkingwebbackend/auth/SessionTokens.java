@@ -0,0 +1,114 @@
+package com.example.parkingwebbackend.auth;
+
+import com.example.parkingwebbackend.model.AdminSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 无状态会话令牌：Base64url(userId:过期时间:用户名) + "." + HMAC-SHA256 签名。
+ * <p>
+ * 校验只做一次 HMAC 和过期检查，不查库、不占连接。只有 dev / test 配置下允许不配 token-secret，
+ * 此时每次启动随机生成密钥，重启后旧令牌全部失效；其他环境未配置时启动失败。多实例部署需配置同一个密钥。令牌在过期前无法单独吊销，ttl 不宜过长。
+ */
+@Component
+public class SessionTokens {
+    private static final Logger log = LoggerFactory.getLogger(SessionTokens.class);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMillis;
+    private final ThreadLocal<Mac> macs;
+
+    public SessionTokens(@Value("${parking.auth.token-secret:}") String secret,
+                         @Value("${parking.auth.token-ttl-minutes:480}") long ttlMinutes,
+                         Environment environment) {
+        byte[] keyBytes;
+        if (secret.isEmpty()) {
+            if (!environment.acceptsProfiles(Profiles.of("dev | test"))) {
+                throw new IllegalStateException("未配置 parking.auth.token-secret；只有 dev / test 配置下允许使用随机密钥");
+            }
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("未配置 parking.auth.token-secret，使用随机密钥，重启后需重新登录");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public AdminSession issue(Integer userId, String username) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        String payload = ENCODER.encodeToString((userId + ":" + expiresAt + ":" + username).getBytes(StandardCharsets.UTF_8));
+        AdminSession session = new AdminSession();
+        session.setUserId(userId);
+        session.setUsername(username);
+        session.setExpiresAt(new Date(expiresAt));
+        session.setToken(payload + "." + ENCODER.encodeToString(sign(payload)));
+        return session;
+    }
+
+    /**
+     * 校验令牌，签名不对、格式错误或已过期都返回 null
+     */
+    public AdminSession verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":", 3);
+            if (fields.length != 3) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(fields[1]);
+            if (expiresAt <= System.currentTimeMillis()) {
+                return null;
+            }
+            AdminSession session = new AdminSession();
+            session.setUserId(Integer.valueOf(fields[0]));
+            session.setUsername(fields[2]);
+            session.setExpiresAt(new Date(expiresAt));
+            session.setToken(token);
+            return session;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 不可用", e);
+        }
+    }
+}
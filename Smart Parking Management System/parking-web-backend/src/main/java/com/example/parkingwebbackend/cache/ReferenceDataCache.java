@@ -0,0 +1,162 @@
+package com.example.parkingwebbackend.cache;
+
+import com.example.parkingwebbackend.mapper.AdminUserMapper;
+import com.example.parkingwebbackend.mapper.FeeRuleMapper;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.model.AdminUser;
+import com.example.parkingwebbackend.model.FeeRule;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 车位、收费规则、管理员账号这几类很少变化的数据的读穿透缓存。
+ * <p>
+ * 读取先查缓存，未命中才查库；条目数超过上限按 LRU 近似淘汰，写入后超过 ttl 过期。
+ * 收费规则和管理员账号的写操作都应经过本类，写库成功后立即失效对应条目；车位由部署时初始化，
+ * 后端只写车位状态，写库后通过 {@link #invalidateSpots} 失效。查不到的数据不缓存。
+ * 返回的都是副本，调用方修改不会影响缓存。命中率等统计见 /parking/actuator/metrics/cache.gets。
+ */
+@Component
+public class ReferenceDataCache {
+    private static final String LATEST_RULE = "latest";
+
+    private final FeeRuleMapper feeRuleMapper;
+    private final AdminUserMapper adminUserMapper;
+
+    private final LoadingCache<Integer, ParkingSpot> spots;
+    private final LoadingCache<String, FeeRule> rules;
+    private final LoadingCache<String, AdminUser> users;
+
+    public ReferenceDataCache(ParkingSpotMapper spotMapper, FeeRuleMapper feeRuleMapper,
+                              AdminUserMapper adminUserMapper, MeterRegistry registry,
+                              @Value("${parking.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${parking.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.feeRuleMapper = feeRuleMapper;
+        this.adminUserMapper = adminUserMapper;
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.spots = newCache(maximumSize, ttl).build(spotMapper::getSpotById);
+        this.rules = newCache(maximumSize, ttl).build(key -> feeRuleMapper.getLatestRule());
+        this.users = newCache(maximumSize, ttl).build(adminUserMapper::getUserByUsername);
+        CaffeineCacheMetrics.monitor(registry, spots, "spots");
+        CaffeineCacheMetrics.monitor(registry, rules, "fee_rules");
+        CaffeineCacheMetrics.monitor(registry, users, "admin_users");
+    }
+
+    public ParkingSpot getSpotById(Integer spotId) {
+        return spotId == null ? null : copyOf(spots.get(spotId));
+    }
+
+    public FeeRule getLatestRule() {
+        return copyOf(rules.get(LATEST_RULE));
+    }
+
+    public AdminUser getUserByUsername(String username) {
+        return username == null ? null : copyOf(users.get(username));
+    }
+
+    /**
+     * 车位状态由别处（write-behind）写库后调用，使缓存中的状态不落后于数据库
+     */
+    public void invalidateSpots(Collection<Integer> spotIds) {
+        spots.invalidateAll(spotIds);
+    }
+
+    /**
+     * 计费引擎从库里重新加载规则后调用，使缓存中的规则和实际计费用的一致
+     */
+    public void invalidateRules() {
+        rules.invalidateAll();
+    }
+
+    public int insertRule(FeeRule rule) {
+        int rows = feeRuleMapper.insertRule(rule);
+        rules.invalidateAll();
+        return rows;
+    }
+
+    public int updateRule(FeeRule rule) {
+        int rows = feeRuleMapper.updateRule(rule);
+        rules.invalidateAll();
+        return rows;
+    }
+
+    public int insertUser(AdminUser user) {
+        int rows = adminUserMapper.insertUser(user);
+        users.invalidate(user.getUsername());
+        return rows;
+    }
+
+    // updateUser / deleteUser 按 user_id 修改，不知道对应的用户名，整体失效（账号数量很少）
+    public int updateUser(AdminUser user) {
+        int rows = adminUserMapper.updateUser(user);
+        users.invalidateAll();
+        return rows;
+    }
+
+    public int deleteUser(Integer userId) {
+        int rows = adminUserMapper.deleteUser(userId);
+        users.invalidateAll();
+        return rows;
+    }
+
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("spots", spots.stats());
+        stats.put("fee_rules", rules.stats());
+        stats.put("admin_users", users.stats());
+        return stats;
+    }
+
+    private static Caffeine<Object, Object> newCache(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats();
+    }
+
+    private static ParkingSpot copyOf(ParkingSpot spot) {
+        if (spot == null) {
+            return null;
+        }
+        ParkingSpot copy = new ParkingSpot();
+        copy.setSpotId(spot.getSpotId());
+        copy.setSpotNumber(spot.getSpotNumber());
+        copy.setStatus(spot.getStatus());
+        copy.setFloor(spot.getFloor());
+        copy.setLotId(spot.getLotId());
+        copy.setZoneId(spot.getZoneId());
+        return copy;
+    }
+
+    private static FeeRule copyOf(FeeRule rule) {
+        if (rule == null) {
+            return null;
+        }
+        FeeRule copy = new FeeRule();
+        copy.setRuleId(rule.getRuleId());
+        copy.setBasePrice(rule.getBasePrice());
+        copy.setFreeMinutes(rule.getFreeMinutes());
+        copy.setDailyCap(rule.getDailyCap());
+        return copy;
+    }
+
+    private static AdminUser copyOf(AdminUser user) {
+        if (user == null) {
+            return null;
+        }
+        AdminUser copy = new AdminUser();
+        copy.setUserId(user.getUserId());
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setRealName(user.getRealName());
+        return copy;
+    }
+}
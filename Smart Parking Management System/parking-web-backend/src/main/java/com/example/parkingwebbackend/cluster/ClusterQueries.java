@@ -0,0 +1,180 @@
+package com.example.parkingwebbackend.cluster;
+
+import com.example.parkingwebbackend.analytics.RevenueRollup;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.model.Availability;
+import com.example.parkingwebbackend.model.ClusterAvailability;
+import com.example.parkingwebbackend.model.RevenueBucket;
+import com.example.parkingwebbackend.model.RevenueReport;
+import com.example.parkingwebbackend.service.AvailabilityCounters;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * 跨停车场的汇总查询：按负责节点给停车场分组，先并行发出远程请求，再算本地部分，最后合并。
+ * <p>
+ * 某个节点超时或出错时只缺它那几个场：空余车位列在 unavailableLots 里，营收报表标为不完整，
+ * 整体查询不会因为一个节点失败而失败。
+ */
+@Component
+public class ClusterQueries {
+    private static final Logger log = LoggerFactory.getLogger(ClusterQueries.class);
+    private static final TypeReference<List<Availability>> AVAILABILITY_LIST = new TypeReference<>() {};
+    private static final TypeReference<RevenueReport> REPORT = new TypeReference<>() {};
+    // 与 @DateTimeFormat(iso = DATE_TIME) 解析的格式一致，毫秒不能省略
+    private static final DateTimeFormatter ISO_MILLIS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+
+    private final LotTopology topology;
+    private final LotRouter router;
+    private final ParkingSpotMapper spotMapper;
+    private final AvailabilityCounters counters;
+    private final RevenueRollup revenueRollup;
+
+    public ClusterQueries(LotTopology topology, LotRouter router, ParkingSpotMapper spotMapper,
+                          AvailabilityCounters counters, RevenueRollup revenueRollup) {
+        this.topology = topology;
+        this.router = router;
+        this.spotMapper = spotMapper;
+        this.counters = counters;
+        this.revenueRollup = revenueRollup;
+    }
+
+    /**
+     * @param lots 为 null 时查询全部停车场
+     */
+    public ClusterAvailability availability(Collection<Integer> lots) {
+        Map<String, List<Integer>> byOwner = groupByOwner(lots);
+        Map<String, CompletableFuture<ResponseEntity<List<Availability>>>> remote = new TreeMap<>();
+        byOwner.forEach((node, ids) -> {
+            if (!node.equals(topology.getNodeId())) {
+                remote.put(node, router.send(node, "GET", "/api/availability/lots?lots=" + join(ids), null, null, AVAILABILITY_LIST));
+            }
+        });
+
+        List<Availability> merged = new ArrayList<>();
+        List<Integer> unavailable = new ArrayList<>();
+        List<Integer> local = byOwner.get(topology.getNodeId());
+        if (local != null) {
+            merged.addAll(counters.getLots(local));
+        }
+        remote.forEach((node, future) -> {
+            List<Availability> body = await(node, future);
+            if (body == null) {
+                unavailable.addAll(byOwner.get(node));
+            } else {
+                merged.addAll(body);
+            }
+        });
+        merged.sort((a, b) -> Integer.compare(a.getLotId(), b.getLotId()));
+
+        Availability total = new Availability();
+        for (Availability lot : merged) {
+            total.setFree(total.getFree() + lot.getFree());
+            total.setOccupied(total.getOccupied() + lot.getOccupied());
+            total.setReserved(total.getReserved() + lot.getReserved());
+        }
+        ClusterAvailability result = new ClusterAvailability();
+        result.setLots(merged);
+        result.setTotal(total);
+        result.setUnavailableLots(unavailable);
+        return result;
+    }
+
+    /**
+     * 合并各节点的营收报表；各节点的时段划分相同，按位置逐段相加
+     *
+     * @param lots          为 null 时统计全部停车场
+     * @param authorization 原请求的 Authorization 头，转给其他节点
+     * @throws IllegalArgumentException 统计区间为空或过长
+     */
+    public RevenueReport revenue(Date from, Date to, RevenueRollup.Granularity granularity, Integer floor,
+                                 Collection<Integer> lots, String authorization) {
+        Map<String, List<Integer>> byOwner = groupByOwner(lots);
+        Map<String, CompletableFuture<ResponseEntity<RevenueReport>>> remote = new TreeMap<>();
+        byOwner.forEach((node, ids) -> {
+            if (!node.equals(topology.getNodeId())) {
+                String query = "/api/analytics/revenue?from=" + ISO_MILLIS.format(from.toInstant())
+                        + "&to=" + ISO_MILLIS.format(to.toInstant())
+                        + "&granularity=" + granularity + (floor == null ? "" : "&floor=" + floor) + "&lots=" + join(ids);
+                remote.put(node, router.send(node, "GET", query, null, authorization, REPORT));
+            }
+        });
+
+        List<Integer> local = byOwner.getOrDefault(topology.getNodeId(), List.of());
+        // 本地没有要统计的场时也算一遍空报表，用来校验区间并得到时段划分
+        RevenueReport merged = revenueRollup.report(from, to, granularity, floor, local);
+        TreeSet<Integer> mergedLots = new TreeSet<>(merged.getLots());
+        for (Map.Entry<String, CompletableFuture<ResponseEntity<RevenueReport>>> e : remote.entrySet()) {
+            RevenueReport report = await(e.getKey(), e.getValue());
+            if (report == null || report.getBuckets().size() != merged.getBuckets().size()) {
+                merged.setComplete(false);
+                continue;
+            }
+            merged.setComplete(merged.isComplete() && report.isComplete());
+            merged.setSpotCount(merged.getSpotCount() + report.getSpotCount());
+            mergedLots.addAll(report.getLots());
+            for (int i = 0; i < merged.getBuckets().size(); i++) {
+                add(merged.getBuckets().get(i), report.getBuckets().get(i));
+            }
+            add(merged.getTotal(), report.getTotal());
+        }
+        merged.setLots(new ArrayList<>(mergedLots));
+        merged.getBuckets().forEach(bucket -> setTurnover(bucket, merged.getSpotCount()));
+        setTurnover(merged.getTotal(), merged.getSpotCount());
+        return merged;
+    }
+
+    private Map<String, List<Integer>> groupByOwner(Collection<Integer> lots) {
+        Collection<Integer> ids = lots != null ? lots : spotMapper.getLotIds();
+        return new TreeSet<>(ids).stream()
+                .collect(Collectors.groupingBy(topology::ownerOf, TreeMap::new, Collectors.toList()));
+    }
+
+    // 远程节点失败或返回非 2xx 时返回 null，由调用方按缺失处理
+    private static <T> T await(String node, CompletableFuture<ResponseEntity<T>> future) {
+        try {
+            ResponseEntity<T> response = future.join();
+            if (response.getStatusCode().is2xxSuccessful()) {
+                return response.getBody();
+            }
+            log.warn("节点 {} 返回 {}", node, response.getStatusCode());
+        } catch (RuntimeException e) {
+            log.warn("节点 {} 查询失败: {}", node, e.getMessage());
+        }
+        return null;
+    }
+
+    // 平均停留时长按车次加权合并；周转率等车位数合并完后再算
+    private static void add(RevenueBucket into, RevenueBucket other) {
+        long sessions = into.getSessions() + other.getSessions();
+        double dwell = into.getAvgDwellMinutes() * into.getSessions() + other.getAvgDwellMinutes() * other.getSessions();
+        into.setSessions(sessions);
+        into.setRevenue(into.getRevenue().add(other.getRevenue() == null ? BigDecimal.ZERO : other.getRevenue()));
+        into.setAvgDwellMinutes(sessions == 0 ? 0 : dwell / sessions);
+    }
+
+    private static void setTurnover(RevenueBucket bucket, int spotCount) {
+        bucket.setTurnover(spotCount == 0 ? 0 : (double) bucket.getSessions() / spotCount);
+    }
+
+    private static String join(Collection<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.parkingwebbackend.cluster;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 把请求转发给负责该停车场的节点。
+ * <p>
+ * 转发的请求带上 {@link #FORWARDED_HEADER}，收到这类请求的节点一律本地处理、不再转发，
+ * 即使各节点的分区配置短暂不一致也不会来回转发。转发是异步的，扇出查询可以同时等待多个节点。
+ */
+@Component
+public class LotRouter {
+    public static final String FORWARDED_HEADER = "X-Parking-Forwarded-By";
+    private static final int DEFAULT_LOT = 1;
+
+    private final LotTopology topology;
+    private final ReferenceDataCache referenceDataCache;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public LotRouter(LotTopology topology, ReferenceDataCache referenceDataCache, ObjectMapper objectMapper,
+                     @Value("${parking.cluster.timeout-ms:3000}") long timeoutMs) {
+        this.topology = topology;
+        this.referenceDataCache = referenceDataCache;
+        this.objectMapper = objectMapper;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * 车位所在的停车场，车位不存在时返回 null
+     */
+    public Integer lotOfSpot(Integer spotId) {
+        ParkingSpot spot = referenceDataCache.getSpotById(spotId);
+        if (spot == null) {
+            return null;
+        }
+        return spot.getLotId() == null ? DEFAULT_LOT : spot.getLotId();
+    }
+
+    /**
+     * 负责该停车场的其他节点；应由本节点处理（单机模式、本节点负责、停车场未知或请求已被转发过）时返回 null
+     */
+    public String remoteOwner(Integer lotId, String forwardedBy) {
+        if (!topology.isClustered() || lotId == null || forwardedBy != null) {
+            return null;
+        }
+        String owner = topology.ownerOf(lotId);
+        return owner.equals(topology.getNodeId()) ? null : owner;
+    }
+
+    /**
+     * 异步调用另一个节点的接口，原样返回对方的状态码，2xx 时带上响应体；网络错误或超时时 future 异常结束
+     *
+     * @param method       GET 或 POST
+     * @param pathAndQuery 以 /api 开头，含已编码的查询参数
+     * @param body         JSON 请求体，可为 null
+     * @param authorization 原请求的 Authorization 头，原样带给对方节点；各节点共用令牌密钥时对方可以直接校验
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> send(String node, String method, String pathAndQuery, Object body,
+                                                        String authorization, TypeReference<T> responseType) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(topology.baseUrl(node) + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, topology.getNodeId())
+                .header("Accept", "application/json");
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(toJson(body)));
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    byte[] bytes = response.body();
+                    boolean ok = response.statusCode() / 100 == 2;
+                    T value = !ok || bytes.length == 0 ? null : fromJson(bytes, responseType);
+                    return ResponseEntity.status(response.statusCode()).body(value);
+                });
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T fromJson(byte[] bytes, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (java.io.IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.parkingwebbackend.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 多停车场部署的分区表：每个停车场 (lot) 由且只由一个节点负责，该场车位的占用、释放只在这个节点的内存占用表里发生，
+ * 车位争用不会跨节点。
+ * <p>
+ * lot-owners 中显式列出的场按配置分配，其余的场按 lotId 对节点数取模落到排序后的节点上。
+ * 未配置 node-id 时为单机模式：本节点负责所有停车场，行为与以前一致。
+ * 停车记录 ID 在各节点内存中分配，按节点序号错开（id ≡ 序号 mod 节点数），共用一个库时也不会冲突。
+ */
+@Component
+public class LotTopology {
+    private final String nodeId;
+    private final Map<String, String> nodes;
+    private final List<String> nodeIds;
+    private final Map<Integer, String> lotOwners;
+
+    public LotTopology(@Value("${parking.cluster.node-id:}") String nodeId,
+                       @Value("${parking.cluster.nodes:}") String[] nodes,
+                       @Value("${parking.cluster.lot-owners:}") String[] lotOwners) {
+        this.nodeId = nodeId;
+        this.nodes = new TreeMap<>(parse(nodes));
+        this.nodeIds = List.copyOf(this.nodes.keySet());
+        this.lotOwners = new TreeMap<>();
+        parse(lotOwners).forEach((lot, owner) -> this.lotOwners.put(Integer.valueOf(lot), owner));
+        if (isClustered() && !this.nodes.containsKey(nodeId)) {
+            throw new IllegalStateException("parking.cluster.nodes 中没有本节点: " + nodeId);
+        }
+        for (String owner : this.lotOwners.values()) {
+            if (!this.nodes.containsKey(owner)) {
+                throw new IllegalStateException("parking.cluster.lot-owners 引用了未知节点: " + owner);
+            }
+        }
+    }
+
+    public boolean isClustered() {
+        return !nodeId.isEmpty();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String ownerOf(int lotId) {
+        if (!isClustered()) {
+            return nodeId;
+        }
+        String owner = lotOwners.get(lotId);
+        return owner != null ? owner : nodeIds.get(Math.floorMod(lotId, nodeIds.size()));
+    }
+
+    public boolean ownsLot(Integer lotId) {
+        return !isClustered() || nodeId.equals(ownerOf(lotId == null ? 1 : lotId));
+    }
+
+    /**
+     * 本节点负责的停车场；单机模式返回 null，表示不限
+     */
+    public Set<Integer> ownedLots(Collection<Integer> allLots) {
+        return isClustered() ? allLots.stream().filter(this::ownsLot).collect(Collectors.toSet()) : null;
+    }
+
+    /**
+     * 节点的服务地址，如 http://10.0.0.2:8080/parking
+     */
+    public String baseUrl(String node) {
+        return nodes.get(node);
+    }
+
+    public int getNodeIndex() {
+        return isClustered() ? nodeIds.indexOf(nodeId) : 0;
+    }
+
+    public int getNodeCount() {
+        return isClustered() ? nodeIds.size() : 1;
+    }
+
+    // "a=b" 形式的列表
+    private static Map<String, String> parse(String[] entries) {
+        Map<String, String> map = new TreeMap<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalStateException("配置项格式应为 key=value: " + entry);
+            }
+            map.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+        }
+        return map;
+    }
+}
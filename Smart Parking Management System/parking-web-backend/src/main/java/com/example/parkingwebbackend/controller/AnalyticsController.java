@@ -0,0 +1,40 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.analytics.RevenueRollup;
+import com.example.parkingwebbackend.model.RevenueReport;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 营收 / 周转统计，读内存中的小时、天汇总，不扫停车记录表
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+    private final RevenueRollup revenueRollup;
+
+    public AnalyticsController(RevenueRollup revenueRollup) {
+        this.revenueRollup = revenueRollup;
+    }
+
+    // 统计 [from, to) 内出场的停车；floor 不传为全场，lots 不传为本节点负责的全部停车场；区间为空或过长返回 400
+    @GetMapping("/revenue")
+    public ResponseEntity<RevenueReport> revenue(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                                 @RequestParam(defaultValue = "DAY") RevenueRollup.Granularity granularity,
+                                                 @RequestParam(required = false) Integer floor,
+                                                 @RequestParam(required = false) List<Integer> lots) {
+        try {
+            return ResponseEntity.ok(revenueRollup.report(from, to, granularity, floor, lots));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.auth.AuthInterceptor;
+import com.example.parkingwebbackend.auth.AuthService;
+import com.example.parkingwebbackend.model.AdminSession;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+    private final AuthService authService;
+
+    public AuthController(AuthService authService) {
+        this.authService = authService;
+    }
+
+    // 异步返回，摘要计算期间不占用请求线程；密码错误 401，尝试过多 429，校验线程忙 503
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<AdminSession>> login(@RequestParam String username,
+                                                                 @RequestParam String password,
+                                                                 HttpServletRequest request) {
+        return authService.login(username, password, request.getRemoteAddr()).thenApply(result -> {
+            switch (result.getStatus()) {
+                case OK: return ResponseEntity.ok(result.getSession());
+                case LIMITED: return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+                case BUSY: return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                default: return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+        });
+    }
+
+    @GetMapping("/session")
+    public ResponseEntity<AdminSession> session(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        AdminSession session = authService.validate(AuthInterceptor.bearer(authorization));
+        return session == null ? ResponseEntity.status(HttpStatus.UNAUTHORIZED).build() : ResponseEntity.ok(session);
+    }
+}
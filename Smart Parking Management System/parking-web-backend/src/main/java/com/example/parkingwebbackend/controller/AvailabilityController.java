@@ -0,0 +1,47 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.model.Availability;
+import com.example.parkingwebbackend.service.AvailabilityCounters;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 入口引导屏轮询用：各层空余车位数，直接读内存计数，不查库
+ */
+@RestController
+@RequestMapping("/api/availability")
+public class AvailabilityController {
+    private final AvailabilityCounters counters;
+
+    public AvailabilityController(AvailabilityCounters counters) {
+        this.counters = counters;
+    }
+
+    @GetMapping
+    public Map<String, Object> all() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("facility", counters.getFacility());
+        body.put("floors", counters.getFloors());
+        return body;
+    }
+
+    @GetMapping("/floors/{floor}")
+    public ResponseEntity<Availability> floor(@PathVariable int floor) {
+        Availability availability = counters.getFloor(floor);
+        return availability == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(availability);
+    }
+
+    // 按停车场汇总本节点的计数；lots 不传为本节点负责的全部停车场，集群汇总查询也调用这个接口
+    @GetMapping("/lots")
+    public List<Availability> lots(@RequestParam(required = false) List<Integer> lots) {
+        return counters.getLots(lots);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.analytics.RevenueRollup;
+import com.example.parkingwebbackend.cluster.ClusterQueries;
+import com.example.parkingwebbackend.model.ClusterAvailability;
+import com.example.parkingwebbackend.model.RevenueReport;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 跨停车场汇总：可以发给任意节点，由它向其他节点并行查询后合并
+ */
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+    private final ClusterQueries clusterQueries;
+
+    public ClusterController(ClusterQueries clusterQueries) {
+        this.clusterQueries = clusterQueries;
+    }
+
+    // lots 不传为全部停车场
+    @GetMapping("/availability")
+    public ClusterAvailability availability(@RequestParam(required = false) List<Integer> lots) {
+        return clusterQueries.availability(lots);
+    }
+
+    // 参数同 /api/analytics/revenue；有节点未响应时 complete 为 false
+    @GetMapping("/revenue")
+    public ResponseEntity<RevenueReport> revenue(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                                 @RequestParam(defaultValue = "DAY") RevenueRollup.Granularity granularity,
+                                                 @RequestParam(required = false) Integer floor,
+                                                 @RequestParam(required = false) List<Integer> lots,
+                                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        try {
+            return ResponseEntity.ok(clusterQueries.revenue(from, to, granularity, floor, lots, authorization));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
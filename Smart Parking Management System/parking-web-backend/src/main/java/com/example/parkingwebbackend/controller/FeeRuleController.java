@@ -0,0 +1,55 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.fee.TariffEngine;
+import com.example.parkingwebbackend.model.FeeRule;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/fee-rules")
+public class FeeRuleController {
+    private final TariffEngine tariffEngine;
+    private final ReferenceDataCache referenceDataCache;
+
+    public FeeRuleController(TariffEngine tariffEngine, ReferenceDataCache referenceDataCache) {
+        this.tariffEngine = tariffEngine;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // 当前生效的收费规则（最新一版）
+    @GetMapping("/current")
+    public ResponseEntity<FeeRule> current() {
+        FeeRule rule = referenceDataCache.getLatestRule();
+        return rule == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(rule);
+    }
+
+    // 新增一版规则，之后出场的停车按它计费；规则不合法返回 400
+    @PostMapping
+    public ResponseEntity<FeeRule> create(@RequestBody FeeRule rule) {
+        rule.setRuleId(null);
+        try {
+            tariffEngine.insertRule(rule);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(rule);
+    }
+
+    // 修改指定版本的规则；规则不合法返回 400，不存在返回 404
+    @PutMapping("/{ruleId}")
+    public ResponseEntity<FeeRule> update(@PathVariable Integer ruleId, @RequestBody FeeRule rule) {
+        rule.setRuleId(ruleId);
+        try {
+            return tariffEngine.updateRule(rule) == 0 ? ResponseEntity.notFound().build() : ResponseEntity.ok(rule);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.cluster.LotRouter;
+import com.example.parkingwebbackend.ingest.GateEventIngestor;
+import com.example.parkingwebbackend.model.GateEvent;
+import com.example.parkingwebbackend.model.GateEventResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gate-events")
+public class GateEventController {
+    private final GateEventIngestor ingestor;
+
+    public GateEventController(GateEventIngestor ingestor) {
+        this.ingestor = ingestor;
+    }
+
+    // 批量上报入场/出场事件，按 eventId 幂等，结果与请求一一对应；超过单批上限返回 413
+    // 其他节点转发来的批次带 X-Parking-Forwarded-By，只在本节点处理
+    @PostMapping
+    public ResponseEntity<List<GateEventResult>> ingest(@RequestBody List<GateEvent> events,
+                                                        @RequestHeader(value = LotRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        try {
+            return ResponseEntity.ok(ingestor.ingest(events, forwardedBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.example.parkingwebbackend.stream.OccupancyStream;
+import com.example.parkingwebbackend.stream.SpotDelta;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stream")
+public class OccupancyStreamController {
+    private final ParkingService parkingService;
+    private final OccupancyStream occupancyStream;
+
+    public OccupancyStreamController(ParkingService parkingService, OccupancyStream occupancyStream) {
+        this.parkingService = parkingService;
+        this.occupancyStream = occupancyStream;
+    }
+
+    // 浏览器端: new EventSource('/parking/api/stream/occupancy')，监听 snapshot / spots / records 事件
+    @GetMapping(value = "/occupancy", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter occupancy() {
+        return occupancyStream.subscribe(this::snapshot);
+    }
+
+    private List<SpotDelta> snapshot(long version) {
+        List<SpotDelta> list = new ArrayList<>();
+        for (ParkingSpot spot : parkingService.getAllSpots()) {
+            SpotDelta delta = new SpotDelta();
+            delta.setSpotId(spot.getSpotId());
+            delta.setSpotNumber(spot.getSpotNumber());
+            delta.setFloor(spot.getFloor());
+            delta.setStatus(spot.getStatus());
+            delta.setVersion(version);
+            ParkingRecord active = parkingService.getActiveRecordBySpotId(spot.getSpotId());
+            if (active != null) {
+                delta.setPlateNum(active.getPlateNum());
+                delta.setEntryTime(active.getEntryTime());
+            }
+            list.add(delta);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 出口车牌识别用：按车牌查在场车辆，全部走内存索引
+ */
+@RestController
+@RequestMapping("/api/plates")
+public class PlateController {
+    private final ParkingService parkingService;
+
+    public PlateController(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    @GetMapping("/{plateNum}/active")
+    public ResponseEntity<ParkingRecord> active(@PathVariable String plateNum) {
+        ParkingRecord record = parkingService.getActiveRecordByPlate(plateNum);
+        return record == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(record);
+    }
+
+    // 识别结果不确定时：先容错匹配，没有结果再按前缀查找
+    @GetMapping("/search")
+    public List<ParkingRecord> search(@RequestParam("q") String plateNum) {
+        return parkingService.searchActiveRecordsByPlate(plateNum);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.RecordPage;
+import com.example.parkingwebbackend.model.RecordQuery;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+@RestController
+@RequestMapping("/api/records")
+public class RecordController {
+    private final ParkingService parkingService;
+
+    public RecordController(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    /**
+     * 分页查询停车记录：下一页带上返回的 nextEntryTime / nextRecordId 作为 afterEntryTime / afterRecordId
+     */
+    @GetMapping
+    public RecordPage list(@RequestParam(required = false) String plateNum,
+                           @RequestParam(required = false) Integer spotId,
+                           @RequestParam(required = false) Integer floor,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                           @RequestParam(required = false) Long afterEntryTime,
+                           @RequestParam(required = false) Integer afterRecordId,
+                           @RequestParam(defaultValue = "50") int limit) {
+        RecordQuery query = toQuery(plateNum, spotId, floor, from, to);
+        if (afterEntryTime != null) {
+            query.setAfterEntryTime(new Date(afterEntryTime));
+        }
+        query.setAfterRecordId(afterRecordId);
+        query.setLimit(limit);
+        return parkingService.getParkingRecords(query);
+    }
+
+    /**
+     * 按同样的条件导出 CSV，边查边写，不在内存中堆积
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String plateNum,
+                                                        @RequestParam(required = false) Integer spotId,
+                                                        @RequestParam(required = false) Integer floor,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        RecordQuery query = toQuery(plateNum, spotId, floor, from, to);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            writer.write("record_id,plate_num,spot_id,entry_time,exit_time,payment\n");
+            parkingService.exportRecords(query, r -> {
+                try {
+                    writer.write(r.getRecordId() + "," + r.getPlateNum() + "," + r.getSpotId() + ","
+                            + fmt.format(r.getEntryTime()) + ","
+                            + (r.getExitTime() == null ? "" : fmt.format(r.getExitTime())) + ","
+                            + (r.getPayment() == null ? "" : r.getPayment().toPlainString()) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=parking_records.csv")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    private RecordQuery toQuery(String plateNum, Integer spotId, Integer floor, Date from, Date to) {
+        RecordQuery query = new RecordQuery();
+        query.setPlateNum(plateNum);
+        query.setSpotId(spotId);
+        query.setFloor(floor);
+        query.setFrom(from);
+        query.setTo(to);
+        return query;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.model.Reservation;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/reservations")
+public class ReservationController {
+    private final ParkingService parkingService;
+
+    public ReservationController(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    // 指定 spotId 预约该车位，否则预约 floor 层（不传则任意楼层）的空位；车位不可用或车牌已有预约/在场时返回 409
+    @PostMapping
+    public ResponseEntity<Reservation> reserve(@RequestParam String plateNum,
+                                               @RequestParam(required = false) Integer spotId,
+                                               @RequestParam(required = false) Integer floor,
+                                               @RequestParam(required = false) Integer ttlSeconds) {
+        Reservation reservation = parkingService.reserve(plateNum, spotId, floor, ttlSeconds);
+        return reservation == null ? ResponseEntity.status(HttpStatus.CONFLICT).build() : ResponseEntity.ok(reservation);
+    }
+
+    @GetMapping
+    public ResponseEntity<Reservation> byPlate(@RequestParam String plateNum) {
+        Reservation reservation = parkingService.getReservationByPlate(plateNum);
+        return reservation == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(reservation);
+    }
+
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<Void> cancel(@PathVariable Long reservationId) {
+        return parkingService.cancelReservation(reservationId)
+                ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.parkingwebbackend.controller;
+
+import com.example.parkingwebbackend.cluster.LotRouter;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+@RestController
+@RequestMapping("/api/spots")
+public class SpotController {
+    private static final TypeReference<ParkingRecord> RECORD = new TypeReference<>() {};
+
+    private final ParkingService parkingService;
+    private final LotRouter router;
+
+    public SpotController(ParkingService parkingService, LotRouter router) {
+        this.parkingService = parkingService;
+        this.router = router;
+    }
+
+    // 闸口自动分配车位：返回新的停车记录（含分配到的 spotId），没有空位时返回 409
+    // 指定 lot 或 near 时只在对应停车场内分配，该场由其他节点负责时转发过去，对方不可达返回 503
+    @PostMapping("/auto-assign")
+    public ResponseEntity<ParkingRecord> autoAssign(@RequestParam String plateNum,
+                                                    @RequestParam(required = false) Integer lot,
+                                                    @RequestParam(required = false) Integer floor,
+                                                    @RequestParam(required = false) Integer near,
+                                                    @RequestHeader(value = LotRouter.FORWARDED_HEADER, required = false) String forwardedBy) {
+        Integer lotId = lot != null ? lot : near == null ? null : router.lotOfSpot(near);
+        String owner = router.remoteOwner(lotId, forwardedBy);
+        if (owner != null) {
+            String query = "/api/spots/auto-assign?plateNum=" + URLEncoder.encode(plateNum, StandardCharsets.UTF_8)
+                    + "&lot=" + lotId + (floor == null ? "" : "&floor=" + floor) + (near == null ? "" : "&near=" + near);
+            try {
+                return router.send(owner, "POST", query, null, null, RECORD).join();
+            } catch (CompletionException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+        ParkingRecord record = parkingService.parkInAuto(plateNum, lot, floor, near);
+        return record == null ? ResponseEntity.status(HttpStatus.CONFLICT).build() : ResponseEntity.ok(record);
+    }
+}
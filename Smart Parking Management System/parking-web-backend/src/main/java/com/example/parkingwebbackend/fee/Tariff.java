@@ -0,0 +1,57 @@
+package com.example.parkingwebbackend.fee;
+
+import com.example.parkingwebbackend.model.FeeRule;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 由一条 {@link FeeRule} 预先计算出的不可变计费器，全部以“分”为单位做整数运算。
+ * <p>
+ * 计费规则：停车时长不超过免费时长不收费；超过后扣除免费时长，剩余时长每满 24 小时按
+ * 一整天计费（每天不超过封顶价），不足一天的部分按小时向上取整计费，同样不超过封顶价。
+ * 停车不足一天时与前端 parking-service.js 的算法结果一致。
+ */
+public final class Tariff {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int ruleId;
+    private final long baseCents;
+    private final int freeMinutes;
+    private final long capCents;
+    private final long fullDayCents;
+
+    public Tariff(FeeRule rule) {
+        this.ruleId = rule.getRuleId() == null ? 0 : rule.getRuleId();
+        this.baseCents = toCents(rule.getBasePrice());
+        this.freeMinutes = rule.getFreeMinutes() == null ? 0 : rule.getFreeMinutes();
+        this.capCents = rule.getDailyCap() == null ? Long.MAX_VALUE : toCents(rule.getDailyCap());
+        this.fullDayCents = Math.min(baseCents * 24, capCents);
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public long feeCents(long entryMillis, long exitMillis) {
+        return feeCentsForMinutes((exitMillis - entryMillis) / 60000);
+    }
+
+    public long feeCentsForMinutes(long minutes) {
+        if (minutes <= freeMinutes) {
+            return 0;
+        }
+        long billable = minutes - freeMinutes;
+        long days = billable / MINUTES_PER_DAY;
+        long hours = (billable % MINUTES_PER_DAY + 59) / 60;
+        return days * fullDayCents + Math.min(hours * baseCents, capCents);
+    }
+
+    public static BigDecimal toYuan(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long toCents(BigDecimal yuan) {
+        return yuan == null ? 0 : yuan.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
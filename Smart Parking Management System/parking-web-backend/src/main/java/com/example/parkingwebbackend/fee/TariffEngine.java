@@ -0,0 +1,124 @@
+package com.example.parkingwebbackend.fee;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.mapper.FeeRuleMapper;
+import com.example.parkingwebbackend.model.FeeRule;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 计费引擎：启动时一次性加载全部 fee_rules 版本并编译成 {@link Tariff}，出场计费不再查库。
+ * 规则变更经由本类写库后整体重建，通过一次 volatile 写原子替换，计费线程不加锁；
+ * 其他节点或直接改库的变更由定时重载拾取。
+ * 写规则时持有的是 ReentrantLock 而不是 synchronized，虚拟线程在锁内做 JDBC 时不会钉住载体线程。
+ */
+@Component
+public class TariffEngine {
+    private final FeeRuleMapper feeRuleMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Rules rules = new Rules(Collections.emptyMap(), null);
+
+    public TariffEngine(FeeRuleMapper feeRuleMapper, ReferenceDataCache referenceDataCache) {
+        this.feeRuleMapper = feeRuleMapper;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${parking.fee.reload-interval-ms:60000}",
+            fixedDelayString = "${parking.fee.reload-interval-ms:60000}")
+    public void reload() {
+        writeLock.lock();
+        try {
+            Map<Integer, Tariff> byId = new TreeMap<>();
+            Tariff latest = null;
+            for (FeeRule rule : feeRuleMapper.getAllRules()) {
+                latest = new Tariff(rule);
+                byId.put(latest.getRuleId(), latest);
+            }
+            rules = new Rules(Collections.unmodifiableMap(byId), latest);
+            referenceDataCache.invalidateRules();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 新增一版规则，之后出场的停车按它计费；规则不合法时抛 IllegalArgumentException
+     */
+    public int insertRule(FeeRule rule) {
+        validate(rule);
+        writeLock.lock();
+        try {
+            int rows = referenceDataCache.insertRule(rule);
+            reload();
+            return rows;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 修改指定版本的规则，返回受影响的行数；规则不合法时抛 IllegalArgumentException
+     */
+    public int updateRule(FeeRule rule) {
+        validate(rule);
+        writeLock.lock();
+        try {
+            int rows = referenceDataCache.updateRule(rule);
+            reload();
+            return rows;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 当前生效的计费器（最新的规则），没有任何规则时为 null
+     */
+    public Tariff current() {
+        return rules.latest;
+    }
+
+    public Tariff forRule(int ruleId) {
+        return rules.byId.get(ruleId);
+    }
+
+    public BigDecimal calculate(Date entryTime, Date exitTime) {
+        Tariff tariff = rules.latest;
+        return tariff == null ? BigDecimal.ZERO
+                : Tariff.toYuan(tariff.feeCents(entryTime.getTime(), exitTime.getTime()));
+    }
+
+    // 三项都必填（fee_rules 的列都是 NOT NULL），且不能为负
+    private static void validate(FeeRule rule) {
+        if (rule.getBasePrice() == null || rule.getBasePrice().signum() < 0) {
+            throw new IllegalArgumentException("单价不能为空或为负");
+        }
+        if (rule.getFreeMinutes() == null || rule.getFreeMinutes() < 0) {
+            throw new IllegalArgumentException("免费时长不能为空或为负");
+        }
+        if (rule.getDailyCap() == null || rule.getDailyCap().signum() < 0) {
+            throw new IllegalArgumentException("每日封顶不能为空或为负");
+        }
+    }
+
+    private static final class Rules {
+        final Map<Integer, Tariff> byId;
+        final Tariff latest;
+
+        Rules(Map<Integer, Tariff> byId, Tariff latest) {
+            this.byId = byId;
+            this.latest = latest;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.parkingwebbackend.ingest;
+
+import com.example.parkingwebbackend.cluster.LotRouter;
+import com.example.parkingwebbackend.model.GateEvent;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.persist.RecordWrite;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.example.parkingwebbackend.service.PlateIndex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 闸口事件批量上报：校验 -> 按事件 ID 去重 -> 按车位分片 -> 各分片并行、分片内按上报顺序应用。
+ * <p>
+ * 同一车位的事件总在同一分片中，入场、出场的先后不会乱；每个分片只写一次本地日志，
+ * 随同一个数据库事务落库（见 {@link ParkingService#applyGateEvents}）。
+ * 离线缓存的闸口可以一次补传成千上万条事件，网络中断后整批重发也不会重复入场或重复计费。
+ * <p>
+ * 多停车场部署时，其他节点负责的停车场的事件按节点分组转发过去，与本地分片并行处理，去重由负责节点完成；
+ * 对方不可达时这些事件返回 BUSY。只给车牌的出场事件需要带上 lotId，否则按本节点的在场车辆查找。
+ * 本地某个分片处理出错时同样只把该分片的事件标为 BUSY，其余分片的结果照常返回。
+ */
+@Component
+public class GateEventIngestor {
+    private static final Logger log = LoggerFactory.getLogger(GateEventIngestor.class);
+    private static final int MAX_EVENT_ID_LENGTH = 64;
+    private static final TypeReference<List<GateEventResult>> RESULTS = new TypeReference<>() {};
+
+    private final ParkingService parkingService;
+    private final IdempotencyWindow window;
+    private final LotRouter router;
+    private final int shards;
+    private final int maxBatch;
+    private final ExecutorService executor;
+
+    public GateEventIngestor(ParkingService parkingService, IdempotencyWindow window, LotRouter router,
+                             @Value("${parking.ingest.shards:8}") int shards,
+                             @Value("${parking.ingest.max-batch:10000}") int maxBatch) {
+        this.parkingService = parkingService;
+        this.window = window;
+        this.router = router;
+        this.shards = shards;
+        this.maxBatch = maxBatch;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(shards, r -> {
+            Thread t = new Thread(r, "parking-ingest-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 处理一批事件，结果与输入一一对应
+     *
+     * @throws IllegalArgumentException 超过 max-batch 条
+     */
+    public List<GateEventResult> ingest(List<GateEvent> events) {
+        return ingest(events, null);
+    }
+
+    /**
+     * @param forwardedBy 转发方节点；非 null 时整批在本节点处理，不再转发
+     */
+    public List<GateEventResult> ingest(List<GateEvent> events, String forwardedBy) {
+        if (events.size() > maxBatch) {
+            throw new IllegalArgumentException("单批最多 " + maxBatch + " 条事件");
+        }
+        GateEventResult[] results = new GateEventResult[events.size()];
+        Set<String> ids = new LinkedHashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            GateEvent event = events.get(i);
+            String error = validate(event);
+            if (error != null) {
+                results[i] = reject(event, error);
+            } else if (!ids.add(event.getEventId())) {
+                results[i] = reject(event, "同一批中重复的事件 ID");
+                results[i].setStatus("DUPLICATE");
+            }
+        }
+
+        // 其他节点负责的事件不占本地的去重窗口，整组转发
+        Map<String, List<Integer>> byNode = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            GateEvent event = events.get(i);
+            if (results[i] == null) {
+                Integer lotId = event.getSpotId() != null ? router.lotOfSpot(event.getSpotId()) : event.getLotId();
+                String owner = router.remoteOwner(lotId, forwardedBy);
+                if (owner != null) {
+                    byNode.computeIfAbsent(owner, k -> new ArrayList<>()).add(i);
+                    ids.remove(event.getEventId());
+                }
+            }
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        byNode.forEach((node, indexes) -> futures.add(forward(node, events, indexes, results)));
+        Map<String, GateEventResult> seen = window.claim(ids);
+
+        // 按车位分片；只给车牌的出场事件先按本批中更早的入场找车位，再查在场车辆
+        Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+        Map<String, Integer> enteredInBatch = new HashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            GateEvent event = events.get(i);
+            if (results[i] != null || !ids.contains(event.getEventId())) {
+                continue;
+            }
+            GateEventResult duplicate = seen.get(event.getEventId());
+            if (duplicate != null) {
+                results[i] = duplicate;
+                continue;
+            }
+            String plate = event.getPlateNum() == null ? null : PlateIndex.normalize(event.getPlateNum());
+            if ("ENTRY".equals(event.getType())) {
+                enteredInBatch.put(plate, event.getSpotId());
+            } else if (event.getSpotId() == null) {
+                Integer spotId = enteredInBatch.get(plate);
+                if (spotId == null) {
+                    ParkingRecord active = parkingService.getActiveRecordByPlate(event.getPlateNum());
+                    spotId = active == null ? null : active.getSpotId();
+                }
+                if (spotId == null) {
+                    results[i] = reject(event, "找不到该车牌的在场记录");
+                    window.complete(results[i]);
+                    continue;
+                }
+                event.setSpotId(spotId);
+            }
+            byShard.computeIfAbsent(Math.floorMod(event.getSpotId(), shards), k -> new ArrayList<>()).add(i);
+        }
+
+        for (List<Integer> indexes : byShard.values()) {
+            futures.add(CompletableFuture.runAsync(() -> applyShard(events, indexes, results), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return List.of(results);
+    }
+
+    private CompletableFuture<Void> forward(String node, List<GateEvent> events, List<Integer> indexes,
+                                            GateEventResult[] results) {
+        List<GateEvent> batch = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            batch.add(events.get(i));
+        }
+        return router.send(node, "POST", "/api/gate-events", batch, null, RESULTS)
+                .handle((response, error) -> {
+                    List<GateEventResult> remote = error == null && response.getStatusCode().is2xxSuccessful()
+                            ? response.getBody() : null;
+                    for (int k = 0; k < indexes.size(); k++) {
+                        GateEvent event = batch.get(k);
+                        if (remote != null && remote.size() == batch.size()) {
+                            results[indexes.get(k)] = remote.get(k);
+                        } else {
+                            results[indexes.get(k)] = busy(event, "负责该停车场的节点 " + node + " 暂不可用，请稍后重发");
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private void applyShard(List<GateEvent> events, List<Integer> indexes, GateEventResult[] results) {
+        List<GateEvent> shard = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            shard.add(events.get(i));
+        }
+        List<GateEventResult> applied;
+        try {
+            applied = parkingService.applyGateEvents(shard);
+        } catch (RuntimeException e) {
+            log.error("闸口事件分片处理失败，{} 条事件返回 BUSY", shard.size(), e);
+            for (int k = 0; k < indexes.size(); k++) {
+                GateEvent event = shard.get(k);
+                window.abandon(event.getEventId());
+                results[indexes.get(k)] = busy(event, "事件处理失败，请稍后重发");
+            }
+            return;
+        }
+        for (int k = 0; k < indexes.size(); k++) {
+            GateEventResult result = applied.get(k);
+            results[indexes.get(k)] = result;
+            if ("BUSY".equals(result.getStatus())) {
+                window.abandon(result.getEventId());
+            } else {
+                window.complete(result);
+            }
+        }
+    }
+
+    private static String validate(GateEvent event) {
+        String id = event.getEventId();
+        if (id == null || id.isEmpty() || id.length() > MAX_EVENT_ID_LENGTH || !id.chars().allMatch(c -> c > 0x20 && c < 0x7f)) {
+            return "eventId 须为 1~64 个可见 ASCII 字符";
+        }
+        if ("ENTRY".equals(event.getType())) {
+            if (event.getPlateNum() == null || event.getPlateNum().isBlank() || event.getSpotId() == null) {
+                return "入场事件须包含车牌和车位";
+            }
+        } else if ("EXIT".equals(event.getType())) {
+            if (event.getSpotId() == null && (event.getPlateNum() == null || event.getPlateNum().isBlank())) {
+                return "出场事件须包含车位或车牌";
+            }
+        } else {
+            return "type 须为 ENTRY 或 EXIT";
+        }
+        if (event.getPlateNum() != null && !event.getPlateNum().isBlank() && !RecordWrite.isValidPlate(event.getPlateNum())) {
+            return "车牌不能超过 " + RecordWrite.MAX_PLATE_LENGTH + " 个字符";
+        }
+        return null;
+    }
+
+    private static GateEventResult reject(GateEvent event, String message) {
+        GateEventResult result = new GateEventResult();
+        result.setEventId(event.getEventId());
+        result.setType(event.getType());
+        result.setStatus("REJECTED");
+        result.setSpotId(event.getSpotId());
+        result.setMessage(message);
+        return result;
+    }
+
+    private static GateEventResult busy(GateEvent event, String message) {
+        GateEventResult result = reject(event, message);
+        result.setStatus("BUSY");
+        return result;
+    }
+}
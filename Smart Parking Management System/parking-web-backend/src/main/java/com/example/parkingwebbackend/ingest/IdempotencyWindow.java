@@ -0,0 +1,117 @@
+package com.example.parkingwebbackend.ingest;
+
+import com.example.parkingwebbackend.mapper.GateEventMapper;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 闸口事件去重：最近处理过的事件 ID 及其结果保存在有界内存窗口中（条数上限 + 过期时间），
+ * 窗口未命中时再批量查 gate_events 表兜底（重启后、或事件被挤出窗口后重发）。
+ * <p>
+ * 处理前先在窗口中占位，同一事件的并发重发只有一个请求会真正执行；
+ * BUSY 等可重试的结果不保留，闸口稍后重发时可以重新处理。
+ */
+@Component
+public class IdempotencyWindow {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyWindow.class);
+    private static final int MAX_IDS_PER_QUERY = 1000;
+    private static final GateEventResult IN_FLIGHT = new GateEventResult();
+
+    private final GateEventMapper gateEventMapper;
+    private final Cache<String, GateEventResult> recent;
+    private final int retentionDays;
+
+    public IdempotencyWindow(GateEventMapper gateEventMapper,
+                             @Value("${parking.ingest.window-size:200000}") long windowSize,
+                             @Value("${parking.ingest.window-hours:24}") long windowHours,
+                             @Value("${parking.ingest.retention-days:30}") int retentionDays) {
+        this.gateEventMapper = gateEventMapper;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(windowSize)
+                .expireAfterWrite(Duration.ofHours(windowHours))
+                .build();
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * 为一批事件 ID 占位，返回其中已处理过（或正在处理）的事件的 DUPLICATE 结果；
+     * 未返回的 ID 已被本次调用占住，处理完后必须调用 {@link #complete} 或 {@link #abandon}
+     */
+    public Map<String, GateEventResult> claim(Collection<String> eventIds) {
+        ConcurrentMap<String, GateEventResult> map = recent.asMap();
+        Map<String, GateEventResult> seen = new HashMap<>();
+        List<String> claimed = new ArrayList<>();
+        for (String eventId : eventIds) {
+            GateEventResult previous = map.putIfAbsent(eventId, IN_FLIGHT);
+            if (previous == null) {
+                claimed.add(eventId);
+            } else {
+                seen.put(eventId, duplicateOf(eventId, previous));
+            }
+        }
+        try {
+            for (int i = 0; i < claimed.size(); i += MAX_IDS_PER_QUERY) {
+                for (GateEventResult stored : gateEventMapper.getEventsByIds(
+                        claimed.subList(i, Math.min(claimed.size(), i + MAX_IDS_PER_QUERY)))) {
+                    stored.setMessage("重复事件，之前已处理");
+                    map.put(stored.getEventId(), stored);
+                    seen.put(stored.getEventId(), stored);
+                }
+            }
+        } catch (RuntimeException e) {
+            claimed.forEach(this::abandon);
+            throw e;
+        }
+        return seen;
+    }
+
+    public void complete(GateEventResult result) {
+        recent.put(result.getEventId(), result);
+    }
+
+    public void abandon(String eventId) {
+        recent.asMap().remove(eventId, IN_FLIGHT);
+    }
+
+    // 事件 ID 只需保留到闸口不会再重发为止
+    @Scheduled(initialDelayString = "${parking.ingest.purge-interval-ms:3600000}",
+            fixedDelayString = "${parking.ingest.purge-interval-ms:3600000}")
+    public void purge() {
+        Date before = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        int rows = gateEventMapper.deleteEventsBefore(before);
+        if (rows > 0) {
+            log.info("清理 {} 天前的闸口事件 ID {} 条", retentionDays, rows);
+        }
+    }
+
+    private static GateEventResult duplicateOf(String eventId, GateEventResult previous) {
+        GateEventResult result = new GateEventResult();
+        result.setEventId(eventId);
+        result.setStatus("DUPLICATE");
+        if (previous == IN_FLIGHT) {
+            result.setMessage("重复事件，正在处理");
+            return result;
+        }
+        result.setType(previous.getType());
+        result.setRecordId(previous.getRecordId());
+        result.setSpotId(previous.getSpotId());
+        result.setPayment(previous.getPayment());
+        result.setMessage("重复事件，首次处理结果: " + previous.getStatus());
+        return result;
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.parkingwebbackend.mapper;
 
-import com.example.parking.model.AdminUser;
+import com.example.parkingwebbackend.model.AdminUser;
 import org.apache.ibatis.annotations.Mapper;
 
 @Mapper
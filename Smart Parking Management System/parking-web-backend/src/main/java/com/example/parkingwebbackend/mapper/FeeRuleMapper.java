@@ -1,11 +1,13 @@
 package com.example.parkingwebbackend.mapper;
 
-import com.example.parking.model.FeeRule;
+import com.example.parkingwebbackend.model.FeeRule;
 import org.apache.ibatis.annotations.Mapper;
+import java.util.List;
 
 @Mapper
 public interface FeeRuleMapper {
     FeeRule getLatestRule();
+    List<FeeRule> getAllRules();
     int insertRule(FeeRule rule);
     int updateRule(FeeRule rule);
 }
\ No newline at end of file
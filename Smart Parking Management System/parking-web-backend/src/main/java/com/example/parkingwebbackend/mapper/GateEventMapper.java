@@ -0,0 +1,16 @@
+package com.example.parkingwebbackend.mapper;
+
+import com.example.parkingwebbackend.model.GateEventResult;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+@Mapper
+public interface GateEventMapper {
+    /** 已落库的事件，status 固定为 DUPLICATE */
+    List<GateEventResult> getEventsByIds(List<String> eventIds);
+    int insertEvents(List<GateEventResult> events);
+    int deleteEventsBefore(@Param("before") Date before);
+}
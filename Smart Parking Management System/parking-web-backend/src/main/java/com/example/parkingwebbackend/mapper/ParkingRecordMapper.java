@@ -1,14 +1,28 @@
 package com.example.parkingwebbackend.mapper;
 
-import com.example.parking.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.RecordQuery;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
 import java.util.List;
 
 @Mapper
 public interface ParkingRecordMapper {
     int insertRecord(ParkingRecord record);
+    int insertRecords(List<ParkingRecord> records);
+    int replayRecords(List<ParkingRecord> records);
     int updateRecord(ParkingRecord record);
     ParkingRecord getActiveRecordBySpotId(Integer spotId);
+    ParkingRecord getActiveRecordByPlate(String plateNum);
+    List<ParkingRecord> getActiveRecords();
+    int getMaxRecordId(int below);
     ParkingRecord getRecordById(Integer recordId);
     List<ParkingRecord> getAllRecords();
+    List<ParkingRecord> getRecordsPage(RecordQuery query);
+    Cursor<ParkingRecord> streamRecords(RecordQuery query);
+    List<ParkingRecord> getClosedRecordsInRange(int fromId, int toId);
+    List<ParkingRecord> getRecordsAfter(int afterId);
+    List<ParkingRecord> getRecordsByIds(List<Integer> recordIds);
+    List<Integer> getOpenRecordIds(List<Integer> recordIds);
+    List<ParkingRecord> getClosedRecordsByIds(List<Integer> recordIds);
 }
\ No newline at end of file
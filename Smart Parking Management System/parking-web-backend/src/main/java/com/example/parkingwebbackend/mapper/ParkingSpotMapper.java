@@ -1,7 +1,8 @@
 package com.example.parkingwebbackend.mapper;
 
-import com.example.parking.model.ParkingSpot;
+import com.example.parkingwebbackend.model.ParkingSpot;
 import org.apache.ibatis.annotations.Mapper;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -11,4 +12,7 @@ public interface ParkingSpotMapper {
     int updateSpotStatus(Integer spotId, String status);
     int insertSpot(ParkingSpot spot);
     int deleteSpot(Integer spotId);
+    int countSpots(Collection<Integer> lotIds);
+    int getMaxSpotId(Collection<Integer> lotIds);
+    List<Integer> getLotIds();
 }
\ No newline at end of file
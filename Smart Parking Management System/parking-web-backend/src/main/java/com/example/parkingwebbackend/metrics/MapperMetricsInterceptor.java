@@ -0,0 +1,67 @@
+package com.example.parkingwebbackend.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * 给每条 MyBatis 语句计时 (parking.mapper，按 statement 区分，如 ParkingRecordMapper.getRecordsPage)。
+ * BATCH 执行器的 update 只是把语句加入批次，真正的数据库耗时记在 statement=flushStatements 上；
+ * queryCursor 只统计打开游标的时间，不含逐行读取。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "flushStatements", args = {})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+    private final MeterRegistry registry;
+
+    public MapperMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        String statement = args != null && args.length > 0
+                ? shortName(((MappedStatement) args[0]).getId())
+                : invocation.getMethod().getName();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "failure";
+        try {
+            Object result = invocation.proceed();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("parking.mapper")
+                    .tag("statement", statement)
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    // com.example.parkingwebbackend.mapper.ParkingRecordMapper.getRecordsPage -> ParkingRecordMapper.getRecordsPage
+    private static String shortName(String id) {
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(type + 1);
+    }
+}
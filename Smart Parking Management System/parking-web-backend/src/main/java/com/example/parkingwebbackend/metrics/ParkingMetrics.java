@@ -0,0 +1,130 @@
+package com.example.parkingwebbackend.metrics;
+
+import com.example.parkingwebbackend.service.AvailabilityCounters;
+import com.example.parkingwebbackend.service.OccupancyTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 停车业务的指标，统一以 parking. 开头，经 /parking/actuator/prometheus 抓取。
+ * <ul>
+ *     <li>parking.operation：入场/出场等业务调用耗时（进程内部分），按 operation、outcome 区分</li>
+ *     <li>parking.mapper：每条 MyBatis 语句的数据库耗时，见 {@link MapperMetricsInterceptor}</li>
+ *     <li>parking.spot.conflicts：抢占车位时 CAS 失败的次数</li>
+ *     <li>parking.occupancy.restore_failures：写日志失败后撤销占用表修改时，车位已被并发请求改动的次数</li>
+ *     <li>parking.write_behind.*：队列名额等待、日志追加、批量落库耗时和批大小，无法落库转入死信文件的事件数</li>
+ *     <li>parking.spots：各层各状态的车位数</li>
+ * </ul>
+ */
+@Component
+public class ParkingMetrics {
+    private final MeterRegistry registry;
+    private final Timer slotWait;
+    private final Counter slotTimeouts;
+    private final Timer journalAppend;
+    private final DistributionSummary batchSize;
+    private final Counter flushRetries;
+    private final Counter deadLetters;
+
+    public ParkingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.slotWait = Timer.builder("parking.write_behind.slot_wait")
+                .description("申请写入队列名额的等待时间").register(registry);
+        this.slotTimeouts = Counter.builder("parking.write_behind.slot_timeouts")
+                .description("队列已满、等待名额超时被拒绝的次数").register(registry);
+        this.journalAppend = Timer.builder("parking.write_behind.append")
+                .description("写本地日志的耗时，含等锁和 fsync").register(registry);
+        this.batchSize = DistributionSummary.builder("parking.write_behind.batch.size")
+                .description("每次落库的事件条数").register(registry);
+        this.flushRetries = Counter.builder("parking.write_behind.flush.retries").register(registry);
+        this.deadLetters = Counter.builder("parking.write_behind.dead_letters")
+                .description("因约束冲突、数据超长等错误无法落库，转入死信文件的事件数").register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void stop(Timer.Sample sample, String operation, boolean success) {
+        sample.stop(Timer.builder("parking.operation")
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry));
+    }
+
+    /**
+     * 计时一次调用，抛出异常时记为 failure
+     */
+    public <T> T time(String operation, Supplier<T> call) {
+        Timer.Sample sample = start();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            stop(sample, operation, success);
+        }
+    }
+
+    public void conflict(String operation) {
+        registry.counter("parking.spot.conflicts", "operation", operation).increment();
+    }
+
+    public void restoreFailure(String operation) {
+        registry.counter("parking.occupancy.restore_failures", "operation", operation).increment();
+    }
+
+    public void slotAcquired(long waitNanos, boolean acquired) {
+        slotWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            slotTimeouts.increment();
+        }
+    }
+
+    public Timer journalAppend() {
+        return journalAppend;
+    }
+
+    public void flushed(int events, long nanos, boolean success) {
+        Timer.builder("parking.write_behind.flush")
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            batchSize.record(events);
+        } else {
+            flushRetries.increment();
+        }
+    }
+
+    public void deadLettered() {
+        deadLetters.increment();
+    }
+
+    public void gaugeQueued(Supplier<Number> queued) {
+        Gauge.builder("parking.write_behind.queued", queued).description("已入队尚未落库的事件数").register(registry);
+    }
+
+    /**
+     * 各层及全场（floor=all）的车位数；重复调用时已注册的指标会被复用
+     */
+    public void bindAvailability(AvailabilityCounters counters) {
+        for (int state = OccupancyTable.FREE; state <= OccupancyTable.RESERVED; state++) {
+            int s = state;
+            Gauge.builder("parking.spots", counters, c -> c.count(null, s))
+                    .tag("floor", "all").tag("state", OccupancyTable.toStatus(s)).register(registry);
+            for (Integer floor : counters.getFloorNumbers()) {
+                Gauge.builder("parking.spots", counters, c -> c.count(floor, s))
+                        .tag("floor", String.valueOf(floor)).tag("state", OccupancyTable.toStatus(s)).register(registry);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.Date;
+
+/**
+ * 管理员登录会话：token 自带签名和过期时间，校验时不查库
+ */
+public class AdminSession {
+    private Integer userId;
+    private String username;
+    private String token;
+    private Date expiresAt;
+
+    // Getter and Setter methods
+    public Integer getUserId() { return userId; }
+    public void setUserId(Integer userId) { this.userId = userId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,25 @@
+package com.example.parkingwebbackend.model;
+
+/**
+ * 某一层（floor 为 null 时表示整个停车场）的空闲 / 占用 / 预约车位数；按停车场汇总时 lotId 为场号
+ */
+public class Availability {
+    private Integer lotId;
+    private Integer floor;
+    private long free;
+    private long occupied;
+    private long reserved;
+
+    // Getter and Setter methods
+    public Integer getLotId() { return lotId; }
+    public void setLotId(Integer lotId) { this.lotId = lotId; }
+    public Integer getFloor() { return floor; }
+    public void setFloor(Integer floor) { this.floor = floor; }
+    public long getFree() { return free; }
+    public void setFree(long free) { this.free = free; }
+    public long getOccupied() { return occupied; }
+    public void setOccupied(long occupied) { this.occupied = occupied; }
+    public long getReserved() { return reserved; }
+    public void setReserved(long reserved) { this.reserved = reserved; }
+    public long getTotal() { return free + occupied + reserved; }
+}
@@ -0,0 +1,21 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.List;
+
+/**
+ * 跨节点汇总的空余车位：lots 为各停车场的计数，total 为合计；
+ * unavailableLots 中的停车场所在节点未响应，没有计入合计
+ */
+public class ClusterAvailability {
+    private List<Availability> lots;
+    private Availability total;
+    private List<Integer> unavailableLots;
+
+    // Getter and Setter methods
+    public List<Availability> getLots() { return lots; }
+    public void setLots(List<Availability> lots) { this.lots = lots; }
+    public Availability getTotal() { return total; }
+    public void setTotal(Availability total) { this.total = total; }
+    public List<Integer> getUnavailableLots() { return unavailableLots; }
+    public void setUnavailableLots(List<Integer> unavailableLots) { this.unavailableLots = unavailableLots; }
+}
@@ -0,0 +1,31 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.Date;
+
+/**
+ * 闸口上报的一条入场 / 出场事件。eventId 由闸口生成，重发时保持不变；
+ * time 为闸口记录的发生时间（离线缓存后补传的事件按原时间计费），为空时取服务端收到的时间。
+ * 出场事件可只给车牌，由服务端找到车位；多停车场部署时只给车牌的出场事件还须带上 lotId，用来找到负责该场的节点。
+ */
+public class GateEvent {
+    private String eventId;
+    private String type;
+    private String plateNum;
+    private Integer spotId;
+    private Integer lotId;
+    private Date time;
+
+    // Getter and Setter methods
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getPlateNum() { return plateNum; }
+    public void setPlateNum(String plateNum) { this.plateNum = plateNum; }
+    public Integer getSpotId() { return spotId; }
+    public void setSpotId(Integer spotId) { this.spotId = spotId; }
+    public Integer getLotId() { return lotId; }
+    public void setLotId(Integer lotId) { this.lotId = lotId; }
+    public Date getTime() { return time; }
+    public void setTime(Date time) { this.time = time; }
+}
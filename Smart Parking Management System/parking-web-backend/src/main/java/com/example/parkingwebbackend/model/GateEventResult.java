@@ -0,0 +1,33 @@
+package com.example.parkingwebbackend.model;
+
+import java.math.BigDecimal;
+
+/**
+ * 闸口事件的处理结果：APPLIED 已生效；DUPLICATE 之前已处理过（或正在处理），本次忽略；
+ * REJECTED 事件无效或与车位状态冲突，重发也不会生效；BUSY 写入队列已满，可稍后重发
+ */
+public class GateEventResult {
+    private String eventId;
+    private String type;
+    private String status;
+    private Integer recordId;
+    private Integer spotId;
+    private BigDecimal payment;
+    private String message;
+
+    // Getter and Setter methods
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Integer getRecordId() { return recordId; }
+    public void setRecordId(Integer recordId) { this.recordId = recordId; }
+    public Integer getSpotId() { return spotId; }
+    public void setSpotId(Integer spotId) { this.spotId = spotId; }
+    public BigDecimal getPayment() { return payment; }
+    public void setPayment(BigDecimal payment) { this.payment = payment; }
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -10,6 +10,7 @@ public class ParkingRecord {
     private Date entryTime;
     private Date exitTime;
     private BigDecimal payment;
+    private Integer lotId;
 
     // Getter and Setter methods
     public Integer getRecordId() { return recordId; }
@@ -24,4 +25,6 @@ public class ParkingRecord {
     public void setExitTime(Date exitTime) { this.exitTime = exitTime; }
     public BigDecimal getPayment() { return payment; }
     public void setPayment(BigDecimal payment) { this.payment = payment; }
+    public Integer getLotId() { return lotId; }
+    public void setLotId(Integer lotId) { this.lotId = lotId; }
 }
\ No newline at end of file
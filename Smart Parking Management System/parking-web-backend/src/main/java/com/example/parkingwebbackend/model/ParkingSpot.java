@@ -5,6 +5,8 @@ public class ParkingSpot {
     private String spotNumber;
     private String status; // FREE, OCCUPIED, RESERVED
     private Integer floor;
+    private Integer lotId;
+    private Integer zoneId;
 
     // Getter and Setter methods
     public Integer getSpotId() { return spotId; }
@@ -15,4 +17,8 @@ public class ParkingSpot {
     public void setStatus(String status) { this.status = status; }
     public Integer getFloor() { return floor; }
     public void setFloor(Integer floor) { this.floor = floor; }
+    public Integer getLotId() { return lotId; }
+    public void setLotId(Integer lotId) { this.lotId = lotId; }
+    public Integer getZoneId() { return zoneId; }
+    public void setZoneId(Integer zoneId) { this.zoneId = zoneId; }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 一页停车记录；hasMore 为 true 时用 nextEntryTime / nextRecordId 请求下一页
+ */
+public class RecordPage {
+    private List<ParkingRecord> records;
+    private boolean hasMore;
+    private Date nextEntryTime;
+    private Integer nextRecordId;
+
+    // Getter and Setter methods
+    public List<ParkingRecord> getRecords() { return records; }
+    public void setRecords(List<ParkingRecord> records) { this.records = records; }
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    public Date getNextEntryTime() { return nextEntryTime; }
+    public void setNextEntryTime(Date nextEntryTime) { this.nextEntryTime = nextEntryTime; }
+    public Integer getNextRecordId() { return nextRecordId; }
+    public void setNextRecordId(Integer nextRecordId) { this.nextRecordId = nextRecordId; }
+}
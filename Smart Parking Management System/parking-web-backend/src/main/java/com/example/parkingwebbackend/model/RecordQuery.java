@@ -0,0 +1,36 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.Date;
+
+/**
+ * 停车记录查询条件。分页采用 keyset 方式：按 (entry_time, record_id) 倒序，
+ * afterEntryTime / afterRecordId 为上一页最后一条记录，为空时从第一页开始。
+ */
+public class RecordQuery {
+    private String plateNum;
+    private Integer spotId;
+    private Integer floor;
+    private Date from;
+    private Date to;
+    private Date afterEntryTime;
+    private Integer afterRecordId;
+    private int limit = 50;
+
+    // Getter and Setter methods
+    public String getPlateNum() { return plateNum; }
+    public void setPlateNum(String plateNum) { this.plateNum = plateNum; }
+    public Integer getSpotId() { return spotId; }
+    public void setSpotId(Integer spotId) { this.spotId = spotId; }
+    public Integer getFloor() { return floor; }
+    public void setFloor(Integer floor) { this.floor = floor; }
+    public Date getFrom() { return from; }
+    public void setFrom(Date from) { this.from = from; }
+    public Date getTo() { return to; }
+    public void setTo(Date to) { this.to = to; }
+    public Date getAfterEntryTime() { return afterEntryTime; }
+    public void setAfterEntryTime(Date afterEntryTime) { this.afterEntryTime = afterEntryTime; }
+    public Integer getAfterRecordId() { return afterRecordId; }
+    public void setAfterRecordId(Integer afterRecordId) { this.afterRecordId = afterRecordId; }
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
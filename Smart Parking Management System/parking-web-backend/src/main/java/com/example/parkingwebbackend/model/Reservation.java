@@ -0,0 +1,29 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.Date;
+
+/**
+ * 车位预约：预约期间车位状态为 RESERVED，只有预约的车牌可以入场，到期自动释放
+ */
+public class Reservation {
+    private Long reservationId;
+    private String plateNum;
+    private Integer spotId;
+    private Integer floor;
+    private Date createdAt;
+    private Date expiresAt;
+
+    // Getter and Setter methods
+    public Long getReservationId() { return reservationId; }
+    public void setReservationId(Long reservationId) { this.reservationId = reservationId; }
+    public String getPlateNum() { return plateNum; }
+    public void setPlateNum(String plateNum) { this.plateNum = plateNum; }
+    public Integer getSpotId() { return spotId; }
+    public void setSpotId(Integer spotId) { this.spotId = spotId; }
+    public Integer getFloor() { return floor; }
+    public void setFloor(Integer floor) { this.floor = floor; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public Date getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Date expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,27 @@
+package com.example.parkingwebbackend.model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 一个统计时段（小时或天）内结束的停车：收入、车次、平均停留时长、周转率（车次 / 车位数）
+ */
+public class RevenueBucket {
+    private Date start;
+    private long sessions;
+    private BigDecimal revenue;
+    private double avgDwellMinutes;
+    private double turnover;
+
+    // Getter and Setter methods
+    public Date getStart() { return start; }
+    public void setStart(Date start) { this.start = start; }
+    public long getSessions() { return sessions; }
+    public void setSessions(long sessions) { this.sessions = sessions; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    public double getAvgDwellMinutes() { return avgDwellMinutes; }
+    public void setAvgDwellMinutes(double avgDwellMinutes) { this.avgDwellMinutes = avgDwellMinutes; }
+    public double getTurnover() { return turnover; }
+    public void setTurnover(double turnover) { this.turnover = turnover; }
+}
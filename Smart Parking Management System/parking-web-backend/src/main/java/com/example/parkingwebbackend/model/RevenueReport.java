@@ -0,0 +1,33 @@
+package com.example.parkingwebbackend.model;
+
+import java.util.List;
+
+/**
+ * 营收报表：floor 为 null 表示全场；lots 为参与统计的停车场；
+ * complete 为 false 时历史数据仍在回填或有节点未响应，结果偏小
+ */
+public class RevenueReport {
+    private Integer floor;
+    private List<Integer> lots;
+    private int spotCount;
+    private String granularity;
+    private boolean complete;
+    private RevenueBucket total;
+    private List<RevenueBucket> buckets;
+
+    // Getter and Setter methods
+    public Integer getFloor() { return floor; }
+    public void setFloor(Integer floor) { this.floor = floor; }
+    public List<Integer> getLots() { return lots; }
+    public void setLots(List<Integer> lots) { this.lots = lots; }
+    public int getSpotCount() { return spotCount; }
+    public void setSpotCount(int spotCount) { this.spotCount = spotCount; }
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+    public boolean isComplete() { return complete; }
+    public void setComplete(boolean complete) { this.complete = complete; }
+    public RevenueBucket getTotal() { return total; }
+    public void setTotal(RevenueBucket total) { this.total = total; }
+    public List<RevenueBucket> getBuckets() { return buckets; }
+    public void setBuckets(List<RevenueBucket> buckets) { this.buckets = buckets; }
+}
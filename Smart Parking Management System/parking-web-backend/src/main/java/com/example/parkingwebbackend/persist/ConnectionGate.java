@@ -0,0 +1,102 @@
+package com.example.parkingwebbackend.persist;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 数据库闸门：同时持有连接的线程数不超过 parking.db.max-concurrent，多出的按先来后到排队。
+ * <p>
+ * 平台线程模式下 Tomcat 线程数本身就限制了并发，默认不启用（0）。虚拟线程模式下请求数不再受线程数限制，
+ * 成千上万个虚拟线程会同时去抢 Hikari 连接；闸门把它们挡在连接池之前（虚拟线程在信号量上挂起几乎没有开销），
+ * 许可数一般取连接池大小，保护 MySQL 不被打满。以连接为单位申请许可，一个线程同一时刻只持有一个连接，不会互相等死。
+ * 排队人数见 parking.db.gate.waiting。
+ */
+@Component
+public class ConnectionGate implements BeanPostProcessor, MeterBinder {
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+
+    public ConnectionGate(@Value("${parking.db.max-concurrent:0}") int maxConcurrent,
+                          @Value("${parking.db.acquire-timeout-ms:3000}") long acquireTimeoutMs) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(Math.max(maxConcurrent, 1), true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (maxConcurrent > 0 && bean instanceof DataSource dataSource && !(bean instanceof GatedDataSource)) {
+            return new GatedDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (maxConcurrent > 0) {
+            Gauge.builder("parking.db.gate.waiting", permits, Semaphore::getQueueLength)
+                    .description("等待数据库许可的线程数").register(registry);
+        }
+    }
+
+    private Connection acquire(DataSource target) throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("等待数据库许可超时 (" + acquireTimeoutMs + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库许可时被中断", e);
+        }
+        try {
+            return wrap(target.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // 连接关闭（归还连接池）时归还许可，重复 close 只归还一次
+    private Connection wrap(Connection raw) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(ConnectionGate.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    private final class GatedDataSource extends DelegatingDataSource {
+        GatedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return acquire(obtainTargetDataSource());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.parkingwebbackend.persist;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 占用表快照：定期把车位定义和在场停车记录写成紧凑的二进制文件，启动时据此恢复，
+ * 只需回放快照之后的数据库变化，不必扫描整张 parking_records。
+ * <p>
+ * 两个内存映射文件轮流写入，文件头带递增序号和 CRC32；写到一半崩溃时 CRC 不符，
+ * 读取时退回另一个文件中较旧但完整的快照。车位状态由在场记录决定，预约仍不跨重启保留。
+ */
+@Component
+public class OccupancySnapshot {
+    private static final Logger log = LoggerFactory.getLogger(OccupancySnapshot.class);
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    private static final int VERSION = 2; // 2: 车位和记录带停车场、分区
+    // magic(4) version(4) sequence(8) length(4) crc(4)
+    private static final int HEADER_BYTES = 24;
+    private static final int MAP_CHUNK = 64 * 1024;
+    private static final int NONE = Integer.MIN_VALUE; // 可空整数字段为 null
+
+    private final boolean enabled;
+    private final Path dir;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MappedByteBuffer[] maps = new MappedByteBuffer[2];
+    private long sequence;
+
+    public OccupancySnapshot(@Value("${parking.snapshot.enabled:true}") boolean enabled,
+                             @Value("${parking.snapshot.dir:data/snapshot}") String dir) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取最新的完整快照，没有可用快照时返回 null（调用方全量加载）
+     */
+    public Image read() {
+        if (!enabled) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Image latest = null;
+            for (int slot = 0; slot < 2; slot++) {
+                Image image = readSlot(slot);
+                if (image != null && (latest == null || image.sequence > latest.sequence)) {
+                    latest = image;
+                }
+            }
+            if (latest != null) {
+                sequence = Math.max(sequence, latest.sequence);
+            }
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入一份新快照，覆盖两个文件中较旧的那个，返回快照序号
+     *
+     * @param replayFromId 恢复时需要从数据库重读的记录 ID 下界：不大于它的记录在本次扫描前都已落定
+     */
+    public long write(List<ParkingSpot> spots, List<ParkingRecord> activeRecords, int replayFromId) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            long seq = sequence + 1;
+            byte[] body = encode(System.currentTimeMillis(), replayFromId, spots, activeRecords);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            int slot = (int) (seq & 1);
+            MappedByteBuffer buf = map(slot, HEADER_BYTES + body.length);
+            buf.put(HEADER_BYTES, body);
+            buf.putInt(0, MAGIC);
+            buf.putInt(4, VERSION);
+            buf.putLong(8, seq);
+            buf.putInt(16, body.length);
+            buf.putInt(20, (int) crc.getValue());
+            buf.force();
+            sequence = seq;
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Image readSlot(int slot) {
+        Path file = file(slot);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            MappedByteBuffer buf = map(slot, 0);
+            if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                return null;
+            }
+            long seq = buf.getLong(8);
+            int length = buf.getInt(16);
+            if (length < 0 || length > buf.capacity() - HEADER_BYTES) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            buf.get(HEADER_BYTES, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buf.getInt(20)) {
+                log.warn("占用表快照 {} 校验失败，忽略", file);
+                return null;
+            }
+            return decode(seq, body);
+        } catch (IOException e) {
+            log.warn("读取占用表快照 {} 失败", file, e);
+            return null;
+        }
+    }
+
+    // 每个文件只映射一次并一直复用；内容变大时按块扩容后重新映射
+    private MappedByteBuffer map(int slot, int minBytes) throws IOException {
+        MappedByteBuffer buf = maps[slot];
+        if (buf != null && buf.capacity() >= minBytes) {
+            return buf;
+        }
+        Files.createDirectories(dir);
+        try (FileChannel channel = FileChannel.open(file(slot), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < minBytes) {
+                size = ((long) minBytes * 3 / 2 / MAP_CHUNK + 1) * MAP_CHUNK;
+            }
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        maps[slot] = buf;
+        return buf;
+    }
+
+    private Path file(int slot) {
+        return dir.resolve("occupancy-" + slot + ".snap");
+    }
+
+    static byte[] encode(long takenAt, int replayFromId, List<ParkingSpot> spots,
+                         List<ParkingRecord> activeRecords) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + spots.size() * 16 + activeRecords.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(takenAt);
+        out.writeInt(replayFromId);
+        out.writeInt(spots.size());
+        for (ParkingSpot spot : spots) {
+            out.writeInt(spot.getSpotId());
+            writeNullable(out, spot.getFloor());
+            writeNullable(out, spot.getLotId());
+            writeNullable(out, spot.getZoneId());
+            out.writeUTF(spot.getSpotNumber() == null ? "" : spot.getSpotNumber());
+        }
+        out.writeInt(activeRecords.size());
+        for (ParkingRecord record : activeRecords) {
+            out.writeInt(record.getRecordId());
+            out.writeInt(record.getSpotId());
+            out.writeLong(record.getEntryTime().getTime());
+            writeNullable(out, record.getLotId());
+            out.writeUTF(record.getPlateNum());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Image decode(long seq, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        long takenAt = in.readLong();
+        int replayFromId = in.readInt();
+        int spotCount = in.readInt();
+        List<ParkingSpot> spots = new ArrayList<>(spotCount);
+        for (int i = 0; i < spotCount; i++) {
+            ParkingSpot spot = new ParkingSpot();
+            spot.setSpotId(in.readInt());
+            spot.setFloor(readNullable(in));
+            spot.setLotId(readNullable(in));
+            spot.setZoneId(readNullable(in));
+            spot.setSpotNumber(in.readUTF());
+            spot.setStatus("FREE");
+            spots.add(spot);
+        }
+        int recordCount = in.readInt();
+        List<ParkingRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            ParkingRecord record = new ParkingRecord();
+            record.setRecordId(in.readInt());
+            record.setSpotId(in.readInt());
+            record.setEntryTime(new Date(in.readLong()));
+            record.setLotId(readNullable(in));
+            record.setPlateNum(in.readUTF());
+            records.add(record);
+        }
+        return new Image(seq, takenAt, replayFromId, spots, records);
+    }
+
+    private static void writeNullable(DataOutputStream out, Integer value) throws IOException {
+        out.writeInt(value == null ? NONE : value);
+    }
+
+    private static Integer readNullable(DataInputStream in) throws IOException {
+        int value = in.readInt();
+        return value == NONE ? null : value;
+    }
+
+    public static final class Image {
+        private final long sequence;
+        private final long takenAt;
+        private final int replayFromId;
+        private final List<ParkingSpot> spots;
+        private final List<ParkingRecord> activeRecords;
+
+        Image(long sequence, long takenAt, int replayFromId, List<ParkingSpot> spots, List<ParkingRecord> activeRecords) {
+            this.sequence = sequence;
+            this.takenAt = takenAt;
+            this.replayFromId = replayFromId;
+            this.spots = spots;
+            this.activeRecords = activeRecords;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTakenAt() {
+            return takenAt;
+        }
+
+        public int getReplayFromId() {
+            return replayFromId;
+        }
+
+        public List<ParkingSpot> getSpots() {
+            return spots;
+        }
+
+        public List<ParkingRecord> getActiveRecords() {
+            return activeRecords;
+        }
+    }
+}
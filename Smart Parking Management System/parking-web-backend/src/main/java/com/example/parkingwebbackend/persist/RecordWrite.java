@@ -0,0 +1,124 @@
+package com.example.parkingwebbackend.persist;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 一条待写入数据库的停车事件（入场 ENTRY / 出场 EXIT），入队时复制记录字段，之后不可变。
+ * 由闸口批量上报的事件带有 eventId，落库时一并写入 gate_events 用于去重。
+ */
+public final class RecordWrite {
+    public enum Type { ENTRY, EXIT }
+
+    /**
+     * parking_records.plate_num 为 VARCHAR(20)，按字符计
+     */
+    public static final int MAX_PLATE_LENGTH = 20;
+    private static final int MAX_EVENT_ID_LENGTH = 64;
+    // payment 为 DECIMAL(10, 2)
+    private static final BigDecimal MAX_PAYMENT = new BigDecimal("99999999.99");
+
+    private final long seq;
+    private final Type type;
+    private final int recordId;
+    private final int spotId;
+    private final String plateNum;
+    private final long entryTime;
+    private final long exitTime;
+    private final BigDecimal payment;
+    private final String eventId;
+
+    RecordWrite(long seq, Type type, int recordId, int spotId, String plateNum,
+                long entryTime, long exitTime, BigDecimal payment, String eventId) {
+        this.seq = seq;
+        this.type = type;
+        this.recordId = recordId;
+        this.spotId = spotId;
+        this.plateNum = plateNum;
+        this.entryTime = entryTime;
+        this.exitTime = exitTime;
+        this.payment = payment;
+        this.eventId = eventId;
+    }
+
+    static RecordWrite of(long seq, Type type, ParkingRecord record) {
+        return of(seq, type, record, null);
+    }
+
+    /**
+     * 供 {@link RecordWriteBehind#appendAll} 使用的事件，序号在追加时分配
+     */
+    public static RecordWrite of(Type type, ParkingRecord record, String eventId) {
+        return of(0, type, record, eventId);
+    }
+
+    private static RecordWrite of(long seq, Type type, ParkingRecord record, String eventId) {
+        return new RecordWrite(seq, type, record.getRecordId(), record.getSpotId(), record.getPlateNum(),
+                record.getEntryTime().getTime(),
+                record.getExitTime() == null ? 0 : record.getExitTime().getTime(),
+                record.getPayment(), eventId);
+    }
+
+    /**
+     * 写日志之前校验字段能否落库：写不进数据库的事件一旦进入日志，每次刷写和重启重放都会失败
+     *
+     * @throws IllegalArgumentException 字段超出表结构的限制
+     */
+    void validate() {
+        if (!isValidPlate(plateNum)) {
+            throw new IllegalArgumentException("车牌须为 1~" + MAX_PLATE_LENGTH + " 个字符: " + plateNum);
+        }
+        if (eventId != null && eventId.length() > MAX_EVENT_ID_LENGTH) {
+            throw new IllegalArgumentException("闸口事件 ID 超过 " + MAX_EVENT_ID_LENGTH + " 个字符: " + eventId);
+        }
+        if (payment != null && (payment.signum() < 0 || payment.scale() > 2 || payment.compareTo(MAX_PAYMENT) > 0)) {
+            throw new IllegalArgumentException("停车费超出范围: " + payment);
+        }
+    }
+
+    /**
+     * 车牌非空且不超过 plate_num 的列宽，入口处先用它拒绝，免得占了车位才在写日志时失败
+     */
+    public static boolean isValidPlate(String plateNum) {
+        return plateNum != null && !plateNum.isBlank()
+                && plateNum.codePointCount(0, plateNum.length()) <= MAX_PLATE_LENGTH;
+    }
+
+    RecordWrite withSeq(long seq) {
+        return new RecordWrite(seq, type, recordId, spotId, plateNum, entryTime, exitTime, payment, eventId);
+    }
+
+    ParkingRecord toRecord() {
+        ParkingRecord record = new ParkingRecord();
+        record.setRecordId(recordId);
+        record.setSpotId(spotId);
+        record.setPlateNum(plateNum);
+        record.setEntryTime(new Date(entryTime));
+        record.setExitTime(exitTime == 0 ? null : new Date(exitTime));
+        record.setPayment(payment);
+        return record;
+    }
+
+    // 日志行格式：seq \t type \t recordId \t spotId \t plateNum \t entryTime \t exitTime \t payment \t eventId
+    String encode() {
+        return seq + "\t" + type + "\t" + recordId + "\t" + spotId + "\t" + plateNum.replaceAll("\\s", " ") + "\t"
+                + entryTime + "\t" + exitTime + "\t" + (payment == null ? "" : payment.toPlainString())
+                + "\t" + (eventId == null ? "" : eventId);
+    }
+
+    static RecordWrite decode(String line) {
+        String[] f = line.split("\t", -1);
+        return new RecordWrite(Long.parseLong(f[0]), Type.valueOf(f[1]), Integer.parseInt(f[2]),
+                Integer.parseInt(f[3]), f[4], Long.parseLong(f[5]), Long.parseLong(f[6]),
+                f[7].isEmpty() ? null : new BigDecimal(f[7]),
+                f.length > 8 && !f[8].isEmpty() ? f[8] : null); // 旧版本的日志行没有 eventId
+    }
+
+    public long getSeq() { return seq; }
+    public Type getType() { return type; }
+    public int getRecordId() { return recordId; }
+    public int getSpotId() { return spotId; }
+    public String getEventId() { return eventId; }
+}
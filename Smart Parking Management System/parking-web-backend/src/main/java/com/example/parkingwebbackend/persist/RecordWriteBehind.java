@@ -0,0 +1,424 @@
+package com.example.parkingwebbackend.persist;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.mapper.GateEventMapper;
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.metrics.ParkingMetrics;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 停车记录的异步批量写入（write-behind）。
+ * <p>
+ * 入场/出场事件先写入本地日志再进入内存队列，后台线程按条数或时间窗口把一批事件合并成
+ * 一次多行 INSERT、若干 JDBC 批量 UPDATE，在同一个事务中提交。队列容量由信号量控制，
+ * 已入队但尚未落库的事件都占用名额，写库变慢时调用方会被阻塞（背压）。
+ * <p>
+ * 连接断开、锁超时等临时错误整批重试；约束冲突、数据超长等与数据本身有关的错误重试也不会成功，
+ * 这时把批次二分，能写的照常落库，单独一条仍写不进去的事件转入日志目录下的死信文件并记录错误日志。
+ */
+@Component
+public class RecordWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(RecordWriteBehind.class);
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private final SqlSessionTemplate batchSession;
+    private final TransactionTemplate transactionTemplate;
+    private final ParkingMetrics metrics;
+    private final ReferenceDataCache referenceDataCache;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Path journalDir;
+    private final boolean fsync;
+
+    private final int capacity;
+    private final Semaphore slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private List<RecordWrite> pending = new ArrayList<>();
+    private long seq;
+    private WriteJournal journal;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public RecordWriteBehind(SqlSessionFactory sqlSessionFactory,
+                             PlatformTransactionManager transactionManager,
+                             ParkingMetrics metrics, ReferenceDataCache referenceDataCache,
+                             @Value("${parking.write-behind.batch-size:500}") int batchSize,
+                             @Value("${parking.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${parking.write-behind.capacity:20000}") int capacity,
+                             @Value("${parking.write-behind.offer-timeout-ms:2000}") long offerTimeoutMs,
+                             @Value("${parking.write-behind.journal-dir:data/journal}") String journalDir,
+                             @Value("${parking.write-behind.fsync:true}") boolean fsync) {
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.referenceDataCache = referenceDataCache;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.journalDir = Paths.get(journalDir);
+        this.fsync = fsync;
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+        metrics.gaugeQueued(() -> this.capacity - slots.availablePermits());
+    }
+
+    /**
+     * 启动时先把上次未落库的日志段重放进数据库，再启动后台刷写线程
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        journal = new WriteJournal(journalDir, fsync);
+        List<RecordWrite> unflushed = journal.readSealed();
+        if (!unflushed.isEmpty()) {
+            log.info("重放本地日志中未落库的停车事件 {} 条", unflushed.size());
+            drain(new ArrayDeque<>(List.of(unflushed)), true);
+            seq = unflushed.get(unflushed.size() - 1).getSeq();
+        }
+        for (Path segment : journal.sealedSegments()) {
+            journal.delete(segment);
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "parking-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        lock.lock();
+        try {
+            batchReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+    }
+
+    /**
+     * 申请一个队列名额，队列已满时最多等待 offer-timeout-ms
+     */
+    public boolean acquireSlot() {
+        if (slots.tryAcquire()) {
+            metrics.slotAcquired(0, true);
+            return true;
+        }
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = slots.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.slotAcquired(System.nanoTime() - start, acquired);
+        return acquired;
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    /**
+     * 一次申请 n 个名额（批量上报），队列剩余名额不足时最多等待 offer-timeout-ms
+     */
+    public boolean acquireSlots(int n) {
+        if (n > capacity) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = slots.tryAcquire(n, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        metrics.slotAcquired(System.nanoTime() - start, acquired);
+        return acquired;
+    }
+
+    public void releaseSlots(int n) {
+        slots.release(n);
+    }
+
+    /**
+     * 记录一条事件，消耗调用方先前申请的名额。返回时事件已写入本地日志。
+     */
+    public void append(RecordWrite.Type type, ParkingRecord record) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            RecordWrite event = RecordWrite.of(seq + 1, type, record);
+            event.validate();
+            journal.append(event);
+            seq++;
+            pending.add(event);
+            if (pending.size() >= batchSize) {
+                batchReady.signal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+            metrics.journalAppend().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 一次追加多条事件（只写一次日志、fsync 一次），每条消耗一个先前申请的名额。
+     * 这些事件进入同一个待写批次，随同一个数据库事务提交。
+     */
+    public void appendAll(List<RecordWrite> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            List<RecordWrite> numbered = new ArrayList<>(events.size());
+            for (RecordWrite event : events) {
+                event.validate();
+                numbered.add(event.withSeq(seq + numbered.size() + 1));
+            }
+            journal.appendAll(numbered);
+            seq += numbered.size();
+            pending.addAll(numbered);
+            if (pending.size() >= batchSize) {
+                batchReady.signal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+            metrics.journalAppend().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            List<RecordWrite> batch;
+            Path segment;
+            lock.lock();
+            try {
+                if (running && pending.size() < batchSize) {
+                    batchReady.await(flushIntervalMs, TimeUnit.MILLISECONDS);
+                }
+                if (pending.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                segment = journal.roll();
+                batch = pending;
+                pending = new ArrayList<>();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("停车事件日志切换失败", e);
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            flushWithRetry(batch, segment);
+        }
+    }
+
+    private void flushWithRetry(List<RecordWrite> batch, Path segment) {
+        // 待写的子批次：重试时从上次拆分后剩下的部分继续，已提交的子批次不会再写一遍
+        Deque<List<RecordWrite>> work = new ArrayDeque<>();
+        work.push(batch);
+        long backoff = 100;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                drain(work, false);
+                metrics.flushed(batch.size(), System.nanoTime() - start, true);
+                journal.delete(segment);
+                slots.release(batch.size());
+                return;
+            } catch (IOException e) {
+                log.warn("删除已落库的日志段失败: {}", segment, e);
+                slots.release(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                metrics.flushed(batch.size(), System.nanoTime() - start, false);
+                if (!running) {
+                    // 关闭时仍写不进去就保留日志段，下次启动重放
+                    log.error("停车事件落库失败，{} 条事件保留在本地日志 {}", batch.size(), segment, e);
+                    return;
+                }
+                log.warn("停车事件落库失败，{} ms 后重试", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 5000);
+            }
+        }
+    }
+
+    /**
+     * 依次写入 work 中的子批次。遇到数据错误时把出错的子批次一分为二放回队首，
+     * 拆到只剩一条仍然出错就转入死信文件；临时错误原样抛出，由调用方重试剩下的子批次
+     */
+    private void drain(Deque<List<RecordWrite>> work, boolean replay) {
+        while (!work.isEmpty()) {
+            List<RecordWrite> part = work.peek();
+            try {
+                flush(part, replay);
+                work.pop();
+            } catch (RuntimeException e) {
+                if (!isDataError(e)) {
+                    throw e;
+                }
+                work.pop();
+                if (part.size() == 1) {
+                    deadLetter(part.get(0), e);
+                } else {
+                    int mid = part.size() / 2;
+                    work.push(part.subList(mid, part.size()));
+                    work.push(part.subList(0, mid));
+                }
+            }
+        }
+    }
+
+    private void deadLetter(RecordWrite event, RuntimeException cause) {
+        metrics.deadLettered();
+        String line = event.encode();
+        log.error("停车事件无法落库，已转入死信文件 {}: {}", journalDir.resolve(WriteJournal.DEAD_LETTER_FILE), line, cause);
+        try {
+            journal.deadLetter(event, String.valueOf(cause.getMessage()));
+        } catch (IOException e) {
+            // 上面的错误日志里已有完整的事件内容
+            log.error("写死信文件失败", e);
+        }
+    }
+
+    // 约束冲突（SQLState 23）、数据超长或格式错误（SQLState 22）与数据本身有关，重试不会成功
+    static boolean isDataError(Throwable e) {
+        if (e instanceof DataIntegrityViolationException) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 合并同一批中的事件：同批内入场又出场的记录直接以完整记录插入，车位状态只写最终值；
+     * 闸口事件 ID 写入 gate_events，与停车记录在同一事务中提交。
+     * 正常刷写用普通 INSERT，主键冲突直接报错；只有重放本地日志时才按主键合并上次已落库的部分
+     */
+    private void flush(List<RecordWrite> batch, boolean replay) {
+        Map<Integer, ParkingRecord> inserts = new LinkedHashMap<>();
+        List<ParkingRecord> exits = new ArrayList<>();
+        Map<Integer, String> spotStatus = new LinkedHashMap<>();
+        List<GateEventResult> gateEvents = new ArrayList<>();
+        for (RecordWrite event : batch) {
+            ParkingRecord record = event.toRecord();
+            if (event.getEventId() != null) {
+                GateEventResult gateEvent = new GateEventResult();
+                gateEvent.setEventId(event.getEventId());
+                gateEvent.setType(event.getType().name());
+                gateEvent.setRecordId(event.getRecordId());
+                gateEvents.add(gateEvent);
+            }
+            if (event.getType() == RecordWrite.Type.ENTRY) {
+                inserts.put(record.getRecordId(), record);
+                spotStatus.put(record.getSpotId(), "OCCUPIED");
+            } else {
+                ParkingRecord inserted = inserts.get(record.getRecordId());
+                if (inserted != null) {
+                    inserted.setExitTime(record.getExitTime());
+                    inserted.setPayment(record.getPayment());
+                } else {
+                    exits.add(record);
+                }
+                spotStatus.put(record.getSpotId(), "FREE");
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            ParkingRecordMapper recordMapper = batchSession.getMapper(ParkingRecordMapper.class);
+            ParkingSpotMapper spotMapper = batchSession.getMapper(ParkingSpotMapper.class);
+            GateEventMapper gateEventMapper = batchSession.getMapper(GateEventMapper.class);
+            List<ParkingRecord> rows = new ArrayList<>(inserts.values());
+            for (int i = 0; i < rows.size(); i += MAX_ROWS_PER_INSERT) {
+                List<ParkingRecord> chunk = rows.subList(i, Math.min(rows.size(), i + MAX_ROWS_PER_INSERT));
+                if (replay) {
+                    recordMapper.replayRecords(chunk);
+                    checkReplayed(recordMapper, chunk);
+                } else {
+                    recordMapper.insertRecords(chunk);
+                }
+            }
+            for (ParkingRecord record : exits) {
+                recordMapper.updateRecord(record);
+            }
+            for (Map.Entry<Integer, String> e : spotStatus.entrySet()) {
+                spotMapper.updateSpotStatus(e.getKey(), e.getValue());
+            }
+            for (int i = 0; i < gateEvents.size(); i += MAX_ROWS_PER_INSERT) {
+                gateEventMapper.insertEvents(gateEvents.subList(i, Math.min(gateEvents.size(), i + MAX_ROWS_PER_INSERT)));
+            }
+            batchSession.flushStatements();
+        });
+        referenceDataCache.invalidateSpots(spotStatus.keySet());
+    }
+
+    // 重放时库里已有同 ID 的行必须是同一条记录，否则说明 ID 被其他客户端占用，不能静默合并
+    private static void checkReplayed(ParkingRecordMapper recordMapper, List<ParkingRecord> chunk) {
+        Map<Integer, ParkingRecord> expected = new LinkedHashMap<>();
+        for (ParkingRecord record : chunk) {
+            expected.put(record.getRecordId(), record);
+        }
+        for (ParkingRecord stored : recordMapper.getRecordsByIds(new ArrayList<>(expected.keySet()))) {
+            ParkingRecord record = expected.get(stored.getRecordId());
+            if (!record.getPlateNum().equals(stored.getPlateNum()) || !record.getSpotId().equals(stored.getSpotId())) {
+                throw new IllegalStateException("停车记录 ID " + stored.getRecordId() + " 已被其他记录占用（库中 "
+                        + stored.getPlateNum() + " / 车位 " + stored.getSpotId() + "，日志中 "
+                        + record.getPlateNum() + " / 车位 " + record.getSpotId() + "）");
+            }
+        }
+    }
+}
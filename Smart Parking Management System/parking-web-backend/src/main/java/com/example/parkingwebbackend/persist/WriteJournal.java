@@ -0,0 +1,186 @@
+package com.example.parkingwebbackend.persist;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 本地预写日志：事件先追加到当前段文件再确认，段文件在其中的事件全部落库后删除。
+ * 进程崩溃后，目录中残留的段文件就是尚未写入数据库的事件。非线程安全，由调用方加锁。
+ */
+class WriteJournal {
+    private static final Logger log = LoggerFactory.getLogger(WriteJournal.class);
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    // 无法落库的事件转存到这里等人工处理，文件名不以 PREFIX 开头，不会被重放
+    static final String DEAD_LETTER_FILE = "dead-letter.log";
+
+    private final Path dir;
+    private final boolean fsync;
+    private long segmentNo;
+    private Path current;
+    private FileChannel channel;
+    // 当前段末尾可能留有写失败的半行
+    private boolean tornTail;
+
+    WriteJournal(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        for (Path p : listSegments()) {
+            segmentNo = Math.max(segmentNo, segmentNo(p));
+        }
+        open();
+    }
+
+    /**
+     * 按写入顺序读出所有历史段（不含当前段）中的事件。
+     * 段末没有换行结尾的半行是崩溃时没写完的事件，调用方未收到确认，直接丢弃；
+     * 中间完整的行解析失败说明日志已损坏，原样转入死信文件并记错误日志，不静默丢弃
+     */
+    List<RecordWrite> readSealed() throws IOException {
+        List<RecordWrite> events = new ArrayList<>();
+        for (Path p : listSegments()) {
+            if (p.equals(current)) {
+                continue;
+            }
+            String content = Files.readString(p, StandardCharsets.UTF_8);
+            String[] lines = content.split("\n", -1);
+            // 以换行结尾时最后一段为空串
+            int complete = lines.length - 1;
+            if (!lines[complete].isEmpty()) {
+                log.warn("丢弃日志段 {} 末尾未写完的一行: {}", p, lines[complete]);
+            }
+            for (int i = 0; i < complete; i++) {
+                try {
+                    events.add(RecordWrite.decode(lines[i]));
+                } catch (RuntimeException e) {
+                    log.error("日志段 {} 第 {} 行已损坏，已转入死信文件: {}", p, i + 1, lines[i], e);
+                    appendDeadLetter(lines[i], "日志行损坏: " + p.getFileName() + " 第 " + (i + 1) + " 行");
+                }
+            }
+        }
+        return events;
+    }
+
+    List<Path> sealedSegments() throws IOException {
+        List<Path> list = listSegments();
+        list.remove(current);
+        return list;
+    }
+
+    void append(RecordWrite event) throws IOException {
+        write(event.encode() + "\n");
+    }
+
+    /**
+     * 一次写入、一次 fsync 追加多条事件
+     */
+    void appendAll(List<RecordWrite> events) throws IOException {
+        StringBuilder sb = new StringBuilder(events.size() * 64);
+        for (RecordWrite event : events) {
+            sb.append(event.encode()).append('\n');
+        }
+        write(sb.toString());
+    }
+
+    private void write(String lines) throws IOException {
+        if (tornTail) {
+            // 上次写失败且没能截掉半行：先补换行，让半行单独成行，不和这次的事件拼在一起
+            lines = "\n" + lines;
+        }
+        long size = channel.size();
+        ByteBuffer buf = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            tornTail = false;
+        } catch (IOException e) {
+            discardPartial(size, e);
+            throw e;
+        }
+    }
+
+    // 写入失败的事件没有确认给调用方，截掉已写入的部分；截断也失败时记下，下次写入先补换行
+    private void discardPartial(long size, IOException cause) {
+        try {
+            channel.truncate(size);
+            tornTail = false;
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            tornTail = true;
+        }
+    }
+
+    /**
+     * 追加一条无法落库的事件及原因，格式为日志行后接 \t 和原因
+     */
+    void deadLetter(RecordWrite event, String reason) throws IOException {
+        appendDeadLetter(event.encode(), reason);
+    }
+
+    private void appendDeadLetter(String line, String reason) throws IOException {
+        Files.writeString(dir.resolve(DEAD_LETTER_FILE), line + "\t" + reason.replaceAll("\\s", " ") + "\n",
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 封存当前段并开启新段，返回被封存的段文件
+     */
+    Path roll() throws IOException {
+        Path sealed = current;
+        channel.close();
+        open();
+        return sealed;
+    }
+
+    void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    void close() throws IOException {
+        channel.close();
+        if (Files.size(current) == 0) {
+            Files.delete(current);
+        }
+    }
+
+    private void open() throws IOException {
+        segmentNo++;
+        current = dir.resolve(PREFIX + segmentNo + SUFFIX);
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        tornTail = false;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> list = new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .toList());
+            list.sort(Comparator.comparingLong(WriteJournal::segmentNo));
+            return list;
+        }
+    }
+
+    private static long segmentNo(Path p) {
+        String name = p.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
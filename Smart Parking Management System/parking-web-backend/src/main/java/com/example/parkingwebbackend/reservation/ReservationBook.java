@@ -0,0 +1,161 @@
+package com.example.parkingwebbackend.reservation;
+
+import com.example.parkingwebbackend.model.Reservation;
+import com.example.parkingwebbackend.service.PlateIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的预约登记簿，到期由 {@link TimerWheel} 触发。
+ * <p>
+ * 一条预约只能以一种方式结束：入场认领、取消或到期。三条路径都先从 byId 中移除这条预约，
+ * 移除成功的一方才负责改车位状态，因此不会出现“已到期释放的车位又被认领”的情况。
+ * 预约不落库，服务重启后全部失效。
+ */
+@Component
+public class ReservationBook {
+    private static final Logger log = LoggerFactory.getLogger(ReservationBook.class);
+
+    private final Map<Long, Hold> byId = new ConcurrentHashMap<>();
+    private final Map<String, Hold> byPlate = new ConcurrentHashMap<>();
+    private final AtomicLong idSeq = new AtomicLong();
+    private final long defaultTtlMillis;
+    private final long maxTtlMillis;
+    private final TimerWheel<Hold> wheel;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "parking-reservation-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Consumer<Reservation> expiryHandler = r -> { };
+
+    public ReservationBook(@Value("${parking.reservation.default-ttl-seconds:900}") long defaultTtlSeconds,
+                           @Value("${parking.reservation.max-ttl-seconds:7200}") long maxTtlSeconds,
+                           @Value("${parking.reservation.tick-ms:1000}") long tickMs,
+                           @Value("${parking.reservation.wheel-size:512}") int wheelSize) {
+        this.defaultTtlMillis = TimeUnit.SECONDS.toMillis(defaultTtlSeconds);
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtlSeconds);
+        this.wheel = new TimerWheel<>(tickMs, wheelSize, System.currentTimeMillis(), this::expire);
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * 预约到期时的回调，负责把车位放回空闲状态
+     */
+    public void onExpire(Consumer<Reservation> handler) {
+        this.expiryHandler = handler;
+    }
+
+    /**
+     * 登记一条预约；该车牌已有预约时返回 null
+     *
+     * @param ttlSeconds 保留时长，为 null 时取默认值，超过上限时按上限
+     */
+    public Reservation hold(String plateNum, int spotId, Integer floor, Integer ttlSeconds) {
+        long ttlMillis = ttlSeconds == null ? defaultTtlMillis
+                : Math.min(TimeUnit.SECONDS.toMillis(Math.max(1, ttlSeconds)), maxTtlMillis);
+        long now = System.currentTimeMillis();
+        Reservation reservation = new Reservation();
+        reservation.setReservationId(idSeq.incrementAndGet());
+        reservation.setPlateNum(plateNum.trim());
+        reservation.setSpotId(spotId);
+        reservation.setFloor(floor);
+        reservation.setCreatedAt(new Date(now));
+        reservation.setExpiresAt(new Date(now + ttlMillis));
+        Hold hold = new Hold(reservation, PlateIndex.normalize(plateNum));
+        if (byPlate.putIfAbsent(hold.plateKey, hold) != null) {
+            return null;
+        }
+        byId.put(reservation.getReservationId(), hold);
+        hold.timeout = wheel.schedule(hold, now + ttlMillis);
+        return reservation;
+    }
+
+    /**
+     * 入场认领：该车牌在这个车位上有预约时结束预约并返回它，否则返回 null
+     */
+    public Reservation claim(String plateNum, int spotId) {
+        Hold hold = byPlate.get(PlateIndex.normalize(plateNum));
+        if (hold == null || hold.reservation.getSpotId() != spotId || !remove(hold)) {
+            return null;
+        }
+        return hold.reservation;
+    }
+
+    public Reservation cancel(long reservationId) {
+        Hold hold = byId.get(reservationId);
+        return hold != null && remove(hold) ? hold.reservation : null;
+    }
+
+    public Reservation getByPlate(String plateNum) {
+        Hold hold = byPlate.get(PlateIndex.normalize(plateNum));
+        return hold == null ? null : hold.reservation;
+    }
+
+    public Reservation get(long reservationId) {
+        Hold hold = byId.get(reservationId);
+        return hold == null ? null : hold.reservation;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private boolean remove(Hold hold) {
+        if (!byId.remove(hold.reservation.getReservationId(), hold)) {
+            return false;
+        }
+        byPlate.remove(hold.plateKey, hold);
+        if (hold.timeout != null) {
+            hold.timeout.cancel();
+        }
+        return true;
+    }
+
+    private void expire(Hold hold) {
+        if (!remove(hold)) {
+            return;
+        }
+        try {
+            expiryHandler.accept(hold.reservation);
+        } catch (RuntimeException e) {
+            log.warn("释放到期预约的车位失败: {}", hold.reservation.getSpotId(), e);
+        }
+    }
+
+    private void tick() {
+        try {
+            wheel.advance(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.warn("处理到期预约失败", e);
+        }
+    }
+
+    private static final class Hold {
+        final Reservation reservation;
+        final String plateKey;
+        volatile TimerWheel.Timeout<Hold> timeout;
+
+        Hold(Reservation reservation, String plateKey) {
+            this.reservation = reservation;
+            this.plateKey = plateKey;
+        }
+    }
+}
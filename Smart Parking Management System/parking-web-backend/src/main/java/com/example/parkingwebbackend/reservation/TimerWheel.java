@@ -0,0 +1,148 @@
+package com.example.parkingwebbackend.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮：按 tick 把到期时间散列到环形数组的格子里，每个 tick 只处理当前这一格，
+ * 与登记的定时任务总数无关。
+ * <p>
+ * 任意线程都可以 {@link #schedule}，新任务先进入无锁队列；格子本身只由调用 {@link #advance} 的线程访问。
+ * 取消只是打标记，被取消的任务在轮到它所在的格子时丢弃。
+ */
+public final class TimerWheel<T> {
+    private final long tickMillis;
+    private final long startMillis;
+    private final List<List<Timeout<T>>> buckets;
+    private final int mask;
+    private final Queue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Consumer<T> onExpire;
+    private long currentTick;
+
+    /**
+     * @param wheelSize 格子数，向上取整为 2 的幂
+     * @param onExpire  到期回调，在调用 advance 的线程上执行
+     */
+    public TimerWheel(long tickMillis, int wheelSize, long startMillis, Consumer<T> onExpire) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis 和 wheelSize 必须大于 0");
+        }
+        int n = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.buckets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.mask = n - 1;
+        this.onExpire = onExpire;
+    }
+
+    /**
+     * 登记一个在 deadlineMillis 之后到期的任务（精度为一个 tick）
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        long tick = Math.max(0, (deadlineMillis - startMillis + tickMillis - 1) / tickMillis);
+        Timeout<T> timeout = new Timeout<>(item, tick, this);
+        size.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 推进到 nowMillis 所在的 tick，触发这之间到期的任务，返回触发的个数
+     */
+    public int advance(long nowMillis) {
+        long target = (nowMillis - startMillis) / tickMillis;
+        int expired = 0;
+        while (currentTick <= target) {
+            transferIncoming();
+            expired += expireBucket(buckets.get((int) (currentTick & mask)));
+            currentTick++;
+        }
+        return expired;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void transferIncoming() {
+        Timeout<T> timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // 已经过期的任务放进当前格，马上触发
+            long tick = Math.max(timeout.deadlineTick, currentTick);
+            buckets.get((int) (tick & mask)).add(timeout);
+        }
+    }
+
+    // 当前格中到期的任务触发，未到期的（还要再转几圈）原地保留
+    private int expireBucket(List<Timeout<T>> bucket) {
+        int kept = 0;
+        int expired = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout<T> timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.deadlineTick <= currentTick) {
+                if (timeout.expire()) {
+                    expired++;
+                    onExpire.accept(timeout.item);
+                }
+                continue;
+            }
+            bucket.set(kept++, timeout);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+        return expired;
+    }
+
+    public static final class Timeout<T> {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final T item;
+        private final long deadlineTick;
+        private final TimerWheel<T> wheel;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        Timeout(T item, long deadlineTick, TimerWheel<T> wheel) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+            this.wheel = wheel;
+        }
+
+        /**
+         * 取消任务；返回 false 表示任务已经触发或已取消
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                wheel.size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private boolean expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                wheel.size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.Availability;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按停车场 × 楼层和全场维护的空闲 / 占用 / 预约车位数。
+ * <p>
+ * 每次车位状态变化只对旧状态减一、新状态加一，计数用 {@link LongAdder}，闸口并发入场时不会争用同一个缓存行；
+ * 按层、按场的读取只是把几个分段的计数加起来，与车位总数无关。计数若因通知丢失而漂移，由 {@link #reconcile} 定期按占用表校正；
+ * 其他客户端直接写库造成的变化在校正前先折算进占用表（见 ParkingServiceImpl#reconcileAvailability）。
+ */
+@Component
+public class AvailabilityCounters implements OccupancyListener {
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityCounters.class);
+    private static final int STATES = 3; // FREE / OCCUPIED / RESERVED
+    private static final int NO_FLOOR = 0; // floor 为空的车位记在 0 层
+    private static final int DEFAULT_LOT = 1;
+
+    // 键为 停车场(高 32 位) + 楼层(低 32 位)
+    private final Map<Long, LongAdder[]> bySegment = new ConcurrentHashMap<>();
+    private final LongAdder[] facility = newCounters();
+    // 上一次校正时发现的偏差：同一偏差连续出现两次才修正，避免把正在进行中的状态变化当成漂移
+    private Map<Long, long[]> pendingDrift = new HashMap<>();
+
+    public synchronized void rebuild(Collection<ParkingSpot> spots) {
+        bySegment.clear();
+        for (LongAdder counter : facility) {
+            counter.reset();
+        }
+        for (ParkingSpot spot : spots) {
+            int state = OccupancyTable.toState(spot.getStatus());
+            counters(segmentOf(spot))[state].increment();
+            facility[state].increment();
+        }
+        pendingDrift = new HashMap<>();
+    }
+
+    @Override
+    public void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record) {
+        int from = OccupancyTable.toState(previousStatus);
+        int to = OccupancyTable.toState(spot.getStatus());
+        if (from == to) {
+            return;
+        }
+        LongAdder[] segment = counters(segmentOf(spot));
+        segment[from].decrement();
+        segment[to].increment();
+        facility[from].decrement();
+        facility[to].increment();
+    }
+
+    public Availability getFacility() {
+        return toAvailability(null, null, sum(facility));
+    }
+
+    /**
+     * 某一层（各停车场合计）的车位数，没有这一层时返回 null
+     */
+    public Availability getFloor(int floor) {
+        long[] counts = null;
+        for (Map.Entry<Long, LongAdder[]> e : bySegment.entrySet()) {
+            if (floorOf(e.getKey()) == floor) {
+                counts = add(counts, e.getValue());
+            }
+        }
+        return counts == null ? null : toAvailability(null, floor, counts);
+    }
+
+    /**
+     * 某一层（floor 为 null 时为全场）某个状态的车位数
+     */
+    public long count(Integer floor, int state) {
+        if (floor == null) {
+            return facility[state].sum();
+        }
+        long count = 0;
+        for (Map.Entry<Long, LongAdder[]> e : bySegment.entrySet()) {
+            if (floorOf(e.getKey()) == floor) {
+                count += e.getValue()[state].sum();
+            }
+        }
+        return count;
+    }
+
+    public Set<Integer> getFloorNumbers() {
+        Set<Integer> floors = new TreeSet<>();
+        for (Long segment : bySegment.keySet()) {
+            floors.add(floorOf(segment));
+        }
+        return floors;
+    }
+
+    public List<Availability> getFloors() {
+        Map<Integer, long[]> floors = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder[]> e : bySegment.entrySet()) {
+            floors.merge(floorOf(e.getKey()), sum(e.getValue()), AvailabilityCounters::add);
+        }
+        List<Availability> list = new ArrayList<>();
+        floors.forEach((floor, counts) -> list.add(toAvailability(null, floor, counts)));
+        return list;
+    }
+
+    /**
+     * 各停车场的车位数，按场号排序；lotIds 为 null 时返回全部
+     */
+    public List<Availability> getLots(Collection<Integer> lotIds) {
+        Map<Integer, long[]> lots = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder[]> e : bySegment.entrySet()) {
+            int lot = lotOf(e.getKey());
+            if (lotIds == null || lotIds.contains(lot)) {
+                lots.merge(lot, sum(e.getValue()), AvailabilityCounters::add);
+            }
+        }
+        List<Availability> list = new ArrayList<>();
+        lots.forEach((lot, counts) -> list.add(toAvailability(lot, null, counts)));
+        return list;
+    }
+
+    /**
+     * 用车位快照校正计数，返回本次修正的计数个数
+     */
+    public synchronized int reconcile(Collection<ParkingSpot> spots) {
+        Map<Long, long[]> expected = new HashMap<>();
+        for (ParkingSpot spot : spots) {
+            expected.computeIfAbsent(segmentOf(spot), k -> new long[STATES])[OccupancyTable.toState(spot.getStatus())]++;
+        }
+        for (Long segment : bySegment.keySet()) {
+            expected.computeIfAbsent(segment, k -> new long[STATES]);
+        }
+        Map<Long, long[]> drift = new HashMap<>();
+        int corrected = 0;
+        for (Map.Entry<Long, long[]> e : expected.entrySet()) {
+            LongAdder[] counters = counters(e.getKey());
+            long[] delta = new long[STATES];
+            boolean drifted = false;
+            for (int s = 0; s < STATES; s++) {
+                delta[s] = e.getValue()[s] - counters[s].sum();
+                drifted |= delta[s] != 0;
+            }
+            if (!drifted) {
+                continue;
+            }
+            long[] previous = pendingDrift.get(e.getKey());
+            if (previous == null || !Arrays.equals(previous, delta)) {
+                drift.put(e.getKey(), delta);
+                continue;
+            }
+            for (int s = 0; s < STATES; s++) {
+                if (delta[s] != 0) {
+                    counters[s].add(delta[s]);
+                    facility[s].add(delta[s]);
+                    corrected++;
+                }
+            }
+            log.warn("{} 号停车场 {} 层车位计数漂移，已校正: FREE {}, OCCUPIED {}, RESERVED {}",
+                    lotOf(e.getKey()), floorOf(e.getKey()), delta[OccupancyTable.FREE],
+                    delta[OccupancyTable.OCCUPIED], delta[OccupancyTable.RESERVED]);
+        }
+        pendingDrift = drift;
+        return corrected;
+    }
+
+    private LongAdder[] counters(long segment) {
+        return bySegment.computeIfAbsent(segment, k -> newCounters());
+    }
+
+    private static long segmentOf(ParkingSpot spot) {
+        int lot = spot.getLotId() == null ? DEFAULT_LOT : spot.getLotId();
+        int floor = spot.getFloor() == null ? NO_FLOOR : spot.getFloor();
+        return ((long) lot << 32) | (floor & 0xFFFFFFFFL);
+    }
+
+    private static int lotOf(long segment) {
+        return (int) (segment >>> 32);
+    }
+
+    private static int floorOf(long segment) {
+        return (int) segment;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[STATES];
+        for (int i = 0; i < STATES; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static long[] sum(LongAdder[] counters) {
+        long[] counts = new long[STATES];
+        for (int s = 0; s < STATES; s++) {
+            counts[s] = counters[s].sum();
+        }
+        return counts;
+    }
+
+    private static long[] add(long[] a, LongAdder[] b) {
+        return add(a == null ? new long[STATES] : a, sum(b));
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        for (int s = 0; s < STATES; s++) {
+            a[s] += b[s];
+        }
+        return a;
+    }
+
+    private static Availability toAvailability(Integer lotId, Integer floor, long[] counts) {
+        Availability a = new Availability();
+        a.setLotId(lotId);
+        a.setFloor(floor);
+        a.setFree(counts[OccupancyTable.FREE]);
+        a.setOccupied(counts[OccupancyTable.OCCUPIED]);
+        a.setReserved(counts[OccupancyTable.RESERVED]);
+        return a;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+
+/**
+ * 车位状态变化的监听器。在入场/出场的调用线程上同步回调，实现必须足够快且不能阻塞。
+ */
+public interface OccupancyListener {
+    /**
+     * @param spot           变化后的车位快照，status 为本次变化后的状态
+     * @param previousStatus 本次变化前的状态
+     * @param record         入场时为新的停车记录，出场时为已结算的记录，其他变化为 null
+     */
+    void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record);
+}
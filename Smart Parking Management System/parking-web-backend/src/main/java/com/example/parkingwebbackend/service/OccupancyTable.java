@@ -0,0 +1,224 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 进程内车位占用表：以 spotId 为下标的原始数组，车位的占用/释放都用 CAS 完成，
+ * 多个闸口终端并发入场时互不阻塞，也不需要数据库行锁。
+ */
+public class OccupancyTable {
+    public static final int ABSENT = -1;
+    public static final int FREE = 0;
+    public static final int OCCUPIED = 1;
+    public static final int RESERVED = 2;
+    // 出场进行中：车辆仍在场，但已由一个请求取得出场权，其他请求既不能占用也不能再次出场
+    public static final int LEAVING = 3;
+
+    private final AtomicIntegerArray states;
+    private final AtomicReferenceArray<ParkingRecord> activeRecords;
+    private final ParkingSpot[] spots;
+
+    public OccupancyTable(List<ParkingSpot> spotList, List<ParkingRecord> activeList) {
+        int capacity = 0;
+        for (ParkingSpot spot : spotList) {
+            capacity = Math.max(capacity, spot.getSpotId() + 1);
+        }
+        states = new AtomicIntegerArray(capacity);
+        activeRecords = new AtomicReferenceArray<>(capacity);
+        spots = new ParkingSpot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            states.set(i, ABSENT);
+        }
+        for (ParkingSpot spot : spotList) {
+            spots[spot.getSpotId()] = spot;
+            // 预约只保存在内存中，重启后失效
+            int state = toState(spot.getStatus());
+            states.set(spot.getSpotId(), state == RESERVED ? FREE : state);
+        }
+        for (ParkingRecord record : activeList) {
+            if (contains(record.getSpotId())) {
+                activeRecords.set(record.getSpotId(), record);
+                states.set(record.getSpotId(), OCCUPIED);
+            }
+        }
+    }
+
+    public boolean contains(Integer spotId) {
+        return spotId != null && spotId >= 0 && spotId < spots.length && spots[spotId] != null;
+    }
+
+    public int getState(int spotId) {
+        return contains(spotId) ? states.get(spotId) : ABSENT;
+    }
+
+    /**
+     * 抢占车位：只有 FREE -> OCCUPIED 的 CAS 成功的那一个请求能登记停车记录
+     */
+    public boolean tryOccupy(int spotId, ParkingRecord record) {
+        if (!contains(spotId) || !states.compareAndSet(spotId, FREE, OCCUPIED)) {
+            return false;
+        }
+        activeRecords.set(spotId, record);
+        return true;
+    }
+
+    /**
+     * 预约车位：FREE -> RESERVED
+     */
+    public boolean tryReserve(int spotId) {
+        return contains(spotId) && states.compareAndSet(spotId, FREE, RESERVED);
+    }
+
+    /**
+     * 取消预约：RESERVED -> FREE
+     */
+    public boolean cancelReservation(int spotId) {
+        return contains(spotId) && states.compareAndSet(spotId, RESERVED, FREE);
+    }
+
+    /**
+     * 预约的车辆入场：RESERVED -> OCCUPIED，由已认领预约的请求调用
+     */
+    public boolean tryClaim(int spotId, ParkingRecord record) {
+        if (!contains(spotId) || !states.compareAndSet(spotId, RESERVED, OCCUPIED)) {
+            return false;
+        }
+        activeRecords.set(spotId, record);
+        return true;
+    }
+
+    /**
+     * 比较后释放：只有车位上仍是 expected 这条记录时才释放，
+     * 不会误释放并发请求刚登记的新记录，也不会与正在出场的请求重复出场
+     */
+    public boolean release(int spotId, ParkingRecord expected) {
+        ParkingRecord record = beginRelease(spotId);
+        if (record == null) {
+            return false;
+        }
+        if (record != expected) {
+            abortRelease(spotId);
+            return false;
+        }
+        finishRelease(spotId);
+        return true;
+    }
+
+    /**
+     * 开始出场：OCCUPIED -> LEAVING，返回在场记录。车位在 {@link #finishRelease} 之前不会空出，
+     * 写日志失败时用 {@link #abortRelease} 原样退回，不存在被别的车抢占而无法恢复的窗口
+     */
+    public ParkingRecord beginRelease(int spotId) {
+        if (!contains(spotId) || !states.compareAndSet(spotId, OCCUPIED, LEAVING)) {
+            return null;
+        }
+        return activeRecords.get(spotId);
+    }
+
+    /**
+     * 完成出场：LEAVING -> FREE，只能由 beginRelease 成功的请求调用
+     */
+    public void finishRelease(int spotId) {
+        activeRecords.set(spotId, null);
+        states.set(spotId, FREE);
+    }
+
+    /**
+     * 放弃出场：LEAVING -> OCCUPIED，在场记录保持不变
+     */
+    public void abortRelease(int spotId) {
+        states.set(spotId, OCCUPIED);
+    }
+
+    /**
+     * 出场尚未完成时把车位直接交给下一辆车：LEAVING -> OCCUPIED，在场记录换成 record。
+     * 只能由 beginRelease 成功的请求调用（闸口同一批内同一车位先出场再入场），车位中途不会空出
+     */
+    public void handOver(int spotId, ParkingRecord record) {
+        activeRecords.set(spotId, record);
+        states.set(spotId, OCCUPIED);
+    }
+
+    /**
+     * 撤销 {@link #handOver}：车位上仍是 handedOver 这条记录时换回 previous 并回到 LEAVING，
+     * 之后由出场请求 {@link #abortRelease} 或 {@link #finishRelease}
+     */
+    public boolean takeBack(int spotId, ParkingRecord handedOver, ParkingRecord previous) {
+        ParkingRecord record = beginRelease(spotId);
+        if (record == null) {
+            return false;
+        }
+        if (record != handedOver) {
+            abortRelease(spotId);
+            return false;
+        }
+        activeRecords.set(spotId, previous);
+        return true;
+    }
+
+    public ParkingRecord getActiveRecord(int spotId) {
+        return contains(spotId) ? activeRecords.get(spotId) : null;
+    }
+
+    public List<ParkingRecord> activeRecords() {
+        List<ParkingRecord> list = new ArrayList<>();
+        for (int i = 0; i < spots.length; i++) {
+            ParkingRecord record = activeRecords.get(i);
+            if (record != null) {
+                list.add(record);
+            }
+        }
+        return list;
+    }
+
+    public Integer getLotId(int spotId) {
+        return contains(spotId) ? spots[spotId].getLotId() : null;
+    }
+
+    public ParkingSpot getSpot(int spotId) {
+        return contains(spotId) ? copyOf(spotId) : null;
+    }
+
+    public List<ParkingSpot> snapshot() {
+        List<ParkingSpot> list = new ArrayList<>();
+        for (int i = 0; i < spots.length; i++) {
+            if (spots[i] != null) {
+                list.add(copyOf(i));
+            }
+        }
+        return list;
+    }
+
+    private ParkingSpot copyOf(int spotId) {
+        ParkingSpot spot = spots[spotId];
+        ParkingSpot copy = new ParkingSpot();
+        copy.setSpotId(spot.getSpotId());
+        copy.setSpotNumber(spot.getSpotNumber());
+        copy.setFloor(spot.getFloor());
+        copy.setLotId(spot.getLotId());
+        copy.setZoneId(spot.getZoneId());
+        copy.setStatus(toStatus(states.get(spotId)));
+        return copy;
+    }
+
+    public static int toState(String status) {
+        if ("OCCUPIED".equals(status) || "LEAVING".equals(status)) return OCCUPIED;
+        if ("RESERVED".equals(status)) return RESERVED;
+        return FREE;
+    }
+
+    public static String toStatus(int state) {
+        switch (state) {
+            case OCCUPIED:
+            case LEAVING: return "OCCUPIED";
+            case RESERVED: return "RESERVED";
+            default: return "FREE";
+        }
+    }
+}
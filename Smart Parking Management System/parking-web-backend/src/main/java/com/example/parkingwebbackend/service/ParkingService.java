@@ -1,14 +1,36 @@
 package com.example.parkingwebbackend.service;
 
-import com.example.parking.model.ParkingSpot;
-import com.example.parking.model.ParkingRecord;
+import com.example.parkingwebbackend.model.GateEvent;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.RecordPage;
+import com.example.parkingwebbackend.model.RecordQuery;
+import com.example.parkingwebbackend.model.Reservation;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ParkingService {
     List<ParkingSpot> getAllSpots();
     boolean parkIn(String plateNum, Integer spotId);
+    /** 自动分配车位入场：优先 floor 层、靠近 nearSpotId 的空位，没有空位时返回 null */
+    ParkingRecord parkInAuto(String plateNum, Integer floor, Integer nearSpotId);
+    /** 在 lotId 号停车场内自动分配车位入场；lotId 为 null 时同 {@link #parkInAuto(String, Integer, Integer)} */
+    ParkingRecord parkInAuto(String plateNum, Integer lotId, Integer floor, Integer nearSpotId);
     BigDecimal parkOut(Integer spotId);
+    /** @deprecated 全表查询，数据量大时请改用 {@link #getParkingRecords(RecordQuery)} */
+    @Deprecated
     List<ParkingRecord> getParkingRecords();
+    RecordPage getParkingRecords(RecordQuery query);
+    void exportRecords(RecordQuery query, Consumer<ParkingRecord> consumer);
     ParkingRecord getActiveRecordBySpotId(Integer spotId);
+    ParkingRecord getActiveRecordByPlate(String plateNum);
+    List<ParkingRecord> searchActiveRecordsByPlate(String plateNum);
+    /** 为车牌预约指定车位，或 spotId 为 null 时预约 floor 层的任意空位；失败返回 null */
+    Reservation reserve(String plateNum, Integer spotId, Integer floor, Integer ttlSeconds);
+    boolean cancelReservation(Long reservationId);
+    Reservation getReservationByPlate(String plateNum);
+    /** 按顺序应用同一分片（车位互不交叉）的闸口事件，整批只写一次本地日志、随同一事务落库；不做去重 */
+    List<GateEventResult> applyGateEvents(List<GateEvent> events);
 }
\ No newline at end of file
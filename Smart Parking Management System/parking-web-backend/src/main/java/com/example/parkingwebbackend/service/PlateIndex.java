@@ -0,0 +1,190 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 在场车辆的车牌索引：规范化车牌 -> 当前停车记录。
+ * <p>
+ * 精确查询和前缀查询走跳表；另按“易混字符归一”后的键建一份索引（0/O/D/Q、1/I/L、8/B、2/Z、5/S），
+ * 用于纠正车牌识别的常见误读，最后才退化为编辑距离 1 的线性比对。
+ */
+@Component
+public class PlateIndex implements OccupancyListener {
+    private static final int MAX_RESULTS = 20;
+
+    private final ConcurrentSkipListMap<String, ParkingRecord> byPlate = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<ParkingRecord>> byConfusionKey = new ConcurrentHashMap<>();
+
+    public void rebuild(Collection<ParkingRecord> activeRecords) {
+        byPlate.clear();
+        byConfusionKey.clear();
+        for (ParkingRecord record : activeRecords) {
+            add(record);
+        }
+    }
+
+    @Override
+    public void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record) {
+        if (record == null) {
+            return;
+        }
+        if (record.getExitTime() == null) {
+            add(record);
+        } else {
+            remove(record);
+        }
+    }
+
+    public ParkingRecord get(String plateNum) {
+        String key = normalize(plateNum);
+        return key.isEmpty() ? null : byPlate.get(key);
+    }
+
+    /**
+     * 按前缀查找在场车辆，如 "沪A1" 匹配所有以此开头的车牌
+     */
+    public List<ParkingRecord> findByPrefix(String prefix) {
+        String key = normalize(prefix);
+        List<ParkingRecord> result = new ArrayList<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        for (ParkingRecord record : byPlate.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            result.add(record);
+            if (result.size() >= MAX_RESULTS) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 容错查找：精确匹配 -> 易混字符匹配 -> 编辑距离为 1 的车牌
+     */
+    public List<ParkingRecord> findFuzzy(String plateNum) {
+        String key = normalize(plateNum);
+        List<ParkingRecord> result = new ArrayList<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        ParkingRecord exact = byPlate.get(key);
+        if (exact != null) {
+            result.add(exact);
+            return result;
+        }
+        Set<ParkingRecord> confused = byConfusionKey.get(confusionKey(key));
+        if (confused != null && !confused.isEmpty()) {
+            result.addAll(confused);
+            return result;
+        }
+        for (Map.Entry<String, ParkingRecord> e : byPlate.entrySet()) {
+            if (withinOneEdit(key, e.getKey())) {
+                result.add(e.getValue());
+                if (result.size() >= MAX_RESULTS) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byPlate.size();
+    }
+
+    private void add(ParkingRecord record) {
+        String key = normalize(record.getPlateNum());
+        if (key.isEmpty()) {
+            return;
+        }
+        byPlate.put(key, record);
+        byConfusionKey.computeIfAbsent(confusionKey(key), k -> ConcurrentHashMap.newKeySet()).add(record);
+    }
+
+    private void remove(ParkingRecord record) {
+        String key = normalize(record.getPlateNum());
+        if (key.isEmpty()) {
+            return;
+        }
+        byPlate.remove(key, record);
+        byConfusionKey.computeIfPresent(confusionKey(key), (k, set) -> {
+            set.remove(record);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 规范化车牌：去掉空格和分隔符，全角转半角，字母转大写
+     */
+    public static String normalize(String plateNum) {
+        if (plateNum == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(plateNum.length());
+        for (int i = 0; i < plateNum.length(); i++) {
+            char c = plateNum.charAt(i);
+            if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            }
+            if (Character.isWhitespace(c) || c == '-' || c == '.' || c == '·' || c == '•') {
+                continue;
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    static String confusionKey(String normalized) {
+        char[] chars = normalized.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            switch (chars[i]) {
+                case 'O': case 'D': case 'Q': chars[i] = '0'; break;
+                case 'I': case 'L': chars[i] = '1'; break;
+                case 'B': chars[i] = '8'; break;
+                case 'Z': chars[i] = '2'; break;
+                case 'S': chars[i] = '5'; break;
+                default: break;
+            }
+        }
+        return new String(chars);
+    }
+
+    // 判断两个字符串是否最多相差一次替换 / 插入 / 删除
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        if (la > lb) {
+            return withinOneEdit(b, a);
+        }
+        int i = 0, j = 0;
+        boolean edited = false;
+        while (i < la && j < lb) {
+            if (a.charAt(i) == b.charAt(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            if (edited) {
+                return false;
+            }
+            edited = true;
+            if (la == lb) {
+                i++;
+            }
+            j++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 自动分配车位用的按停车场、楼层划分的空闲表。
+ * <p>
+ * 每个停车场的每层一个按 spotId 排序的无锁跳表（编号越小越靠近该层入口），取车位时从跳表中原子地移除一个，
+ * 所以并发请求拿到的候选车位互不相同，取出和归还都是 O(log n)。
+ * 空闲表只是提示，真正占用车位仍以 {@link OccupancyTable#tryOccupy} 的 CAS 为准：
+ * 取出的车位若已被手动入场占用，调用方丢弃后再取下一个即可。
+ */
+@Component
+public class SpotAllocator implements OccupancyListener {
+    private static final int NO_FLOOR = 0; // floor 为空的车位记在 0 层
+    private static final int DEFAULT_LOT = 1;
+
+    private final Map<Integer, Map<Integer, ConcurrentSkipListSet<Integer>>> freeByLot = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> floorOfSpot = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> lotOfSpot = new ConcurrentHashMap<>();
+
+    public synchronized void rebuild(Collection<ParkingSpot> spots) {
+        freeByLot.clear();
+        floorOfSpot.clear();
+        lotOfSpot.clear();
+        for (ParkingSpot spot : spots) {
+            floorOfSpot.put(spot.getSpotId(), floorOf(spot));
+            lotOfSpot.put(spot.getSpotId(), lotOf(spot));
+            ConcurrentSkipListSet<Integer> free = freeByLot.computeIfAbsent(lotOf(spot), k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(floorOf(spot), k -> new ConcurrentSkipListSet<>());
+            if (OccupancyTable.toState(spot.getStatus()) == OccupancyTable.FREE) {
+                free.add(spot.getSpotId());
+            }
+        }
+    }
+
+    @Override
+    public void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record) {
+        if (OccupancyTable.toState(spot.getStatus()) == OccupancyTable.FREE) {
+            free(spot.getSpotId());
+        } else {
+            ConcurrentSkipListSet<Integer> free = freeSet(lotOf(spot), floorOf(spot));
+            if (free != null) {
+                free.remove(spot.getSpotId());
+            }
+        }
+    }
+
+    public Integer take(Integer preferredFloor, Integer nearSpotId) {
+        return take(null, preferredFloor, nearSpotId);
+    }
+
+    /**
+     * 取出一个候选空闲车位，没有空位时返回 null。
+     *
+     * @param lotId          只在该停车场内分配；为 null 时取 nearSpotId 所在的场，都没有则按场号依次尝试
+     * @param preferredFloor 优先分配的楼层，该层已满时按楼层远近依次尝试；为 null 时从最低层开始
+     * @param nearSpotId     入口附近的车位，优先分配同层中编号与其最接近的车位；为 null 时取编号最小的
+     */
+    public Integer take(Integer lotId, Integer preferredFloor, Integer nearSpotId) {
+        Integer nearFloor = nearSpotId == null ? null : floorOfSpot.get(nearSpotId);
+        Integer nearLot = nearSpotId == null ? null : lotOfSpot.get(nearSpotId);
+        List<Integer> lots;
+        if (lotId != null || nearLot != null) {
+            lots = List.of(lotId != null ? lotId : nearLot);
+        } else {
+            lots = new ArrayList<>(freeByLot.keySet());
+            lots.sort(Comparator.naturalOrder());
+        }
+        for (Integer lot : lots) {
+            Map<Integer, ConcurrentSkipListSet<Integer>> floors = freeByLot.get(lot);
+            if (floors == null) {
+                continue;
+            }
+            boolean sameLot = lot.equals(nearLot);
+            Integer origin = preferredFloor != null ? preferredFloor : sameLot ? nearFloor : null;
+            for (Integer floor : floorsByDistance(floors.keySet(), origin)) {
+                ConcurrentSkipListSet<Integer> free = floors.get(floor);
+                Integer spotId = sameLot && floor.equals(nearFloor) ? takeNearest(free, nearSpotId) : free.pollFirst();
+                if (spotId != null) {
+                    return spotId;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把车位放回空闲表：车位变为空闲，或取出后没能用上时调用
+     */
+    public void free(int spotId) {
+        Integer floor = floorOfSpot.get(spotId);
+        Integer lot = lotOfSpot.get(spotId);
+        ConcurrentSkipListSet<Integer> free = floor == null || lot == null ? null : freeSet(lot, floor);
+        if (free != null) {
+            free.add(spotId);
+        }
+    }
+
+    /**
+     * 按车位快照补回遗漏的空闲车位（并发通知乱序时可能出现），返回补回的个数。
+     * 多出来的非空闲车位不必处理，取出时 CAS 失败就会被丢弃。
+     */
+    public int reconcile(Collection<ParkingSpot> spots) {
+        int added = 0;
+        for (ParkingSpot spot : spots) {
+            if (OccupancyTable.toState(spot.getStatus()) == OccupancyTable.FREE) {
+                ConcurrentSkipListSet<Integer> free = freeSet(lotOf(spot), floorOf(spot));
+                if (free != null && free.add(spot.getSpotId())) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 某一层（各停车场合计）的空闲车位数
+     */
+    public int getFreeCount(int floor) {
+        int count = 0;
+        for (Map<Integer, ConcurrentSkipListSet<Integer>> floors : freeByLot.values()) {
+            ConcurrentSkipListSet<Integer> free = floors.get(floor);
+            count += free == null ? 0 : free.size();
+        }
+        return count;
+    }
+
+    private ConcurrentSkipListSet<Integer> freeSet(int lot, int floor) {
+        Map<Integer, ConcurrentSkipListSet<Integer>> floors = freeByLot.get(lot);
+        return floors == null ? null : floors.get(floor);
+    }
+
+    private static List<Integer> floorsByDistance(Collection<Integer> floorNumbers, Integer origin) {
+        List<Integer> floors = new ArrayList<>(floorNumbers);
+        if (origin == null) {
+            floors.sort(Comparator.naturalOrder());
+        } else {
+            floors.sort(Comparator.<Integer>comparingInt(f -> Math.abs(f - origin)).thenComparing(f -> f));
+        }
+        return floors;
+    }
+
+    // 在 near 两侧各找一个空位，取较近的；被别的请求抢先移除时重试
+    private static Integer takeNearest(ConcurrentSkipListSet<Integer> free, int near) {
+        while (true) {
+            Integer above = free.ceiling(near);
+            Integer below = free.lower(near);
+            Integer pick;
+            if (above == null) {
+                pick = below;
+            } else if (below == null) {
+                pick = above;
+            } else {
+                pick = above - near <= near - below ? above : below;
+            }
+            if (pick == null) {
+                return null;
+            }
+            if (free.remove(pick)) {
+                return pick;
+            }
+        }
+    }
+
+    private static int floorOf(ParkingSpot spot) {
+        return spot.getFloor() == null ? NO_FLOOR : spot.getFloor();
+    }
+
+    private static int lotOf(ParkingSpot spot) {
+        return spot.getLotId() == null ? DEFAULT_LOT : spot.getLotId();
+    }
+}
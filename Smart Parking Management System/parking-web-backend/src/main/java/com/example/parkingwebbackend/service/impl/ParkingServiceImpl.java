@@ -0,0 +1,859 @@
+package com.example.parkingwebbackend.service.impl;
+
+import com.example.parkingwebbackend.analytics.RevenueRollup;
+import com.example.parkingwebbackend.cluster.LotTopology;
+import com.example.parkingwebbackend.fee.TariffEngine;
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.metrics.ParkingMetrics;
+import com.example.parkingwebbackend.model.GateEvent;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.model.RecordPage;
+import com.example.parkingwebbackend.model.RecordQuery;
+import com.example.parkingwebbackend.model.Reservation;
+import com.example.parkingwebbackend.persist.OccupancySnapshot;
+import com.example.parkingwebbackend.persist.RecordWrite;
+import com.example.parkingwebbackend.persist.RecordWriteBehind;
+import com.example.parkingwebbackend.reservation.ReservationBook;
+import com.example.parkingwebbackend.service.AvailabilityCounters;
+import com.example.parkingwebbackend.service.OccupancyListener;
+import com.example.parkingwebbackend.service.OccupancyTable;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.example.parkingwebbackend.service.PlateIndex;
+import com.example.parkingwebbackend.service.SpotAllocator;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 车位状态保存在进程内的 {@link OccupancyTable} 中，入场/出场只做内存 CAS，
+ * 数据库写入交给 {@link RecordWriteBehind} 写本地日志后异步批量落库。
+ * 桌面客户端直接写库的入场 / 出场由 {@link #syncExternal()} 定期折算进占用表。
+ */
+@Service
+public class ParkingServiceImpl implements ParkingService {
+    private static final Logger log = LoggerFactory.getLogger(ParkingServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int REPLAY_CHUNK = 1000;
+
+    private final ParkingSpotMapper spotMapper;
+    private final ParkingRecordMapper recordMapper;
+    private final TariffEngine tariffEngine;
+    private final RecordWriteBehind writeBehind;
+    private final PlateIndex plateIndex;
+    private final AvailabilityCounters availabilityCounters;
+    private final SpotAllocator spotAllocator;
+    private final ParkingMetrics metrics;
+    private final ReservationBook reservationBook;
+    private final RevenueRollup revenueRollup;
+    private final OccupancySnapshot occupancySnapshot;
+    private final LotTopology topology;
+    private final ObjectProvider<OccupancyListener> listenerProvider;
+    /**
+     * 桌面客户端直接写库，停车记录 ID 从这里开始自行分配；本服务分配的 ID 始终小于它，两边不会撞车
+     */
+    public static final int DESKTOP_RECORD_ID_BASE = 1_000_000_000;
+
+    private final AtomicInteger recordIdSeq = new AtomicInteger();
+    private final int recordIdStride;
+
+    private volatile OccupancyTable table;
+    // 在场车牌的占用登记：规范化车牌 -> 持有它的停车记录。入场先 putIfAbsent 登记车牌再抢车位，
+    // 失败或出场时按记录比较后移除；车牌索引要等日志写完才更新，不能用来判断重复入场
+    private final ConcurrentHashMap<String, ParkingRecord> plateClaims = new ConcurrentHashMap<>();
+    private List<OccupancyListener> listeners = List.of();
+    // 下一次快照的回放下界：上一次写快照时已分配的最大记录 ID，此后分配的记录恢复时从数据库重读
+    private volatile int snapshotReplayFrom;
+    // 已折算进占用表的桌面客户端记录的最大 ID
+    private int externalSeen;
+
+    public ParkingServiceImpl(ParkingSpotMapper spotMapper, ParkingRecordMapper recordMapper,
+                              TariffEngine tariffEngine, RecordWriteBehind writeBehind,
+                              PlateIndex plateIndex, AvailabilityCounters availabilityCounters,
+                              SpotAllocator spotAllocator, ParkingMetrics metrics,
+                              ReservationBook reservationBook, RevenueRollup revenueRollup,
+                              OccupancySnapshot occupancySnapshot, LotTopology topology, ObjectProvider<OccupancyListener> listenerProvider) {
+        this.spotMapper = spotMapper;
+        this.recordMapper = recordMapper;
+        this.tariffEngine = tariffEngine;
+        this.writeBehind = writeBehind;
+        this.plateIndex = plateIndex;
+        this.availabilityCounters = availabilityCounters;
+        this.spotAllocator = spotAllocator;
+        this.metrics = metrics;
+        this.reservationBook = reservationBook;
+        this.revenueRollup = revenueRollup;
+        this.occupancySnapshot = occupancySnapshot;
+        this.topology = topology;
+        this.recordIdStride = topology.getNodeCount();
+        this.listenerProvider = listenerProvider;
+    }
+
+    /**
+     * 有可用快照时从快照恢复，只回放快照之后的数据库变化；否则全量加载。
+     * 本地日志中未落库的事件已由 {@link RecordWriteBehind#start()} 先行重放，此时数据库是完整的。
+     * 多停车场部署时只加载本节点负责的停车场。
+     */
+    @PostConstruct
+    public void load() {
+        long start = System.nanoTime();
+        OccupancySnapshot.Image image = occupancySnapshot.read();
+        Set<Integer> ownedLots = topology.ownedLots(spotMapper.getLotIds());
+        List<ParkingRecord> active;
+        List<ParkingSpot> spotList;
+        if (image != null) {
+            active = replayActive(image);
+            spotList = spotsUnchanged(image.getSpots(), ownedLots) ? image.getSpots()
+                    : owned(spotMapper.getAllSpots(), ParkingSpot::getLotId);
+        } else {
+            active = owned(recordMapper.getActiveRecords(), ParkingRecord::getLotId);
+            spotList = owned(spotMapper.getAllSpots(), ParkingSpot::getLotId);
+        }
+        table = new OccupancyTable(spotList, active);
+        plateIndex.rebuild(active);
+        plateClaims.clear();
+        for (ParkingRecord record : active) {
+            plateClaims.put(PlateIndex.normalize(record.getPlateNum()), record);
+        }
+        List<ParkingSpot> spots = table.snapshot();
+        availabilityCounters.rebuild(spots);
+        spotAllocator.rebuild(spots);
+        metrics.bindAvailability(availabilityCounters);
+        recordIdSeq.set(alignRecordId(recordMapper.getMaxRecordId(DESKTOP_RECORD_ID_BASE)));
+        snapshotReplayFrom = recordIdSeq.get();
+        // 启动时已有的桌面记录随在场记录一并加载
+        externalSeen = Math.max(DESKTOP_RECORD_ID_BASE - 1, recordMapper.getMaxRecordId(Integer.MAX_VALUE));
+        revenueRollup.startBackfill(spots, active, recordIdSeq.get(), DESKTOP_RECORD_ID_BASE);
+        listeners = listenerProvider.orderedStream().toList();
+        reservationBook.onExpire(this::releaseReservation);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (image != null) {
+            log.info("占用表从快照 #{} 恢复：在场 {} 辆，回放记录 ID > {}，耗时 {} ms",
+                    image.getSequence(), active.size(), image.getReplayFromId(), ms);
+        } else {
+            log.info("占用表全量加载：在场 {} 辆，耗时 {} ms", active.size(), ms);
+        }
+    }
+
+    // 快照中不大于回放下界的在场记录只需按主键确认仍未出场（库里已没有的也丢弃），之后分配的记录全部从数据库重读
+    private List<ParkingRecord> replayActive(OccupancySnapshot.Image image) {
+        int replayFrom = image.getReplayFromId();
+        Map<Integer, ParkingRecord> candidates = new LinkedHashMap<>();
+        for (ParkingRecord record : image.getActiveRecords()) {
+            if (record.getRecordId() <= replayFrom) {
+                candidates.put(record.getRecordId(), record);
+            }
+        }
+        Map<Integer, ParkingRecord> byId = new LinkedHashMap<>();
+        List<Integer> ids = new ArrayList<>(candidates.keySet());
+        for (int i = 0; i < ids.size(); i += REPLAY_CHUNK) {
+            for (Integer open : recordMapper.getOpenRecordIds(ids.subList(i, Math.min(ids.size(), i + REPLAY_CHUNK)))) {
+                byId.put(open, candidates.get(open));
+            }
+        }
+        for (ParkingRecord record : recordMapper.getRecordsAfter(replayFrom)) {
+            if (record.getExitTime() == null && topology.ownsLot(record.getLotId())) {
+                byId.put(record.getRecordId(), record);
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    // spot_id 自增不复用：本节点负责的车位条数和最大 ID 都没变，说明快照之后没有增删车位
+    private boolean spotsUnchanged(List<ParkingSpot> snapshotSpots, Set<Integer> ownedLots) {
+        int maxId = 0;
+        for (ParkingSpot spot : snapshotSpots) {
+            maxId = Math.max(maxId, spot.getSpotId());
+        }
+        return spotMapper.countSpots(ownedLots) == snapshotSpots.size() && spotMapper.getMaxSpotId(ownedLots) == maxId;
+    }
+
+    private <T> List<T> owned(List<T> list, Function<T, Integer> lotOf) {
+        return topology.isClustered() ? list.stream().filter(t -> topology.ownsLot(lotOf.apply(t))).toList() : list;
+    }
+
+    // 本节点分配的记录 ID 满足 id ≡ 节点序号 + 1 (mod 节点数)：返回不超过 maxId 的最大的这样的值
+    private int alignRecordId(int maxId) {
+        return maxId - Math.floorMod(maxId - (topology.getNodeIndex() + 1), recordIdStride);
+    }
+
+    /**
+     * 写占用表快照和营收汇总检查点。间隔需远大于 write-behind 的 offer-timeout：上一次快照时已分配的记录 ID
+     * 此时都已落定（进入占用表或被丢弃），用它作回放下界，扫描期间仍在途的记录恢复时会从数据库重读。
+     */
+    @Scheduled(initialDelayString = "${parking.snapshot.interval-ms:30000}",
+            fixedDelayString = "${parking.snapshot.interval-ms:30000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!occupancySnapshot.isEnabled()) {
+            return;
+        }
+        int allocated = recordIdSeq.get();
+        revenueRollup.checkpoint(snapshotReplayFrom);
+        try {
+            occupancySnapshot.write(table.snapshot(), table.activeRecords(), snapshotReplayFrom);
+            snapshotReplayFrom = allocated;
+        } catch (IOException e) {
+            log.warn("写占用表快照失败", e);
+        }
+    }
+
+    /**
+     * 折算桌面客户端直接写库的变化：上次之后新增的桌面记录仍在场的占用车位；
+     * 占用表中的在场记录按主键复查，库里已出场（被桌面客户端出场）的释放车位，收费以库里为准。
+     * 本服务自己的记录落库前查不到、出场中的车位处于 LEAVING，都不会被误释放
+     */
+    @Scheduled(initialDelayString = "${parking.external.sync-interval-ms:10000}",
+            fixedDelayString = "${parking.external.sync-interval-ms:10000}")
+    public synchronized void syncExternal() {
+        try {
+            int entered = absorbExternalEntries();
+            int exited = absorbExternalExits();
+            if (entered + exited > 0) {
+                log.info("折算桌面客户端写入：入场 {} 条，出场 {} 条", entered, exited);
+            }
+        } catch (RuntimeException e) {
+            log.warn("同步桌面客户端写入的停车记录失败", e);
+        }
+    }
+
+    private int absorbExternalEntries() {
+        int entered = 0;
+        for (ParkingRecord record : recordMapper.getRecordsAfter(externalSeen)) {
+            externalSeen = record.getRecordId();
+            int spotId = record.getSpotId();
+            if (record.getExitTime() != null || !table.contains(spotId)) {
+                continue;
+            }
+            record.setLotId(table.getLotId(spotId));
+            if (!table.tryOccupy(spotId, record)) {
+                metrics.conflict("external_entry");
+                log.warn("桌面客户端的停车记录 {}（{}）所在车位 {} 在占用表中不是空闲状态，需人工核对",
+                        record.getRecordId(), record.getPlateNum(), spotId);
+                continue;
+            }
+            plateClaims.putIfAbsent(PlateIndex.normalize(record.getPlateNum()), record);
+            publish(spotId, OccupancyTable.FREE, OccupancyTable.OCCUPIED, record);
+            entered++;
+        }
+        return entered;
+    }
+
+    private int absorbExternalExits() {
+        Map<Integer, ParkingRecord> byId = new HashMap<>();
+        for (ParkingRecord record : table.activeRecords()) {
+            byId.put(record.getRecordId(), record);
+        }
+        List<Integer> ids = new ArrayList<>(byId.keySet());
+        int exited = 0;
+        for (int i = 0; i < ids.size(); i += REPLAY_CHUNK) {
+            for (ParkingRecord closed : recordMapper.getClosedRecordsByIds(ids.subList(i, Math.min(ids.size(), i + REPLAY_CHUNK)))) {
+                ParkingRecord record = byId.get(closed.getRecordId());
+                int spotId = record.getSpotId();
+                ParkingRecord current = table.beginRelease(spotId);
+                if (current == null) {
+                    continue;
+                }
+                if (current != record) {
+                    table.abortRelease(spotId);
+                    continue;
+                }
+                record.setExitTime(closed.getExitTime());
+                record.setPayment(closed.getPayment());
+                table.finishRelease(spotId);
+                unclaimPlate(record);
+                publish(spotId, OccupancyTable.OCCUPIED, OccupancyTable.FREE, record);
+                exited++;
+            }
+        }
+        return exited;
+    }
+
+    // 占用表是车位状态的权威副本（parking_spots 由 write-behind 异步追上）。桌面客户端、手工 SQL 等
+    // 直接改 parking_records 的变化先经 syncExternal 折算进占用表，计数和空闲表再以占用表为准校正
+    @Scheduled(initialDelayString = "${parking.availability.reconcile-interval-ms:60000}",
+            fixedDelayString = "${parking.availability.reconcile-interval-ms:60000}")
+    public void reconcileAvailability() {
+        syncExternal();
+        List<ParkingSpot> spots = table.snapshot();
+        availabilityCounters.reconcile(spots);
+        spotAllocator.reconcile(spots);
+    }
+
+    @Override
+    public List<ParkingSpot> getAllSpots() {
+        return metrics.time("get_all_spots", table::snapshot);
+    }
+
+    @Override
+    public boolean parkIn(String plateNum, Integer spotId) {
+        Timer.Sample sample = metrics.start();
+        boolean success = occupy(plateNum, spotId);
+        metrics.stop(sample, "park_in", success);
+        return success;
+    }
+
+    private boolean occupy(String plateNum, Integer spotId) {
+        if (!RecordWrite.isValidPlate(plateNum) || !table.contains(spotId)) {
+            return false;
+        }
+        ParkingRecord record = newRecord(plateNum, spotId);
+        if (!claimPlate(record)) {
+            return false;
+        }
+        if (!writeBehind.acquireSlot()) {
+            unclaimPlate(record);
+            return false;
+        }
+        int fromState = OccupancyTable.FREE;
+        if (!table.tryOccupy(spotId, record)) {
+            if (!claimReserved(plateNum, spotId, record)) {
+                writeBehind.releaseSlot();
+                unclaimPlate(record);
+                metrics.conflict("park_in");
+                return false;
+            }
+            fromState = OccupancyTable.RESERVED;
+        }
+        return enter(record, fromState);
+    }
+
+    @Override
+    public ParkingRecord parkInAuto(String plateNum, Integer floor, Integer nearSpotId) {
+        return parkInAuto(plateNum, null, floor, nearSpotId);
+    }
+
+    @Override
+    public ParkingRecord parkInAuto(String plateNum, Integer lotId, Integer floor, Integer nearSpotId) {
+        Timer.Sample sample = metrics.start();
+        ParkingRecord record = occupyAny(plateNum, lotId, floor, nearSpotId);
+        metrics.stop(sample, "park_in_auto", record != null);
+        return record;
+    }
+
+    private ParkingRecord occupyAny(String plateNum, Integer lotId, Integer floor, Integer nearSpotId) {
+        if (!RecordWrite.isValidPlate(plateNum)) {
+            return null;
+        }
+        ParkingRecord record = newRecord(plateNum, null);
+        if (!claimPlate(record)) {
+            return null;
+        }
+        if (!writeBehind.acquireSlot()) {
+            unclaimPlate(record);
+            return null;
+        }
+        Reservation reservation = reservationBook.getByPlate(plateNum);
+        if (reservation != null) {
+            record.setSpotId(reservation.getSpotId());
+            record.setLotId(table.getLotId(reservation.getSpotId()));
+            if (claimReserved(plateNum, reservation.getSpotId(), record)) {
+                return enter(record, OccupancyTable.RESERVED) ? record : null;
+            }
+        }
+        Integer spotId;
+        while ((spotId = spotAllocator.take(lotId, floor, nearSpotId)) != null) {
+            record.setSpotId(spotId);
+            record.setLotId(table.getLotId(spotId));
+            if (table.tryOccupy(spotId, record)) {
+                break;
+            }
+            // 空闲表里的车位已被手动入场占用，丢弃后取下一个
+            metrics.conflict("park_in_auto");
+        }
+        if (spotId == null) {
+            writeBehind.releaseSlot();
+            unclaimPlate(record);
+            return null;
+        }
+        if (!enter(record, OccupancyTable.FREE)) {
+            spotAllocator.free(spotId);
+            return null;
+        }
+        return record;
+    }
+
+    // 车位已预约：只有预约的车牌能认领，认领后一次 CAS 把 RESERVED 改为 OCCUPIED
+    private boolean claimReserved(String plateNum, int spotId, ParkingRecord record) {
+        return table.getState(spotId) == OccupancyTable.RESERVED
+                && reservationBook.claim(plateNum, spotId) != null
+                && table.tryClaim(spotId, record);
+    }
+
+    // 车位已抢占成功后写入场日志并通知；写日志失败时车位和车牌登记都已释放
+    private boolean enter(ParkingRecord record, int fromState) {
+        if (!appendEntry(record)) {
+            unclaimPlate(record);
+            if (fromState != OccupancyTable.FREE) {
+                publish(record.getSpotId(), fromState, OccupancyTable.FREE, null);
+            }
+            return false;
+        }
+        publish(record.getSpotId(), fromState, OccupancyTable.OCCUPIED, record);
+        return true;
+    }
+
+    @Override
+    public Reservation reserve(String plateNum, Integer spotId, Integer floor, Integer ttlSeconds) {
+        Timer.Sample sample = metrics.start();
+        Reservation reservation = hold(plateNum, spotId, floor, ttlSeconds);
+        metrics.stop(sample, "reserve", reservation != null);
+        return reservation;
+    }
+
+    private Reservation hold(String plateNum, Integer spotId, Integer floor, Integer ttlSeconds) {
+        if (!RecordWrite.isValidPlate(plateNum)
+                || reservationBook.getByPlate(plateNum) != null || isParked(plateNum)) {
+            return null;
+        }
+        Integer target = spotId != null ? (table.tryReserve(spotId) ? spotId : null) : reserveOnFloor(floor);
+        if (target == null) {
+            return null;
+        }
+        Reservation reservation = reservationBook.hold(plateNum, target, table.getSpot(target).getFloor(), ttlSeconds);
+        if (reservation == null || isParked(plateNum)) {
+            // 同一车牌并发预约，另一个请求先登记成功；或预约登记期间该车牌已入场
+            if (reservation != null) {
+                reservationBook.cancel(reservation.getReservationId());
+            }
+            table.cancelReservation(target);
+            spotAllocator.free(target);
+            return null;
+        }
+        publish(target, OccupancyTable.FREE, OccupancyTable.RESERVED, null);
+        return reservation;
+    }
+
+    // 预约某层任意空位；floor 为 null 时不限楼层
+    private Integer reserveOnFloor(Integer floor) {
+        Integer candidate;
+        while ((candidate = spotAllocator.take(floor, null)) != null) {
+            if (floor != null && !floor.equals(table.getSpot(candidate).getFloor())) {
+                spotAllocator.free(candidate); // 该层已满，分配器给的是别的楼层
+                return null;
+            }
+            if (table.tryReserve(candidate)) {
+                return candidate;
+            }
+            metrics.conflict("reserve");
+        }
+        return null;
+    }
+
+    @Override
+    public boolean cancelReservation(Long reservationId) {
+        Reservation reservation = reservationId == null ? null : reservationBook.cancel(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        releaseReservation(reservation);
+        return true;
+    }
+
+    @Override
+    public Reservation getReservationByPlate(String plateNum) {
+        return reservationBook.getByPlate(plateNum);
+    }
+
+    private void releaseReservation(Reservation reservation) {
+        if (table.cancelReservation(reservation.getSpotId())) {
+            publish(reservation.getSpotId(), OccupancyTable.RESERVED, OccupancyTable.FREE, null);
+        }
+    }
+
+    // 登记车牌；同一车牌（规范化后）已在场或正在入场时返回 false
+    private boolean claimPlate(ParkingRecord record) {
+        String key = PlateIndex.normalize(record.getPlateNum());
+        return !key.isEmpty() && plateClaims.putIfAbsent(key, record) == null;
+    }
+
+    private void unclaimPlate(ParkingRecord record) {
+        plateClaims.remove(PlateIndex.normalize(record.getPlateNum()), record);
+    }
+
+    private boolean isParked(String plateNum) {
+        return plateClaims.containsKey(PlateIndex.normalize(plateNum));
+    }
+
+    private ParkingRecord newRecord(String plateNum, Integer spotId) {
+        ParkingRecord record = new ParkingRecord();
+        record.setPlateNum(plateNum.trim());
+        record.setSpotId(spotId);
+        record.setLotId(spotId == null ? null : table.getLotId(spotId));
+        record.setEntryTime(new Date());
+        // 记录 ID 在进程内分配，批量写入时不依赖数据库回填主键；多节点时按节点序号错开
+        int recordId = recordIdSeq.addAndGet(recordIdStride);
+        if (recordId >= DESKTOP_RECORD_ID_BASE) {
+            throw new IllegalStateException("停车记录 ID 已用到桌面客户端的区间: " + recordId);
+        }
+        record.setRecordId(recordId);
+        return record;
+    }
+
+    // 车位已抢占成功后写入场日志，失败时归还队列名额并释放车位
+    private boolean appendEntry(ParkingRecord record) {
+        try {
+            writeBehind.append(RecordWrite.Type.ENTRY, record);
+            return true;
+        } catch (RuntimeException e) {
+            writeBehind.releaseSlot();
+            log.error("入场事件写入本地日志失败", e);
+            if (!table.release(record.getSpotId(), record)) {
+                restoreFailed("park_in", record);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public BigDecimal parkOut(Integer spotId) {
+        Timer.Sample sample = metrics.start();
+        BigDecimal payment = vacate(spotId);
+        metrics.stop(sample, "park_out", payment != null);
+        return payment;
+    }
+
+    private BigDecimal vacate(Integer spotId) {
+        if (!table.contains(spotId) || !writeBehind.acquireSlot()) {
+            return null;
+        }
+        // 日志写成功之前车位保持 LEAVING，失败时直接退回 OCCUPIED
+        ParkingRecord record = table.beginRelease(spotId);
+        if (record == null) {
+            writeBehind.releaseSlot();
+            return null;
+        }
+        Date exitTime = new Date();
+        BigDecimal payment = tariffEngine.calculate(record.getEntryTime(), exitTime);
+        record.setExitTime(exitTime);
+        record.setPayment(payment);
+        try {
+            writeBehind.append(RecordWrite.Type.EXIT, record);
+        } catch (RuntimeException e) {
+            writeBehind.releaseSlot();
+            record.setExitTime(null);
+            record.setPayment(null);
+            table.abortRelease(spotId);
+            log.error("出场事件写入本地日志失败", e);
+            return null;
+        }
+        table.finishRelease(spotId);
+        unclaimPlate(record);
+        publish(spotId, OccupancyTable.OCCUPIED, OccupancyTable.FREE, record);
+        return payment;
+    }
+
+    @Override
+    public List<GateEventResult> applyGateEvents(List<GateEvent> events) {
+        return metrics.time("apply_gate_events", () -> applyShard(events));
+    }
+
+    // 先逐条改内存占用表并收集日志事件，整批写一次日志；写日志失败时倒序撤销已做的修改。
+    // 出场的车位在日志写完之前保持 LEAVING，批内同一车位再入场时直接交给新记录，不会中途空出被别的请求抢走。
+    // 车牌登记在入场时立即生效，出场的登记要等整批写完日志才移除；批内同一车牌的最新记录另外记下（规范化车牌 -> 记录）
+    private List<GateEventResult> applyShard(List<GateEvent> events) {
+        List<GateEventResult> results = new ArrayList<>(events.size());
+        if (!writeBehind.acquireSlots(events.size())) {
+            for (GateEvent event : events) {
+                results.add(gateResult(event, "BUSY", null, "写入队列已满，请稍后重发"));
+            }
+            return results;
+        }
+        List<RecordWrite> writes = new ArrayList<>();
+        List<Transition> transitions = new ArrayList<>();
+        Map<String, ParkingRecord> plates = new HashMap<>();
+        Map<Integer, Transition> leaving = new HashMap<>();
+        for (GateEvent event : events) {
+            results.add(RecordWrite.Type.ENTRY.name().equals(event.getType())
+                    ? applyEntry(event, writes, transitions, plates, leaving)
+                    : applyExit(event, writes, transitions, plates, leaving));
+        }
+        writeBehind.releaseSlots(events.size() - writes.size());
+        try {
+            writeBehind.appendAll(writes);
+        } catch (RuntimeException e) {
+            log.error("闸口事件写入本地日志失败，撤销 {} 条", writes.size(), e);
+            writeBehind.releaseSlots(writes.size());
+            undo(transitions);
+            for (int i = 0; i < results.size(); i++) {
+                if ("APPLIED".equals(results.get(i).getStatus())) {
+                    results.set(i, gateResult(events.get(i), "BUSY", null, "写入本地日志失败，请稍后重发"));
+                }
+            }
+            return results;
+        }
+        for (Transition t : transitions) {
+            if (t.toState == OccupancyTable.FREE) {
+                if (t.next == null) {
+                    table.finishRelease(t.spotId);
+                }
+                // 批内同一车牌又入场时车牌登记已转给新记录，这里不会误删
+                unclaimPlate(t.record);
+            }
+            publish(t.spotId, t.fromState, t.toState, t.record);
+        }
+        return results;
+    }
+
+    private GateEventResult applyEntry(GateEvent event, List<RecordWrite> writes, List<Transition> transitions,
+                                       Map<String, ParkingRecord> plates, Map<Integer, Transition> leaving) {
+        int spotId = event.getSpotId();
+        if (!table.contains(spotId)) {
+            return gateResult(event, "REJECTED", null, "车位不存在");
+        }
+        if (!RecordWrite.isValidPlate(event.getPlateNum())) {
+            return gateResult(event, "REJECTED", null, "车牌不能超过 " + RecordWrite.MAX_PLATE_LENGTH + " 个字符");
+        }
+        String plate = PlateIndex.normalize(event.getPlateNum());
+        ParkingRecord last = plates.get(plate);
+        if (last != null && last.getExitTime() == null) {
+            return gateResult(event, "REJECTED", null, "车牌已在场");
+        }
+        ParkingRecord record = newRecord(event.getPlateNum(), spotId);
+        if (event.getTime() != null) {
+            record.setEntryTime(event.getTime());
+        }
+        // 本批前面刚出场的车牌，登记仍由出场记录持有，直接转给新记录
+        if (last == null ? !claimPlate(record) : !plateClaims.replace(plate, last, record)) {
+            return gateResult(event, "REJECTED", null, "车牌已在场");
+        }
+        Transition entry;
+        Transition exit = leaving.remove(spotId);
+        if (exit != null) {
+            // 本批前面刚出场的车位：LEAVING 直接交给新记录
+            table.handOver(spotId, record);
+            entry = new Transition(spotId, OccupancyTable.FREE, OccupancyTable.OCCUPIED, record);
+            entry.replaced = exit;
+            exit.next = entry;
+        } else if (table.tryOccupy(spotId, record)) {
+            entry = new Transition(spotId, OccupancyTable.FREE, OccupancyTable.OCCUPIED, record);
+        } else if (claimReserved(record.getPlateNum(), spotId, record)) {
+            entry = new Transition(spotId, OccupancyTable.RESERVED, OccupancyTable.OCCUPIED, record);
+        } else {
+            returnPlate(record, last);
+            metrics.conflict("gate_entry");
+            return gateResult(event, "REJECTED", null, "车位已被占用");
+        }
+        entry.previousClaim = last;
+        writes.add(RecordWrite.of(RecordWrite.Type.ENTRY, record, event.getEventId()));
+        transitions.add(entry);
+        plates.put(plate, record);
+        return gateResult(event, "APPLIED", record, null);
+    }
+
+    private GateEventResult applyExit(GateEvent event, List<RecordWrite> writes, List<Transition> transitions,
+                                      Map<String, ParkingRecord> plates, Map<Integer, Transition> leaving) {
+        int spotId = event.getSpotId();
+        ParkingRecord record = table.getActiveRecord(spotId);
+        if (record == null) {
+            return gateResult(event, "REJECTED", null, "车位上没有在场车辆");
+        }
+        // 先核对车牌再释放，车位不会在核对期间短暂空出被别的车占用
+        if (event.getPlateNum() != null
+                && !PlateIndex.normalize(event.getPlateNum()).equals(PlateIndex.normalize(record.getPlateNum()))) {
+            return gateResult(event, "REJECTED", null, "车牌与车位上的在场车辆不符");
+        }
+        ParkingRecord leavingRecord = table.beginRelease(spotId);
+        if (leavingRecord != record) {
+            if (leavingRecord != null) {
+                table.abortRelease(spotId);
+            }
+            metrics.conflict("gate_exit");
+            return gateResult(event, "REJECTED", null, "车位上没有在场车辆");
+        }
+        Date exitTime = event.getTime() == null ? new Date()
+                : new Date(Math.max(event.getTime().getTime(), record.getEntryTime().getTime()));
+        record.setExitTime(exitTime);
+        record.setPayment(tariffEngine.calculate(record.getEntryTime(), exitTime));
+        writes.add(RecordWrite.of(RecordWrite.Type.EXIT, record, event.getEventId()));
+        Transition exit = new Transition(spotId, OccupancyTable.OCCUPIED, OccupancyTable.FREE, record);
+        transitions.add(exit);
+        leaving.put(spotId, exit);
+        plates.put(PlateIndex.normalize(record.getPlateNum()), record);
+        return gateResult(event, "APPLIED", record, null);
+    }
+
+    // 出场的车位仍是 LEAVING，直接退回 OCCUPIED；交接给批内新入场记录的先换回原记录。
+    // 入场记录已被并发请求改动（如被出场）时无法撤销，内存与数据库不再一致，记日志和指标留待人工核对
+    private void undo(List<Transition> transitions) {
+        for (int i = transitions.size() - 1; i >= 0; i--) {
+            Transition t = transitions.get(i);
+            if (t.toState == OccupancyTable.OCCUPIED) {
+                if (t.replaced != null) {
+                    if (!table.takeBack(t.spotId, t.record, t.replaced.record)) {
+                        restoreFailed("gate_entry", t.record);
+                        t.replaced.lost = true;
+                    }
+                } else if (!table.release(t.spotId, t.record)) {
+                    restoreFailed("gate_entry", t.record);
+                }
+                returnPlate(t.record, t.previousClaim);
+                if (t.fromState == OccupancyTable.RESERVED) {
+                    // 预约已被认领，无法恢复，车位退回 FREE
+                    publish(t.spotId, OccupancyTable.RESERVED, OccupancyTable.FREE, null);
+                }
+            } else {
+                t.record.setExitTime(null);
+                t.record.setPayment(null);
+                if (!t.lost) {
+                    table.abortRelease(t.spotId);
+                }
+            }
+        }
+    }
+
+    // 撤销批内入场的车牌登记：从出场记录转来的还给出场记录
+    private void returnPlate(ParkingRecord record, ParkingRecord previous) {
+        if (previous == null) {
+            unclaimPlate(record);
+        } else {
+            plateClaims.replace(PlateIndex.normalize(record.getPlateNum()), record, previous);
+        }
+    }
+
+    private void restoreFailed(String operation, ParkingRecord record) {
+        metrics.restoreFailure(operation);
+        log.error("撤销失败，车位 {} 已被并发请求改动，记录 {}（{}）需人工核对",
+                record.getSpotId(), record.getRecordId(), record.getPlateNum());
+    }
+
+    private static GateEventResult gateResult(GateEvent event, String status, ParkingRecord record, String message) {
+        GateEventResult result = new GateEventResult();
+        result.setEventId(event.getEventId());
+        result.setType(event.getType());
+        result.setStatus(status);
+        result.setSpotId(event.getSpotId());
+        result.setMessage(message);
+        if (record != null) {
+            result.setRecordId(record.getRecordId());
+            result.setPayment(record.getPayment());
+        }
+        return result;
+    }
+
+    private static final class Transition {
+        final int spotId;
+        final int fromState;
+        final int toState;
+        final ParkingRecord record;
+        // 出场：批内接手该车位的入场；入场：被接手的出场
+        Transition next;
+        Transition replaced;
+        // 入场：车牌登记转自本批出场的这条记录
+        ParkingRecord previousClaim;
+        // 出场后被接手的车位撤销时已换不回原记录
+        boolean lost;
+
+        Transition(int spotId, int fromState, int toState, ParkingRecord record) {
+            this.spotId = spotId;
+            this.fromState = fromState;
+            this.toState = toState;
+            this.record = record;
+        }
+    }
+
+    @Override
+    @Deprecated
+    public List<ParkingRecord> getParkingRecords() {
+        return metrics.time("get_all_records", recordMapper::getAllRecords);
+    }
+
+    @Override
+    public RecordPage getParkingRecords(RecordQuery query) {
+        return metrics.time("get_records_page", () -> queryPage(query));
+    }
+
+    private RecordPage queryPage(RecordQuery query) {
+        int limit = Math.max(1, Math.min(query.getLimit(), MAX_PAGE_SIZE));
+        query.setLimit(limit + 1);
+        List<ParkingRecord> rows;
+        try {
+            rows = recordMapper.getRecordsPage(query);
+        } finally {
+            query.setLimit(limit);
+        }
+        RecordPage page = new RecordPage();
+        page.setHasMore(rows.size() > limit);
+        if (page.isHasMore()) {
+            rows = rows.subList(0, limit);
+            ParkingRecord last = rows.get(limit - 1);
+            page.setNextEntryTime(last.getEntryTime());
+            page.setNextRecordId(last.getRecordId());
+        }
+        page.setRecords(rows);
+        return page;
+    }
+
+    // 游标需要在同一个连接/事务内逐行读取
+    @Override
+    @Transactional(readOnly = true)
+    public void exportRecords(RecordQuery query, Consumer<ParkingRecord> consumer) {
+        metrics.time("export_records", () -> {
+            try (Cursor<ParkingRecord> cursor = recordMapper.streamRecords(query)) {
+                cursor.forEach(consumer);
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public ParkingRecord getActiveRecordBySpotId(Integer spotId) {
+        return metrics.time("get_active_by_spot", () -> table.getActiveRecord(spotId));
+    }
+
+    @Override
+    public ParkingRecord getActiveRecordByPlate(String plateNum) {
+        return metrics.time("get_active_by_plate", () -> plateIndex.get(plateNum));
+    }
+
+    @Override
+    public List<ParkingRecord> searchActiveRecordsByPlate(String plateNum) {
+        return metrics.time("search_active_by_plate", () -> {
+            List<ParkingRecord> result = plateIndex.findFuzzy(plateNum);
+            return result.isEmpty() ? plateIndex.findByPrefix(plateNum) : result;
+        });
+    }
+
+    private void publish(int spotId, int fromState, int toState, ParkingRecord record) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        ParkingSpot spot = table.getSpot(spotId);
+        spot.setStatus(OccupancyTable.toStatus(toState));
+        String previousStatus = OccupancyTable.toStatus(fromState);
+        for (OccupancyListener listener : listeners) {
+            try {
+                listener.onSpotChanged(spot, previousStatus, record);
+            } catch (RuntimeException e) {
+                log.warn("车位变化通知失败: {}", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.parkingwebbackend.stream;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.OccupancyListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * 车位状态的 SSE 推送。
+ * <p>
+ * 客户端连上后先收到一次完整快照 (snapshot)，之后只收增量：车位变化 (spots) 和已结算的停车记录 (records)。
+ * 每个连接各自缓存待发送的变化，同一车位的多次变化只保留最新一次，停车记录最多缓存 record-buffer 条，
+ * 所以慢客户端占用的内存有上限；发送在独立线程池中进行，某个连接发送未完成时不会再给它派发任务。
+ */
+@Component
+public class OccupancyStream implements OccupancyListener {
+    private static final Logger log = LoggerFactory.getLogger(OccupancyStream.class);
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+    private final int recordBuffer;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "parking-sse-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService sender;
+
+    public OccupancyStream(@Value("${parking.stream.flush-interval-ms:250}") long flushIntervalMs,
+                           @Value("${parking.stream.heartbeat-seconds:15}") long heartbeatSeconds,
+                           @Value("${parking.stream.sender-threads:4}") int senderThreads,
+                           @Value("${parking.stream.record-buffer:256}") int recordBuffer) {
+        this.recordBuffer = recordBuffer;
+        AtomicInteger n = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "parking-sse-send-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        clients.forEach(c -> c.emitter.complete());
+    }
+
+    /**
+     * 注册一个新连接：先登记（之后的变化开始累积），再在当前线程发送快照
+     *
+     * @param snapshot 根据当前版本号生成完整快照
+     */
+    public SseEmitter subscribe(LongFunction<List<SpotDelta>> snapshot) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Client client = new Client(emitter);
+        client.sending.set(true);
+        clients.add(client);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        try {
+            long v = version.get();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("version", v);
+            body.put("spots", snapshot.apply(v));
+            emitter.send(SseEmitter.event().name("snapshot").data(body, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            clients.remove(client);
+            emitter.completeWithError(e);
+        } finally {
+            client.sending.set(false);
+        }
+        return emitter;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    @Override
+    public void onSpotChanged(ParkingSpot spot, String previousStatus, ParkingRecord record) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        SpotDelta delta = new SpotDelta();
+        delta.setSpotId(spot.getSpotId());
+        delta.setSpotNumber(spot.getSpotNumber());
+        delta.setFloor(spot.getFloor());
+        delta.setStatus(spot.getStatus());
+        if (record != null && record.getExitTime() == null) {
+            delta.setPlateNum(record.getPlateNum());
+            delta.setEntryTime(record.getEntryTime());
+        }
+        delta.setVersion(version.incrementAndGet());
+        ParkingRecord closed = record != null && record.getExitTime() != null ? copyOf(record) : null;
+        for (Client client : clients) {
+            client.offer(delta, closed, recordBuffer);
+        }
+    }
+
+    private void flushAll() {
+        for (Client client : clients) {
+            if (client.hasPending() && client.sending.compareAndSet(false, true)) {
+                sender.execute(() -> send(client));
+            }
+        }
+    }
+
+    private void send(Client client) {
+        try {
+            List<SpotDelta> spots = new ArrayList<>();
+            List<ParkingRecord> records = new ArrayList<>();
+            client.drain(spots, records);
+            if (!spots.isEmpty()) {
+                client.emitter.send(SseEmitter.event().name("spots").data(spots, MediaType.APPLICATION_JSON));
+            }
+            if (!records.isEmpty()) {
+                client.emitter.send(SseEmitter.event().name("records").data(records, MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            clients.remove(client);
+            client.emitter.completeWithError(e);
+        } finally {
+            client.sending.set(false);
+        }
+    }
+
+    // 定期发送注释行，及时发现已断开的连接
+    private void heartbeat() {
+        for (Client client : clients) {
+            if (client.sending.compareAndSet(false, true)) {
+                sender.execute(() -> {
+                    try {
+                        client.emitter.send(SseEmitter.event().comment("ping"));
+                    } catch (IOException | IllegalStateException e) {
+                        clients.remove(client);
+                        client.emitter.completeWithError(e);
+                        log.debug("SSE 连接已断开", e);
+                    } finally {
+                        client.sending.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    private static ParkingRecord copyOf(ParkingRecord record) {
+        ParkingRecord copy = new ParkingRecord();
+        copy.setRecordId(record.getRecordId());
+        copy.setPlateNum(record.getPlateNum());
+        copy.setSpotId(record.getSpotId());
+        copy.setEntryTime(record.getEntryTime());
+        copy.setExitTime(new Date(record.getExitTime().getTime()));
+        copy.setPayment(record.getPayment());
+        return copy;
+    }
+
+    private static class Client {
+        final SseEmitter emitter;
+        final AtomicBoolean sending = new AtomicBoolean();
+        // 以下两个容器由 this 保护
+        private Map<Integer, SpotDelta> spots = new LinkedHashMap<>();
+        private ArrayDeque<ParkingRecord> records = new ArrayDeque<>();
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(SpotDelta delta, ParkingRecord closed, int recordBuffer) {
+            spots.put(delta.getSpotId(), delta);
+            if (closed != null) {
+                if (records.size() >= recordBuffer) {
+                    records.pollFirst(); // 客户端太慢，丢弃最旧的记录通知
+                }
+                records.addLast(closed);
+            }
+        }
+
+        synchronized boolean hasPending() {
+            return !spots.isEmpty() || !records.isEmpty();
+        }
+
+        synchronized void drain(List<SpotDelta> spotOut, List<ParkingRecord> recordOut) {
+            spotOut.addAll(spots.values());
+            recordOut.addAll(records);
+            spots = new LinkedHashMap<>();
+            records = new ArrayDeque<>();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.parkingwebbackend.stream;
+
+import java.util.Date;
+
+/**
+ * 推送给大屏的车位状态：空闲时 plateNum / entryTime 为空
+ */
+public class SpotDelta {
+    private Integer spotId;
+    private String spotNumber;
+    private Integer floor;
+    private String status;
+    private String plateNum;
+    private Date entryTime;
+    private long version;
+
+    // Getter and Setter methods
+    public Integer getSpotId() { return spotId; }
+    public void setSpotId(Integer spotId) { this.spotId = spotId; }
+    public String getSpotNumber() { return spotNumber; }
+    public void setSpotNumber(String spotNumber) { this.spotNumber = spotNumber; }
+    public Integer getFloor() { return floor; }
+    public void setFloor(Integer floor) { this.floor = floor; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getPlateNum() { return plateNum; }
+    public void setPlateNum(String plateNum) { this.plateNum = plateNum; }
+    public Date getEntryTime() { return entryTime; }
+    public void setEntryTime(Date entryTime) { this.entryTime = entryTime; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
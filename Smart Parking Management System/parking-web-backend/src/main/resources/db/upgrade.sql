@@ -0,0 +1,33 @@
+-- 已有 MySQL 库的升级脚本：schema.sql 只在建新库时生效，老库按顺序执行下面的语句
+
+-- 监控大屏增量刷新的版本号
+ALTER TABLE parking_spots
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    ADD INDEX idx_spots_updated_at (updated_at);
+
+-- 停车记录 keyset 分页 / 过滤所需索引
+ALTER TABLE parking_spots
+    ADD INDEX idx_spots_floor (floor, spot_id);
+ALTER TABLE parking_records
+    ADD INDEX idx_records_entry (entry_time, record_id),
+    ADD INDEX idx_records_plate_entry (plate_num, entry_time, record_id),
+    ADD INDEX idx_records_spot_entry (spot_id, entry_time, record_id),
+    ADD INDEX idx_records_exit (exit_time);
+
+-- 闸口批量上报的事件 ID（幂等去重）：与停车记录在同一事务中写入，内存去重窗口未命中时查此表
+CREATE TABLE IF NOT EXISTS gate_events (
+    event_id   VARCHAR(64) PRIMARY KEY,
+    event_type VARCHAR(10) NOT NULL,
+    record_id  INT NOT NULL,
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_gate_events_created (created_at)
+);
+
+-- 多停车场部署：车位和停车记录所属的停车场、场内分区，已有数据都属于 1 号场
+ALTER TABLE parking_spots
+    ADD COLUMN lot_id INT NOT NULL DEFAULT 1,
+    ADD COLUMN zone_id INT,
+    ADD INDEX idx_spots_lot (lot_id, spot_id);
+ALTER TABLE parking_records
+    ADD COLUMN lot_id INT NOT NULL DEFAULT 1,
+    ADD INDEX idx_records_lot (lot_id, record_id);
@@ -0,0 +1,56 @@
+-- 智能停车场数据库表结构 (MySQL / H2 MySQL 模式均可执行)
+CREATE TABLE IF NOT EXISTS parking_spots (
+    spot_id     INT AUTO_INCREMENT PRIMARY KEY,
+    spot_number VARCHAR(20) NOT NULL,
+    status      VARCHAR(20) NOT NULL DEFAULT 'FREE',
+    floor       INT,
+    -- 所属停车场（多场部署时按场划分节点归属）和场内分区
+    lot_id      INT NOT NULL DEFAULT 1,
+    zone_id     INT,
+    -- 行最后修改时间，作为监控大屏增量刷新的版本号
+    updated_at  TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    INDEX idx_spots_updated_at (updated_at),
+    INDEX idx_spots_floor (floor, spot_id),
+    INDEX idx_spots_lot (lot_id, spot_id)
+);
+
+CREATE TABLE IF NOT EXISTS parking_records (
+    record_id  INT AUTO_INCREMENT PRIMARY KEY,
+    plate_num  VARCHAR(20) NOT NULL,
+    spot_id    INT NOT NULL,
+    entry_time DATETIME NOT NULL,
+    exit_time  DATETIME,
+    payment    DECIMAL(10, 2),
+    -- 入场时车位所属的停车场，跨场统计不必关联车位表
+    lot_id     INT NOT NULL DEFAULT 1,
+    -- keyset 分页: ORDER BY entry_time DESC, record_id DESC，按车牌 / 车位过滤时同样免排序
+    INDEX idx_records_entry (entry_time, record_id),
+    INDEX idx_records_plate_entry (plate_num, entry_time, record_id),
+    INDEX idx_records_spot_entry (spot_id, entry_time, record_id),
+    -- 在场车辆: exit_time IS NULL
+    INDEX idx_records_exit (exit_time),
+    INDEX idx_records_lot (lot_id, record_id)
+);
+
+CREATE TABLE IF NOT EXISTS fee_rules (
+    rule_id      INT AUTO_INCREMENT PRIMARY KEY,
+    base_price   DECIMAL(10, 2) NOT NULL,
+    free_minutes INT NOT NULL,
+    daily_cap    DECIMAL(10, 2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS admin_users (
+    user_id   INT AUTO_INCREMENT PRIMARY KEY,
+    username  VARCHAR(50) NOT NULL UNIQUE,
+    password  VARCHAR(100) NOT NULL,
+    real_name VARCHAR(50)
+);
+
+-- 闸口批量上报的事件 ID（幂等去重）：与停车记录在同一事务中写入，内存去重窗口未命中时查此表
+CREATE TABLE IF NOT EXISTS gate_events (
+    event_id   VARCHAR(64) PRIMARY KEY,
+    event_type VARCHAR(10) NOT NULL,
+    record_id  INT NOT NULL,
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_gate_events_created (created_at)
+);
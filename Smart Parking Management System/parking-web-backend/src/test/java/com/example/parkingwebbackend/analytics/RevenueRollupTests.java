@@ -0,0 +1,222 @@
+package com.example.parkingwebbackend.analytics;
+
+import com.example.parkingwebbackend.cluster.LotTopology;
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.model.RevenueReport;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.example.parkingwebbackend.service.impl.ParkingServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "parking.analytics.hourly-retention-days=3650")
+class RevenueRollupTests {
+
+	// 桌面客户端的记录 ID 只增不减，各测试依次取用，不复用已删除的 ID
+	private static final AtomicInteger desktopIds = new AtomicInteger(ParkingServiceImpl.DESKTOP_RECORD_ID_BASE);
+
+	@Autowired
+	private RevenueRollup rollup;
+
+	@Autowired
+	private ParkingService parkingService;
+
+	@Autowired
+	private ParkingServiceImpl parkingServiceImpl;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private ParkingRecordMapper recordMapper;
+
+	@Autowired
+	private LotTopology topology;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void backfillAggregatesClosedRecordsByHourAndDay() {
+		// 2020-01-02 两小时各一车、2020-01-03 一车，都停在 2 层的 10 号车位
+		insert(910001, at(2020, 1, 2, 8, 0), at(2020, 1, 2, 9, 30), "15.00");
+		insert(910002, at(2020, 1, 2, 9, 0), at(2020, 1, 2, 9, 45), "5.00");
+		insert(910003, at(2020, 1, 3, 10, 0), at(2020, 1, 3, 12, 0), "20.00");
+		// 回填开始时仍在场的记录（此处假设它已出场）留给实时累加，回填不计
+		insert(910004, at(2020, 1, 3, 11, 0), at(2020, 1, 3, 13, 0), "10.00");
+		ParkingRecord active = new ParkingRecord();
+		active.setRecordId(910004);
+
+		List<ParkingSpot> spots = parkingService.getAllSpots();
+		rollup.startBackfill(spots, List.of(active), 910004, ParkingServiceImpl.DESKTOP_RECORD_ID_BASE).join();
+		assertTrue(rollup.isComplete());
+
+		RevenueReport daily = rollup.report(date(2020, 1, 2, 0), date(2020, 1, 4, 0), RevenueRollup.Granularity.DAY, 2);
+		assertEquals(2, daily.getBuckets().size());
+		assertEquals(2, daily.getBuckets().get(0).getSessions());
+		assertEquals(0, new BigDecimal("20.00").compareTo(daily.getBuckets().get(0).getRevenue()));
+		assertEquals(67.5, daily.getBuckets().get(0).getAvgDwellMinutes(), 1e-9);
+		assertEquals(0.4, daily.getBuckets().get(0).getTurnover(), 1e-9);
+		assertEquals(3, daily.getTotal().getSessions());
+		assertEquals(0, new BigDecimal("40.00").compareTo(daily.getTotal().getRevenue()));
+
+		RevenueReport hourly = rollup.report(date(2020, 1, 2, 9), date(2020, 1, 2, 10), RevenueRollup.Granularity.HOUR, null);
+		assertEquals(1, hourly.getBuckets().size());
+		assertEquals(2, hourly.getTotal().getSessions());
+		assertEquals(0, rollup.report(date(2020, 1, 2, 0), date(2020, 1, 4, 0), RevenueRollup.Granularity.DAY, 1)
+				.getTotal().getSessions());
+
+		assertThrows(IllegalArgumentException.class, () -> rollup.report(date(2020, 1, 1, 0), date(2022, 1, 1, 0),
+				RevenueRollup.Granularity.HOUR, null));
+	}
+
+	@Test
+	void parkOutIsCountedLive() {
+		Date from = new Date(System.currentTimeMillis() - 3_600_000L);
+		long before = rollup.report(from, new Date(from.getTime() + 7_200_000L), RevenueRollup.Granularity.HOUR, 1)
+				.getTotal().getSessions();
+		ParkingRecord record = parkingService.parkInAuto("统B00001", 1, null);
+		assertNotNull(record);
+		assertNotNull(parkingService.parkOut(record.getSpotId()));
+
+		RevenueReport report = rollup.report(from, new Date(from.getTime() + 7_200_000L), RevenueRollup.Granularity.HOUR, 1);
+		assertEquals(before + 1, report.getTotal().getSessions());
+	}
+
+	@Test
+	void desktopRecordsAreCaughtUpOnce() {
+		int base = ParkingServiceImpl.DESKTOP_RECORD_ID_BASE;
+		Date from = new Date(System.currentTimeMillis() - 3_600_000L);
+		Date to = new Date(from.getTime() + 7_200_000L);
+		long before = rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2).getTotal().getSessions();
+		LocalDateTime now = LocalDateTime.now();
+		int closed = desktopIds.incrementAndGet();
+		int open = desktopIds.incrementAndGet();
+		int expired = desktopIds.incrementAndGet();
+		try {
+			// 桌面客户端写入：一辆已出场、一辆仍在场，另有一条超出小时汇总保留期的旧记录
+			insert(closed, now.minusMinutes(30), now.minusMinutes(10), "5.00");
+			jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) VALUES (?, ?, 10, ?)",
+					open, "统C00002", Timestamp.valueOf(now.minusMinutes(20)));
+			insert(expired, at(2012, 5, 1, 8, 0), at(2012, 5, 1, 9, 30), "8.00");
+
+			rollup.catchUp();
+			rollup.catchUp();
+			assertEquals(before + 1, rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2).getTotal().getSessions());
+
+			jdbc.update("UPDATE parking_records SET exit_time = ?, payment = 3 WHERE record_id = ?",
+					Timestamp.valueOf(now), open);
+			rollup.catchUp();
+			RevenueReport report = rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2);
+			assertEquals(before + 2, report.getTotal().getSessions());
+			assertTrue(report.isComplete());
+
+			// 旧记录只留在按天汇总里，按小时查询该时段标记为不完整
+			RevenueReport old = rollup.report(date(2012, 5, 1, 9), date(2012, 5, 1, 10), RevenueRollup.Granularity.HOUR, 2);
+			assertEquals(0, old.getTotal().getSessions());
+			assertFalse(old.isComplete());
+			assertEquals(1, rollup.report(date(2012, 5, 1, 0), date(2012, 5, 2, 0), RevenueRollup.Granularity.DAY, 2)
+					.getTotal().getSessions());
+		} finally {
+			jdbc.update("DELETE FROM parking_records WHERE record_id > ?", base);
+		}
+	}
+
+	@Test
+	void openDesktopRecordDoesNotHoldBackTheWatermark() {
+		int base = ParkingServiceImpl.DESKTOP_RECORD_ID_BASE;
+		Date from = new Date(System.currentTimeMillis() - 3_600_000L);
+		Date to = new Date(from.getTime() + 7_200_000L);
+		long before = rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2).getTotal().getSessions();
+		LocalDateTime now = LocalDateTime.now();
+		int open = desktopIds.incrementAndGet();
+		int later = desktopIds.incrementAndGet();
+		try {
+			jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) VALUES (?, ?, 9, ?)",
+					open, "统C00011", Timestamp.valueOf(now.minusMinutes(20)));
+			rollup.catchUp();
+			parkingServiceImpl.syncExternal();
+			// 仍在场的记录之后出场的记录照常计入
+			insert(later, now.minusMinutes(15), now.minusMinutes(5), "5.00");
+			rollup.catchUp();
+			assertEquals(before + 1, rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2).getTotal().getSessions());
+
+			// 出场先被实时同步计入，之后的补读按主键复查时不再重复计数
+			jdbc.update("UPDATE parking_records SET exit_time = ?, payment = 3 WHERE record_id = ?",
+					Timestamp.valueOf(now), open);
+			parkingServiceImpl.syncExternal();
+			assertNull(parkingService.getActiveRecordBySpotId(9));
+			rollup.catchUp();
+			rollup.catchUp();
+			assertEquals(before + 2, rollup.report(from, to, RevenueRollup.Granularity.HOUR, 2).getTotal().getSessions());
+		} finally {
+			jdbc.update("DELETE FROM parking_records WHERE record_id > ?", base);
+		}
+	}
+
+	@Test
+	void restartResumesFromCheckpointInsteadOfRescanning() {
+		List<ParkingSpot> spots = parkingService.getAllSpots();
+		ParkingSpot spot = spots.stream().filter(s -> s.getSpotId() == 10).findFirst().orElseThrow();
+		RevenueRollup first = newRollup();
+		RevenueRollup second = newRollup();
+		try {
+			insert(920001, at(2021, 3, 1, 8, 0), at(2021, 3, 1, 9, 0), "10.00");
+			first.startBackfill(spots, List.of(), 920001, ParkingServiceImpl.DESKTOP_RECORD_ID_BASE).join();
+			// 检查点前：920002 入场未出，920003 进出都已实时计入
+			jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) VALUES (?, ?, 10, ?)",
+					920002, "统A920002", Timestamp.valueOf(at(2021, 3, 1, 10, 0)));
+			first.onSpotChanged(spot, "FREE", recordMapper.getRecordById(920002));
+			insert(920003, at(2021, 3, 1, 10, 0), at(2021, 3, 1, 11, 0), "10.00");
+			first.onSpotChanged(spot, "OCCUPIED", recordMapper.getRecordById(920003));
+			first.checkpoint(920002);
+
+			// 检查点后、重启前：920002 出场，920004 进出，都没进检查点；历史记录被删也不影响已汇总的结果
+			jdbc.update("UPDATE parking_records SET exit_time = ?, payment = 10 WHERE record_id = 920002",
+					Timestamp.valueOf(at(2021, 3, 1, 12, 0)));
+			insert(920004, at(2021, 3, 1, 12, 0), at(2021, 3, 1, 13, 0), "10.00");
+			jdbc.update("DELETE FROM parking_records WHERE record_id = 920001");
+
+			second.startBackfill(spots, List.of(), 920004, ParkingServiceImpl.DESKTOP_RECORD_ID_BASE).join();
+			RevenueReport report = second.report(date(2021, 3, 1, 0), date(2021, 3, 2, 0), RevenueRollup.Granularity.DAY, 2);
+			assertEquals(4, report.getTotal().getSessions());
+			assertEquals(0, new BigDecimal("40.00").compareTo(report.getTotal().getRevenue()));
+		} finally {
+			first.shutdown();
+			second.shutdown();
+			jdbc.update("DELETE FROM parking_records WHERE record_id BETWEEN 920001 AND 920004");
+		}
+	}
+
+	private RevenueRollup newRollup() {
+		return new RevenueRollup(recordMapper, topology, 2, 5000, 60000, 3650, true, dir.toString());
+	}
+
+	private void insert(int recordId, LocalDateTime entry, LocalDateTime exit, String payment) {
+		jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time, exit_time, payment) VALUES (?, ?, 10, ?, ?, ?)",
+				recordId, "统A" + recordId, Timestamp.valueOf(entry), Timestamp.valueOf(exit), new BigDecimal(payment));
+	}
+
+	private static LocalDateTime at(int y, int m, int d, int h, int min) {
+		return LocalDateTime.of(y, m, d, h, min);
+	}
+
+	private static Date date(int y, int m, int d, int h) {
+		return Date.from(at(y, m, d, h, 0).atZone(ZoneId.systemDefault()).toInstant());
+	}
+}
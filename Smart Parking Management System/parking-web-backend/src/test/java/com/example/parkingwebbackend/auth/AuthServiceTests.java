@@ -0,0 +1,58 @@
+package com.example.parkingwebbackend.auth;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.model.AdminSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AuthServiceTests {
+
+	@Autowired
+	private AuthService authService;
+
+	@Autowired
+	private ReferenceDataCache cache;
+
+	@Test
+	void plaintextPasswordIsUpgradedAndTokenValidates() {
+		AuthService.Result result = authService.login("admin", "admin", "10.0.0.1").join();
+		assertEquals(AuthService.Status.OK, result.getStatus());
+		assertTrue(cache.getUserByUsername("admin").getPassword().startsWith("pbkdf2$"));
+
+		AdminSession session = authService.validate(result.getSession().getToken());
+		assertNotNull(session);
+		assertEquals("admin", session.getUsername());
+
+		assertEquals(AuthService.Status.OK, authService.login("admin", "admin", "10.0.0.1").join().getStatus());
+		assertEquals(AuthService.Status.INVALID, authService.login("admin", "wrong", "10.0.0.1").join().getStatus());
+		assertEquals(AuthService.Status.INVALID, authService.login("nobody", "admin", "10.0.0.1").join().getStatus());
+	}
+
+	@Test
+	void burstFromOneAddressIsLimited() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(AuthService.Status.INVALID, authService.login("admin", "guess" + i, "10.0.0.2").join().getStatus());
+		}
+		assertEquals(AuthService.Status.LIMITED, authService.login("admin", "admin", "10.0.0.2").join().getStatus());
+		// 其他地址不受影响
+		assertEquals(AuthService.Status.OK, authService.login("admin", "admin", "10.0.0.3").join().getStatus());
+	}
+
+	@Test
+	void successfulLoginGivesBackAddressBudget() {
+		LoginLimiter limiter = new LoginLimiter(5, 3, 300);
+		assertTrue(limiter.tryAcquire("alice", "10.0.0.4"));
+		assertTrue(limiter.tryAcquire("alice", "10.0.0.4"));
+		assertTrue(limiter.tryAcquire("alice", "10.0.0.4"));
+		limiter.succeeded("alice", "10.0.0.4");
+		// 同一出口 IP 的另一个管理员不受 alice 输错次数的影响
+		assertTrue(limiter.tryAcquire("bob", "10.0.0.4"));
+		assertTrue(limiter.tryAcquire("bob", "10.0.0.4"));
+		assertTrue(limiter.tryAcquire("bob", "10.0.0.4"));
+		assertFalse(limiter.tryAcquire("bob", "10.0.0.4"));
+	}
+}
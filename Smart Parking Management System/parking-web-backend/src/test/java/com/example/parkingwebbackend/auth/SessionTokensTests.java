@@ -0,0 +1,49 @@
+package com.example.parkingwebbackend.auth;
+
+import com.example.parkingwebbackend.model.AdminSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTokensTests {
+
+	@Test
+	void tamperedOrForeignTokensAreRejected() {
+		SessionTokens tokens = new SessionTokens("secret-a", 10, new MockEnvironment());
+		AdminSession session = tokens.issue(1, "ad:min");
+		AdminSession verified = tokens.verify(session.getToken());
+		assertEquals(1, verified.getUserId());
+		assertEquals("ad:min", verified.getUsername());
+
+		String token = session.getToken();
+		String tampered = (token.charAt(0) == 'A' ? 'B' : 'A') + token.substring(1);
+		assertNull(tokens.verify(tampered));
+		assertNull(tokens.verify("garbage"));
+		assertNull(new SessionTokens("secret-b", 10, new MockEnvironment()).verify(token));
+		assertNull(new SessionTokens("secret-a", 0, new MockEnvironment()).verify(new SessionTokens("secret-a", 0, new MockEnvironment()).issue(1, "x").getToken()));
+	}
+
+	@Test
+	void emptySecretIsOnlyAllowedInDevAndTest() {
+		assertThrows(IllegalStateException.class, () -> new SessionTokens("", 10, new MockEnvironment()));
+		MockEnvironment dev = new MockEnvironment();
+		dev.setActiveProfiles("dev");
+		SessionTokens tokens = new SessionTokens("", 10, dev);
+		assertNotNull(tokens.verify(tokens.issue(1, "admin").getToken()));
+	}
+
+	@Test
+	void hashesAreSaltedAndUpgradable() {
+		PasswordHasher weak = new PasswordHasher(1000);
+		PasswordHasher strong = new PasswordHasher(2000);
+		String first = weak.hash("pw");
+		assertNotEquals(first, weak.hash("pw"));
+		assertTrue(strong.verify("pw", first));
+		assertFalse(strong.verify("pw2", first));
+		assertTrue(strong.needsRehash(first));
+		assertFalse(weak.needsRehash(first));
+		assertTrue(weak.verify("admin", "admin"));
+		assertTrue(weak.needsRehash("admin"));
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.parkingwebbackend.cache;
+
+import com.example.parkingwebbackend.model.AdminUser;
+import com.example.parkingwebbackend.model.FeeRule;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ReferenceDataCacheTests {
+
+	@Autowired
+	private ReferenceDataCache cache;
+
+	@Test
+	void repeatedReadsHitTheCache() {
+		CacheStats before = cache.getStats().get("spots");
+		ParkingSpot first = cache.getSpotById(9);
+		first.setSpotNumber("改了副本");
+		ParkingSpot second = cache.getSpotById(9);
+		CacheStats after = cache.getStats().get("spots");
+
+		assertEquals("B-04", second.getSpotNumber());
+		assertEquals(1, after.missCount() - before.missCount());
+		assertEquals(1, after.hitCount() - before.hitCount());
+		assertNull(cache.getSpotById(9999));
+	}
+
+	@Test
+	void writesInvalidateCachedEntries() {
+		AdminUser user = new AdminUser();
+		user.setUsername("guard01");
+		user.setPassword("x");
+		user.setRealName("门岗一");
+		cache.insertUser(user);
+		AdminUser cached = cache.getUserByUsername("guard01");
+		assertEquals("门岗一", cached.getRealName());
+
+		cached.setRealName("门岗二");
+		cache.updateUser(cached);
+		assertEquals("门岗二", cache.getUserByUsername("guard01").getRealName());
+
+		FeeRule rule = cache.getLatestRule();
+		BigDecimal cap = rule.getDailyCap();
+		rule.setDailyCap(new BigDecimal("88.00"));
+		cache.updateRule(rule);
+		assertEquals(0, new BigDecimal("88.00").compareTo(cache.getLatestRule().getDailyCap()));
+		rule.setDailyCap(cap);
+		cache.updateRule(rule);
+	}
+}
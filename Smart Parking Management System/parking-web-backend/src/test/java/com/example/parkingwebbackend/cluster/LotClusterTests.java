@@ -0,0 +1,154 @@
+package com.example.parkingwebbackend.cluster;
+
+import com.example.parkingwebbackend.ParkingWebBackendApplication;
+import com.example.parkingwebbackend.service.ParkingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本机起两个节点共用一个内存库：a 负责 1 号停车场，b 负责 2 号停车场
+ */
+class LotClusterTests {
+
+	private final HttpClient http = HttpClient.newHttpClient();
+	private final ObjectMapper json = new ObjectMapper();
+	private ConfigurableApplicationContext nodeA;
+	private ConfigurableApplicationContext nodeB;
+	private int portA;
+
+	@BeforeEach
+	void startNodes() throws Exception {
+		portA = freePort();
+		int portB = freePort();
+		String db = "jdbc:h2:mem:cluster_" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+		String nodes = "a=http://localhost:" + portA + "/parking,b=http://localhost:" + portB + "/parking";
+
+		nodeA = start(db, "a", nodes, portA);
+		nodeA.getBean(JdbcTemplate.class).update("INSERT INTO parking_spots(spot_number, status, floor, lot_id) "
+				+ "VALUES ('C-01', 'FREE', 1, 2), ('C-02', 'FREE', 1, 2)");
+		nodeB = start(db, "b", nodes, portB, "--spring.sql.init.mode=never");
+	}
+
+	@AfterEach
+	void stopNodes() {
+		if (nodeB != null) {
+			nodeB.close();
+		}
+		if (nodeA != null) {
+			nodeA.close();
+		}
+	}
+
+	@Test
+	void routesEventsToOwningNodeAndMergesQueries() throws Exception {
+		int c01 = nodeA.getBean(JdbcTemplate.class)
+				.queryForObject("SELECT spot_id FROM parking_spots WHERE spot_number = 'C-01'", Integer.class);
+		ParkingService serviceA = nodeA.getBean(ParkingService.class);
+		ParkingService serviceB = nodeB.getBean(ParkingService.class);
+
+		// 一批事件发给 a：1 号车位本地处理，C-01 转发给 b
+		JsonNode results = post("/api/gate-events", "[{\"eventId\":\"lc-1\",\"type\":\"ENTRY\",\"plateNum\":\"粤B00001\",\"spotId\":1},"
+				+ "{\"eventId\":\"lc-2\",\"type\":\"ENTRY\",\"plateNum\":\"粤B00002\",\"spotId\":" + c01 + "}]");
+		assertEquals("APPLIED", results.get(0).get("status").asText());
+		assertEquals("APPLIED", results.get(1).get("status").asText());
+		assertNotNull(serviceA.getActiveRecordBySpotId(1));
+		assertNull(serviceA.getActiveRecordBySpotId(c01));
+		assertNotNull(serviceB.getActiveRecordBySpotId(c01));
+		// 两个节点分配的记录 ID 错开
+		assertEquals(1, results.get(0).get("recordId").asInt() % 2);
+		assertEquals(0, results.get(1).get("recordId").asInt() % 2);
+		// 重发时由负责节点去重
+		results = post("/api/gate-events", "[{\"eventId\":\"lc-2\",\"type\":\"ENTRY\",\"plateNum\":\"粤B00002\",\"spotId\":" + c01 + "}]");
+		assertEquals("DUPLICATE", results.get(0).get("status").asText());
+
+		JsonNode assigned = post("/api/spots/auto-assign?plateNum=B00003&lot=2", null);
+		assertNotNull(serviceB.getActiveRecordBySpotId(assigned.get("spotId").asInt()));
+
+		JsonNode availability = get("/api/cluster/availability");
+		assertEquals(2, availability.get("lots").size());
+		assertEquals(12, availability.get("total").get("total").asLong());
+		assertEquals(3, availability.get("total").get("occupied").asLong());
+		assertEquals(0, availability.get("lots").get(1).get("free").asLong());
+
+		// 只给车牌的出场事件按 lotId 转发
+		results = post("/api/gate-events", "[{\"eventId\":\"lc-3\",\"type\":\"EXIT\",\"plateNum\":\"粤B00002\",\"lotId\":2},"
+				+ "{\"eventId\":\"lc-4\",\"type\":\"EXIT\",\"plateNum\":\"B00003\",\"lotId\":2},"
+				+ "{\"eventId\":\"lc-5\",\"type\":\"EXIT\",\"spotId\":1}]");
+		for (JsonNode result : results) {
+			assertEquals("APPLIED", result.get("status").asText());
+		}
+		DateTimeFormatter iso = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+		Instant now = Instant.now();
+		JsonNode report = get("/api/cluster/revenue?from=" + iso.format(now.minus(Duration.ofDays(1)))
+				+ "&to=" + iso.format(now.plus(Duration.ofDays(1))));
+		assertEquals("[1,2]", report.get("lots").toString());
+		assertEquals(12, report.get("spotCount").asInt());
+		assertEquals(3, report.get("total").get("sessions").asLong());
+
+		// b 下线后只缺 2 号停车场
+		nodeB.close();
+		nodeB = null;
+		availability = get("/api/cluster/availability");
+		assertEquals("[2]", availability.get("unavailableLots").toString());
+		assertEquals(10, availability.get("total").get("total").asLong());
+	}
+
+	private ConfigurableApplicationContext start(String db, String nodeId, String nodes, int port, String... extra) {
+		String[] args = {
+				"--spring.datasource.url=" + db,
+				"--server.port=" + port,
+				"--parking.cluster.node-id=" + nodeId,
+				"--parking.cluster.nodes=" + nodes,
+				"--parking.cluster.lot-owners=1=a,2=b",
+				"--parking.snapshot.enabled=false"
+		};
+		String[] all = new String[args.length + extra.length];
+		System.arraycopy(args, 0, all, 0, args.length);
+		System.arraycopy(extra, 0, all, args.length, extra.length);
+		return new SpringApplicationBuilder(ParkingWebBackendApplication.class).run(all);
+	}
+
+	private JsonNode get(String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + portA + "/parking" + path)).build();
+		return send(request);
+	}
+
+	private JsonNode post(String path, String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + portA + "/parking" + path))
+				.header("Content-Type", "application/json")
+				.POST(body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return send(request);
+	}
+
+	private JsonNode send(HttpRequest request) throws Exception {
+		HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), response.body());
+		return json.readTree(response.body());
+	}
+
+	private static int freePort() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.parkingwebbackend.fee;
+
+import com.example.parkingwebbackend.model.FeeRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TariffEngineTests {
+
+	@Autowired
+	private TariffEngine tariffEngine;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private int originalRuleId;
+
+	@AfterEach
+	void restore() {
+		// 只保留初始规则，其他测试的计费不受影响
+		jdbcTemplate.update("DELETE FROM fee_rules WHERE rule_id > ?", originalRuleId);
+		tariffEngine.reload();
+	}
+
+	@Test
+	void insertedRuleTakesEffectImmediately() {
+		originalRuleId = tariffEngine.current().getRuleId();
+		FeeRule rule = new FeeRule();
+		rule.setBasePrice(new BigDecimal("6.00"));
+		rule.setFreeMinutes(0);
+		rule.setDailyCap(new BigDecimal("60.00"));
+		assertEquals(1, tariffEngine.insertRule(rule));
+		assertNotNull(rule.getRuleId());
+		assertEquals(rule.getRuleId(), tariffEngine.current().getRuleId());
+		assertEquals(600, tariffEngine.current().feeCentsForMinutes(60));
+		assertNotNull(tariffEngine.forRule(originalRuleId));
+	}
+
+	@Test
+	void invalidRuleIsRejectedAndDirectEditsArePickedUpOnReload() {
+		originalRuleId = tariffEngine.current().getRuleId();
+		FeeRule rule = new FeeRule();
+		rule.setBasePrice(new BigDecimal("-1.00"));
+		rule.setFreeMinutes(0);
+		rule.setDailyCap(new BigDecimal("60.00"));
+		assertThrows(IllegalArgumentException.class, () -> tariffEngine.insertRule(rule));
+		assertEquals(originalRuleId, tariffEngine.current().getRuleId());
+
+		// 其他节点或直接改库新增的规则，定时重载后生效
+		jdbcTemplate.update("INSERT INTO fee_rules(base_price, free_minutes, daily_cap) VALUES (7.00, 0, 50.00)");
+		assertEquals(originalRuleId, tariffEngine.current().getRuleId());
+		tariffEngine.reload();
+		assertEquals(700, tariffEngine.current().feeCentsForMinutes(60));
+	}
+}
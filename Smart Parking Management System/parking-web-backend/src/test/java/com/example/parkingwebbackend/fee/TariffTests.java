@@ -0,0 +1,51 @@
+package com.example.parkingwebbackend.fee;
+
+import com.example.parkingwebbackend.model.FeeRule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTests {
+
+	private final Tariff tariff = new Tariff(rule(1, "10.00", 30, "100.00"));
+
+	@Test
+	void freeMinutesAreNotCharged() {
+		assertEquals(0, tariff.feeCentsForMinutes(0));
+		assertEquals(0, tariff.feeCentsForMinutes(30));
+	}
+
+	@Test
+	void partialHoursRoundUp() {
+		assertEquals(1000, tariff.feeCentsForMinutes(31));
+		assertEquals(1000, tariff.feeCentsForMinutes(90));
+		assertEquals(2000, tariff.feeCentsForMinutes(91));
+	}
+
+	@Test
+	void eachDayIsCappedSeparately() {
+		assertEquals(10000, tariff.feeCentsForMinutes(30 + 23 * 60));
+		assertEquals(10000, tariff.feeCentsForMinutes(30 + 24 * 60));
+		assertEquals(11000, tariff.feeCentsForMinutes(30 + 24 * 60 + 1));
+		assertEquals(30000, tariff.feeCentsForMinutes(30 + 3 * 24 * 60));
+	}
+
+	@Test
+	void fractionalPricesStayExact() {
+		Tariff cheap = new Tariff(rule(2, "2.35", 0, "20.00"));
+		assertEquals(705, cheap.feeCentsForMinutes(180));
+		assertEquals(new BigDecimal("7.05"), Tariff.toYuan(705));
+	}
+
+	private static FeeRule rule(int id, String base, int free, String cap) {
+		FeeRule rule = new FeeRule();
+		rule.setRuleId(id);
+		rule.setBasePrice(new BigDecimal(base));
+		rule.setFreeMinutes(free);
+		rule.setDailyCap(new BigDecimal(cap));
+		return rule;
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.example.parkingwebbackend.ingest;
+
+import com.example.parkingwebbackend.mapper.GateEventMapper;
+import com.example.parkingwebbackend.model.GateEvent;
+import com.example.parkingwebbackend.model.GateEventResult;
+import com.example.parkingwebbackend.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GateEventIngestorTests {
+
+	@Autowired
+	private GateEventIngestor ingestor;
+
+	@Autowired
+	private ParkingService parkingService;
+
+	@Autowired
+	private GateEventMapper gateEventMapper;
+
+	@Test
+	void resentBatchIsAppliedOnce() throws Exception {
+		// 离线缓存的一进一出：出场只给车牌，按原时间计费
+		long entry = System.currentTimeMillis() - 3 * 3_600_000L;
+		List<GateEvent> batch = List.of(
+				event("gate1-0001", "ENTRY", "闽D12345", 8, new Date(entry)),
+				event("gate1-0002", "EXIT", "闽D12345", null, new Date(entry + 2 * 3_600_000L)));
+
+		List<GateEventResult> first = ingestor.ingest(batch);
+		assertEquals("APPLIED", first.get(0).getStatus());
+		assertEquals("APPLIED", first.get(1).getStatus());
+		assertEquals(first.get(0).getRecordId(), first.get(1).getRecordId());
+		assertEquals(8, first.get(1).getSpotId());
+		assertTrue(first.get(1).getPayment().compareTo(BigDecimal.ZERO) > 0);
+		assertNull(parkingService.getActiveRecordBySpotId(8));
+
+		List<GateEventResult> resent = ingestor.ingest(batch);
+		assertEquals("DUPLICATE", resent.get(0).getStatus());
+		assertEquals("DUPLICATE", resent.get(1).getStatus());
+		assertEquals(first.get(1).getRecordId(), resent.get(1).getRecordId());
+		assertNull(parkingService.getActiveRecordBySpotId(8));
+
+		// 内存窗口之外（如重启后）由 gate_events 兜底
+		IdempotencyWindow cold = new IdempotencyWindow(gateEventMapper, 100, 1, 30);
+		Map<String, GateEventResult> seen = Map.of();
+		for (int i = 0; i < 100 && seen.size() < 2; i++) {
+			Thread.sleep(50);
+			cold = new IdempotencyWindow(gateEventMapper, 100, 1, 30);
+			seen = cold.claim(List.of("gate1-0001", "gate1-0002"));
+		}
+		assertEquals(2, seen.size());
+		assertEquals(first.get(0).getRecordId(), seen.get("gate1-0001").getRecordId());
+		assertTrue(cold.claim(List.of("gate1-9999")).isEmpty());
+	}
+
+	@Test
+	void invalidAndConflictingEventsAreRejected() {
+		List<GateEventResult> results = ingestor.ingest(List.of(
+				event(null, "ENTRY", "闽D00001", 8, null),
+				event("gate2-0001", "EXIT", null, 8, null),
+				event("gate2-0002", "ENTRY", "闽D00002", 8, null),
+				event("gate2-0002", "ENTRY", "闽D00002", 8, null),
+				event("gate2-0003", "ENTRY", "闽D00003", 8, null),
+				event("gate2-0004", "EXIT", "闽D00003", 8, null),
+				event("gate2-0005", "EXIT", null, 8, null)));
+
+		assertEquals("REJECTED", results.get(0).getStatus());
+		assertEquals("REJECTED", results.get(1).getStatus());
+		assertEquals("APPLIED", results.get(2).getStatus());
+		assertEquals("DUPLICATE", results.get(3).getStatus());
+		assertEquals("REJECTED", results.get(4).getStatus()); // 车位已被 gate2-0002 占用
+		assertEquals("REJECTED", results.get(5).getStatus()); // 车牌不符
+		assertEquals("APPLIED", results.get(6).getStatus());
+		assertNull(parkingService.getActiveRecordBySpotId(8));
+	}
+
+	@Test
+	void oversizedPlateIsRejectedPerEvent() {
+		List<GateEventResult> results = ingestor.ingest(List.of(
+				event("gate6-0001", "ENTRY", "闽D123456789012345678901", 8, null),
+				event("gate6-0002", "ENTRY", "闽D60001", 8, null),
+				event("gate6-0003", "EXIT", "闽D60001", 8, null)));
+		assertEquals("REJECTED", results.get(0).getStatus());
+		assertTrue(results.get(0).getMessage().contains("20"), results.get(0).getMessage());
+		assertEquals("APPLIED", results.get(1).getStatus());
+		assertEquals("APPLIED", results.get(2).getStatus());
+		assertNull(parkingService.getActiveRecordBySpotId(8));
+	}
+
+	@Test
+	void mismatchedExitLeavesSessionInPlace() {
+		assertTrue(parkingService.parkIn("闽D20001", 9));
+		int recordId = parkingService.getActiveRecordBySpotId(9).getRecordId();
+
+		List<GateEventResult> results = ingestor.ingest(List.of(event("gate3-0001", "EXIT", "闽D20002", 9, null)));
+		assertEquals("REJECTED", results.get(0).getStatus());
+		// 车牌不符时车位没有被释放过，原记录和车牌索引都还在
+		assertEquals(recordId, parkingService.getActiveRecordBySpotId(9).getRecordId());
+		assertEquals(recordId, parkingService.getActiveRecordByPlate("闽D20001").getRecordId());
+		assertNotNull(parkingService.parkOut(9));
+	}
+
+	@Test
+	void entryForPlateAlreadyParkedIsRejected() {
+		assertTrue(parkingService.parkIn("闽D30001", 10));
+
+		List<GateEventResult> results = ingestor.ingest(List.of(event("gate4-0001", "ENTRY", "闽D 30001", 8, null)));
+		assertEquals("REJECTED", results.get(0).getStatus());
+		assertEquals("车牌已在场", results.get(0).getMessage());
+		assertNull(parkingService.getActiveRecordBySpotId(8));
+
+		// 同一批中先出场再入场是合法的
+		results = ingestor.ingest(List.of(
+				event("gate4-0002", "EXIT", "闽D30001", 10, null),
+				event("gate4-0003", "ENTRY", "闽D30001", 10, null)));
+		assertEquals("APPLIED", results.get(0).getStatus());
+		assertEquals("APPLIED", results.get(1).getStatus());
+		assertEquals(results.get(1).getRecordId(), parkingService.getActiveRecordByPlate("闽D30001").getRecordId());
+		assertNotNull(parkingService.parkOut(10));
+	}
+
+	@Test
+	void spotChangesHandsSeveralTimesInOneBatch() {
+		assertTrue(parkingService.parkIn("闽D40001", 7));
+
+		List<GateEventResult> results = ingestor.ingest(List.of(
+				event("gate5-0001", "EXIT", "闽D40001", 7, null),
+				event("gate5-0002", "ENTRY", "闽D40002", 7, null),
+				event("gate5-0003", "EXIT", "闽D40002", 7, null),
+				event("gate5-0004", "ENTRY", "闽D40003", 7, null),
+				event("gate5-0005", "EXIT", "闽D40001", 7, null)));
+		for (int i = 0; i < 4; i++) {
+			assertEquals("APPLIED", results.get(i).getStatus());
+		}
+		assertEquals("REJECTED", results.get(4).getStatus());
+		assertEquals(results.get(3).getRecordId(), parkingService.getActiveRecordBySpotId(7).getRecordId());
+		assertNull(parkingService.getActiveRecordByPlate("闽D40001"));
+		assertNull(parkingService.getActiveRecordByPlate("闽D40002"));
+		assertNotNull(parkingService.parkOut(7));
+		assertNull(parkingService.getActiveRecordBySpotId(7));
+	}
+
+	private static GateEvent event(String eventId, String type, String plateNum, Integer spotId, Date time) {
+		GateEvent event = new GateEvent();
+		event.setEventId(eventId);
+		event.setType(type);
+		event.setPlateNum(plateNum);
+		event.setSpotId(spotId);
+		event.setTime(time);
+		return event;
+	}
+}
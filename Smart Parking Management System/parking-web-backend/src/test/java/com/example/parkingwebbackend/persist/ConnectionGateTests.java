@@ -0,0 +1,36 @@
+package com.example.parkingwebbackend.persist;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionGateTests {
+
+	@Test
+	void connectionsBeyondLimitWaitAndTimeOut() throws Exception {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:gate;DB_CLOSE_DELAY=-1");
+		DataSource gated = (DataSource) new ConnectionGate(1, 50).postProcessAfterInitialization(h2, "dataSource");
+
+		Connection first = gated.getConnection();
+		assertThrows(SQLTransientConnectionException.class, gated::getConnection);
+
+		first.close();
+		first.close(); // 重复 close 只归还一次许可
+		try (Connection second = gated.getConnection()) {
+			assertTrue(second.isValid(1));
+			assertThrows(SQLTransientConnectionException.class, gated::getConnection);
+		}
+	}
+
+	@Test
+	void disabledGateLeavesDataSourceUntouched() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		assertSame(h2, new ConnectionGate(0, 50).postProcessAfterInitialization(h2, "dataSource"));
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.parkingwebbackend.persist;
+
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import com.example.parkingwebbackend.service.impl.ParkingServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "parking.snapshot.interval-ms=3600000")
+class OccupancySnapshotTests {
+
+	@Autowired
+	private ParkingServiceImpl parkingService;
+
+	@Autowired
+	private ParkingRecordMapper recordMapper;
+
+	@Autowired
+	private ParkingSpotMapper spotMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripsThroughAlternatingFiles() throws Exception {
+		OccupancySnapshot writer = new OccupancySnapshot(true, dir.toString());
+		assertNull(writer.read());
+		assertEquals(1, writer.write(List.of(spot(1, 1, "A-01"), spot(2, null, "B-02")),
+				List.of(record(7, 2, "浙A12345")), 5));
+		assertEquals(2, writer.write(List.of(spot(1, 1, "A-01")), List.of(), 7));
+
+		OccupancySnapshot reader = new OccupancySnapshot(true, dir.toString());
+		OccupancySnapshot.Image image = reader.read();
+		assertEquals(2, image.getSequence());
+		assertEquals(7, image.getReplayFromId());
+		assertEquals(1, image.getSpots().size());
+		assertTrue(image.getActiveRecords().isEmpty());
+		// 下一次写入覆盖较旧的文件
+		assertEquals(3, reader.write(List.of(spot(1, 1, "A-01")), List.of(), 9));
+	}
+
+	@Test
+	void fallsBackToOlderSnapshotWhenLatestIsTorn() throws Exception {
+		OccupancySnapshot writer = new OccupancySnapshot(true, dir.toString());
+		writer.write(List.of(spot(1, 1, "A-01"), spot(2, null, "B-02")), List.of(record(7, 2, "浙A12345")), 5);
+		writer.write(List.of(spot(1, 1, "A-01")), List.of(), 7);
+		try (RandomAccessFile file = new RandomAccessFile(dir.resolve("occupancy-0.snap").toFile(), "rw")) {
+			file.seek(30);
+			file.write(0x5A);
+		}
+
+		OccupancySnapshot.Image image = new OccupancySnapshot(true, dir.toString()).read();
+		assertEquals(1, image.getSequence());
+		assertEquals(2, image.getSpots().size());
+		assertNull(image.getSpots().get(1).getFloor());
+		ParkingRecord restored = image.getActiveRecords().get(0);
+		assertEquals(7, restored.getRecordId());
+		assertEquals(2, restored.getSpotId());
+		assertEquals("浙A12345", restored.getPlateNum());
+		assertEquals(1_700_000_000_000L, restored.getEntryTime().getTime());
+	}
+
+	@Test
+	void restoresFromSnapshotAndReplaysNewerRecords() throws Exception {
+		assertTrue(parkingService.parkIn("闽E00001", 1));
+		assertTrue(parkingService.parkIn("闽E00002", 2));
+		int first = parkingService.getActiveRecordBySpotId(1).getRecordId();
+		int second = parkingService.getActiveRecordBySpotId(2).getRecordId();
+		awaitRecord(second, false);
+		// 第二次快照的回放下界覆盖了上面两条记录
+		parkingService.writeSnapshot();
+		parkingService.writeSnapshot();
+
+		assertNotNull(parkingService.parkOut(1));
+		assertTrue(parkingService.parkIn("闽E00003", 3));
+		int third = parkingService.getActiveRecordBySpotId(3).getRecordId();
+		awaitRecord(third, false);
+		awaitRecord(first, true);
+		// 快照已覆盖的记录不会重读：库里改掉的车牌不影响恢复结果，说明走的是快照而不是全量扫描
+		jdbcTemplate.update("UPDATE parking_records SET plate_num = ? WHERE record_id = ?", "闽E99999", second);
+
+		parkingService.load();
+
+		List<ParkingSpot> spots = parkingService.getAllSpots();
+		assertEquals("FREE", spots.get(0).getStatus());
+		assertEquals("OCCUPIED", spots.get(1).getStatus());
+		assertEquals("OCCUPIED", spots.get(2).getStatus());
+		assertEquals(second, parkingService.getActiveRecordByPlate("闽E00002").getRecordId());
+		assertEquals(third, parkingService.getActiveRecordByPlate("闽E00003").getRecordId());
+		assertNull(parkingService.getActiveRecordByPlate("闽E00001"));
+		// 新记录 ID 接着库里的最大值分配
+		assertTrue(parkingService.parkIn("闽E00004", 4));
+		assertEquals(third + 1, parkingService.getActiveRecordBySpotId(4).getRecordId());
+
+		for (int spotId = 2; spotId <= 4; spotId++) {
+			assertNotNull(parkingService.parkOut(spotId));
+		}
+	}
+
+	@Test
+	void reloadsSpotsWhenTableChangedAfterSnapshot() throws Exception {
+		parkingService.writeSnapshot();
+		ParkingSpot added = spot(null, 3, "S-01");
+		added.setStatus("FREE");
+		spotMapper.insertSpot(added);
+		try {
+			parkingService.load();
+			assertTrue(parkingService.getAllSpots().stream().anyMatch(s -> "S-01".equals(s.getSpotNumber())));
+		} finally {
+			jdbcTemplate.update("DELETE FROM parking_spots WHERE spot_number = ?", "S-01");
+			parkingService.load();
+		}
+	}
+
+	private void awaitRecord(int recordId, boolean closed) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			ParkingRecord record = recordMapper.getRecordById(recordId);
+			if (record != null && (record.getExitTime() != null) == closed) {
+				return;
+			}
+			Thread.sleep(20);
+		}
+		fail("停车记录未写入数据库: " + recordId);
+	}
+
+	private static ParkingSpot spot(Integer id, Integer floor, String number) {
+		ParkingSpot spot = new ParkingSpot();
+		spot.setSpotId(id);
+		spot.setFloor(floor);
+		spot.setSpotNumber(number);
+		return spot;
+	}
+
+	private static ParkingRecord record(int id, int spotId, String plate) {
+		ParkingRecord record = new ParkingRecord();
+		record.setRecordId(id);
+		record.setSpotId(spotId);
+		record.setPlateNum(plate);
+		record.setEntryTime(new Date(1_700_000_000_000L));
+		return record;
+	}
+}
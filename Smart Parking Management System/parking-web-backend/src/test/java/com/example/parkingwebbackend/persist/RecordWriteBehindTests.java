@@ -0,0 +1,166 @@
+package com.example.parkingwebbackend.persist;
+
+import com.example.parkingwebbackend.cache.ReferenceDataCache;
+import com.example.parkingwebbackend.metrics.ParkingMetrics;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RecordWriteBehindTests {
+
+	@Autowired
+	private SqlSessionFactory sqlSessionFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ParkingMetrics metrics;
+
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path dir;
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("DELETE FROM parking_records WHERE record_id BETWEEN 900001 AND 900006");
+		jdbcTemplate.update("UPDATE parking_spots SET status = 'FREE' WHERE spot_id IN (3, 4)");
+	}
+
+	@Test
+	void replayCompletesPartiallyFlushedRecord() throws Exception {
+		// 上次入场已落库、出场还留在日志里
+		jdbcTemplate.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) "
+				+ "VALUES (900001, '闽F00001', 3, CURRENT_TIMESTAMP)");
+		ParkingRecord record = record(900001, "闽F00001", 3);
+		WriteJournal journal = new WriteJournal(dir, false);
+		journal.append(RecordWrite.of(1, RecordWrite.Type.ENTRY, record));
+		record.setExitTime(new Date());
+		record.setPayment(new BigDecimal("5.00"));
+		journal.append(RecordWrite.of(2, RecordWrite.Type.EXIT, record));
+		journal.close();
+
+		RecordWriteBehind writeBehind = newWriteBehind();
+		writeBehind.start();
+		writeBehind.stop();
+		assertEquals(0, new BigDecimal("5.00").compareTo(jdbcTemplate.queryForObject(
+				"SELECT payment FROM parking_records WHERE record_id = 900001", BigDecimal.class)));
+	}
+
+	@Test
+	void replayRefusesToMergeIntoAnotherRecord() throws Exception {
+		// 同一 ID 已被桌面客户端写成另一条记录
+		jdbcTemplate.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time, exit_time, payment) "
+				+ "VALUES (900002, '闽F00002', 4, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 15)");
+		ParkingRecord record = record(900002, "闽F00003", 4);
+		record.setExitTime(new Date());
+		record.setPayment(new BigDecimal("5.00"));
+		WriteJournal journal = new WriteJournal(dir, false);
+		journal.append(RecordWrite.of(1, RecordWrite.Type.ENTRY, record));
+		journal.append(RecordWrite.of(2, RecordWrite.Type.EXIT, record));
+		journal.close();
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, newWriteBehind()::start);
+		assertTrue(e.getMessage().contains("900002"), e.getMessage());
+		assertEquals("闽F00002", jdbcTemplate.queryForObject(
+				"SELECT plate_num FROM parking_records WHERE record_id = 900002", String.class));
+		assertEquals(0, new BigDecimal("15").compareTo(jdbcTemplate.queryForObject(
+				"SELECT payment FROM parking_records WHERE record_id = 900002", BigDecimal.class)));
+	}
+
+	@Test
+	void rejectedRowIsDeadLetteredWithoutBlockingTheQueue() throws Exception {
+		jdbcTemplate.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) "
+				+ "VALUES (900003, '闽F00004', 3, CURRENT_TIMESTAMP)");
+		RecordWriteBehind writeBehind = newWriteBehind();
+		writeBehind.start();
+		assertTrue(writeBehind.acquireSlots(3));
+		writeBehind.append(RecordWrite.Type.ENTRY, record(900004, "闽F00005", 4));
+		// 主键已被占用：重试也写不进去
+		writeBehind.append(RecordWrite.Type.ENTRY, record(900003, "闽F00006", 3));
+		writeBehind.append(RecordWrite.Type.ENTRY, record(900005, "闽F00007", 3));
+		writeBehind.stop();
+
+		assertEquals(2, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM parking_records WHERE record_id IN (900004, 900005)", Integer.class));
+		assertEquals("闽F00004", jdbcTemplate.queryForObject(
+				"SELECT plate_num FROM parking_records WHERE record_id = 900003", String.class));
+		assertTrue(Files.readString(dir.resolve(WriteJournal.DEAD_LETTER_FILE)).contains("闽F00006"));
+		// 名额全部归还
+		assertTrue(writeBehind.acquireSlots(100));
+	}
+
+	@Test
+	void replayDeadLettersEventThatCannotBeStored() throws Exception {
+		WriteJournal journal = new WriteJournal(dir, false);
+		journal.append(RecordWrite.of(1, RecordWrite.Type.ENTRY, record(900006, "闽F123456789012345678901234", 3)));
+		journal.close();
+
+		RecordWriteBehind writeBehind = newWriteBehind();
+		writeBehind.start();
+		writeBehind.stop();
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM parking_records WHERE record_id = 900006", Integer.class));
+		assertTrue(Files.readString(dir.resolve(WriteJournal.DEAD_LETTER_FILE)).contains("900006"));
+	}
+
+	@Test
+	void oversizedPlateIsRejectedBeforeJournaling() throws Exception {
+		RecordWriteBehind writeBehind = newWriteBehind();
+		writeBehind.start();
+		assertTrue(writeBehind.acquireSlot());
+		assertThrows(IllegalArgumentException.class,
+				() -> writeBehind.append(RecordWrite.Type.ENTRY, record(900006, "闽F123456789012345678901234", 3)));
+		writeBehind.releaseSlot();
+		writeBehind.stop();
+		assertTrue(new WriteJournal(dir, false).readSealed().isEmpty());
+	}
+
+	@Test
+	void corruptLineIsQuarantinedAndOnlyTornTailIsDropped() throws Exception {
+		String first = RecordWrite.of(1, RecordWrite.Type.ENTRY, record(900001, "闽F00008", 3)).encode();
+		String second = RecordWrite.of(2, RecordWrite.Type.ENTRY, record(900002, "闽F00009", 4)).encode();
+		Files.writeString(dir.resolve("journal-1.log"),
+				first + "\n" + "乱码\tENTRY\n" + second + "\n" + second.substring(0, 10));
+
+		WriteJournal journal = new WriteJournal(dir, false);
+		assertEquals(2, journal.readSealed().size());
+		journal.close();
+		String deadLetters = Files.readString(dir.resolve(WriteJournal.DEAD_LETTER_FILE));
+		assertTrue(deadLetters.contains("乱码"), deadLetters);
+		assertTrue(deadLetters.contains("第 2 行"), deadLetters);
+	}
+
+	private RecordWriteBehind newWriteBehind() {
+		return new RecordWriteBehind(sqlSessionFactory, transactionManager, metrics, referenceDataCache,
+				500, 50, 100, 100, dir.toString(), false);
+	}
+
+	private static ParkingRecord record(int recordId, String plateNum, int spotId) {
+		ParkingRecord record = new ParkingRecord();
+		record.setRecordId(recordId);
+		record.setPlateNum(plateNum);
+		record.setSpotId(spotId);
+		record.setEntryTime(new Date());
+		return record;
+	}
+}
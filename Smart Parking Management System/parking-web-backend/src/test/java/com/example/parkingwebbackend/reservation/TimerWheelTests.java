@@ -0,0 +1,55 @@
+package com.example.parkingwebbackend.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTests {
+
+	private final List<String> expired = new ArrayList<>();
+	// 10 ms 一格，共 8 格，一圈 80 ms
+	private final TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0, expired::add);
+
+	@Test
+	void expiresInDeadlineOrderAcrossRounds() {
+		wheel.schedule("late", 250);
+		wheel.schedule("early", 30);
+		wheel.schedule("mid", 95);
+
+		assertEquals(0, wheel.advance(25));
+		assertEquals(1, wheel.advance(30));
+		assertEquals(List.of("early"), expired);
+
+		// "late" 与 "mid" 落在同一格附近，要多转几圈才到期
+		assertEquals(1, wheel.advance(100));
+		assertEquals(List.of("early", "mid"), expired);
+		assertEquals(1, wheel.size());
+
+		assertEquals(1, wheel.advance(1000));
+		assertEquals(List.of("early", "mid", "late"), expired);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cancelledTimeoutsNeverFire() {
+		TimerWheel.Timeout<String> timeout = wheel.schedule("cancelled", 20);
+		wheel.schedule("kept", 20);
+
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		assertEquals(1, wheel.advance(50));
+		assertEquals(List.of("kept"), expired);
+	}
+
+	@Test
+	void pastDeadlineFiresOnNextTick() {
+		wheel.advance(500);
+		wheel.schedule("overdue", 100);
+
+		assertEquals(1, wheel.advance(510));
+		assertEquals(List.of("overdue"), expired);
+	}
+}
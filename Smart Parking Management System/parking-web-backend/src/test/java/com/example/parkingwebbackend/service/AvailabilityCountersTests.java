@@ -0,0 +1,54 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.Availability;
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityCountersTests {
+
+	private final AvailabilityCounters counters = new AvailabilityCounters();
+
+	@Test
+	void transitionsMoveCountsBetweenStates() {
+		counters.rebuild(List.of(spot(1, 1, "FREE"), spot(2, 1, "FREE"), spot(3, 2, "OCCUPIED")));
+
+		counters.onSpotChanged(spot(1, 1, "OCCUPIED"), "FREE", null);
+
+		Availability floor1 = counters.getFloor(1);
+		assertEquals(1, floor1.getFree());
+		assertEquals(1, floor1.getOccupied());
+		assertEquals(2, counters.getFacility().getOccupied());
+		assertEquals(3, counters.getFacility().getTotal());
+		assertEquals(2, counters.getFloors().size());
+		assertNull(counters.getFloor(9));
+	}
+
+	@Test
+	void reconcileCorrectsOnlyPersistentDrift() {
+		List<ParkingSpot> spots = List.of(spot(1, 1, "FREE"), spot(2, 1, "OCCUPIED"));
+		counters.rebuild(spots);
+		// 多收到一次并未发生的变化通知，计数与实际不符
+		counters.onSpotChanged(spot(1, 1, "OCCUPIED"), "FREE", null);
+
+		assertEquals(0, counters.reconcile(spots));
+		assertEquals(2, counters.getFloor(1).getOccupied());
+
+		assertEquals(2, counters.reconcile(spots));
+		assertEquals(1, counters.getFloor(1).getFree());
+		assertEquals(1, counters.getFacility().getOccupied());
+		assertEquals(0, counters.reconcile(spots));
+	}
+
+	private static ParkingSpot spot(int id, int floor, String status) {
+		ParkingSpot spot = new ParkingSpot();
+		spot.setSpotId(id);
+		spot.setSpotNumber("S-" + id);
+		spot.setFloor(floor);
+		spot.setStatus(status);
+		return spot;
+	}
+}
@@ -0,0 +1,314 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.mapper.ParkingRecordMapper;
+import com.example.parkingwebbackend.mapper.ParkingSpotMapper;
+import com.example.parkingwebbackend.model.ParkingRecord;
+import com.example.parkingwebbackend.model.RecordPage;
+import com.example.parkingwebbackend.model.RecordQuery;
+import com.example.parkingwebbackend.model.Reservation;
+import com.example.parkingwebbackend.service.impl.ParkingServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ParkingServiceImplTests {
+
+	@Autowired
+	private ParkingService parkingService;
+
+	@Autowired
+	private ParkingRecordMapper recordMapper;
+
+	@Autowired
+	private ParkingSpotMapper spotMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ParkingServiceImpl parkingServiceImpl;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private AvailabilityCounters availabilityCounters;
+
+	@Test
+	void parkInThenOut() {
+		assertTrue(parkingService.parkIn("沪A12345", 1));
+		assertFalse(parkingService.parkIn("沪B88888", 1));
+
+		ParkingRecord active = parkingService.getActiveRecordBySpotId(1);
+		assertEquals("沪A12345", active.getPlateNum());
+
+		BigDecimal fee = parkingService.parkOut(1);
+		assertEquals(0, BigDecimal.ZERO.compareTo(fee));
+		assertNull(parkingService.getActiveRecordBySpotId(1));
+		assertNull(parkingService.parkOut(1));
+	}
+
+	@Test
+	void plateAlreadyParkedIsRejected() {
+		assertTrue(parkingService.parkIn("沪C00001", 3));
+		// 车牌规范化后相同也算同一辆车
+		assertFalse(parkingService.parkIn(" 沪c00001", 4));
+		assertNull(parkingService.parkInAuto("沪C00001", null, null));
+		assertNull(parkingService.getActiveRecordBySpotId(4));
+		assertEquals(3, parkingService.getActiveRecordByPlate("沪C00001").getSpotId());
+		assertNotNull(parkingService.parkOut(3));
+		assertTrue(parkingService.parkIn("沪C00001", 4));
+		assertNotNull(parkingService.parkOut(4));
+	}
+
+	@Test
+	void plateLongerThanColumnIsRejectedUpFront() {
+		String plate = "沪C123456789012345678901";
+		assertFalse(parkingService.parkIn(plate, 2));
+		assertNull(parkingService.parkInAuto(plate, null, null));
+		assertNull(parkingService.reserve(plate, 2, null, 60));
+		assertNull(parkingService.getActiveRecordBySpotId(2));
+		assertTrue(parkingService.parkIn("沪C00002", 2));
+		assertNotNull(parkingService.parkOut(2));
+	}
+
+	@Test
+	void concurrentParkInClaimsSpotOnce() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			String plate = "京A" + (10000 + i);
+			tasks.add(() -> parkingService.parkIn(plate, 2));
+		}
+		int success = 0;
+		for (Future<Boolean> f : pool.invokeAll(tasks)) {
+			if (f.get()) success++;
+		}
+		pool.shutdown();
+		assertEquals(1, success);
+		assertNotNull(parkingService.parkOut(2));
+	}
+
+	@Test
+	void concurrentParkInOfOnePlateSucceedsOnce() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (int spotId = 1; spotId <= 5; spotId++) {
+			int spot = spotId;
+			tasks.add(() -> parkingService.parkIn("浙C54321", spot));
+			tasks.add(() -> parkingService.parkInAuto("浙C54321", 2, null) != null);
+		}
+		int success = 0;
+		for (Future<Boolean> f : pool.invokeAll(tasks)) {
+			if (f.get()) success++;
+		}
+		pool.shutdown();
+		assertEquals(1, success);
+		ParkingRecord active = parkingService.getActiveRecordByPlate("浙C54321");
+		assertNotNull(parkingService.parkOut(active.getSpotId()));
+		for (int spotId = 1; spotId <= 10; spotId++) {
+			assertNull(parkingService.getActiveRecordBySpotId(spotId));
+		}
+	}
+
+	@Test
+	void concurrentAutoAssignNeverSharesSpot() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Callable<ParkingRecord>> tasks = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			String plate = "苏E" + (20000 + i);
+			tasks.add(() -> parkingService.parkInAuto(plate, 2, null));
+		}
+		Set<Integer> assigned = new HashSet<>();
+		for (Future<ParkingRecord> f : pool.invokeAll(tasks)) {
+			assertNotNull(f.get());
+			assertTrue(assigned.add(f.get().getSpotId()));
+		}
+		pool.shutdown();
+		// 2 层的 5 个车位先分完，剩下的溢出到 1 层
+		assertTrue(assigned.containsAll(List.of(6, 7, 8, 9, 10)));
+		for (Integer spotId : assigned) {
+			assertNotNull(parkingService.parkOut(spotId));
+		}
+	}
+
+	@Test
+	void reservedSpotCanOnlyBeClaimedByItsPlate() {
+		Reservation reservation = parkingService.reserve("鲁F12345", 7, null, 60);
+		assertNotNull(reservation);
+		assertEquals("RESERVED", parkingService.getAllSpots().get(6).getStatus());
+		assertNull(parkingService.reserve("鲁F12345", 8, null, 60));
+
+		assertFalse(parkingService.parkIn("鲁F99999", 7));
+		assertTrue(parkingService.parkIn("鲁f 12345", 7));
+		assertNull(parkingService.getReservationByPlate("鲁F12345"));
+		assertFalse(parkingService.cancelReservation(reservation.getReservationId()));
+		assertNotNull(parkingService.parkOut(7));
+	}
+
+	@Test
+	void floorReservationExpiresBackToFreePool() throws Exception {
+		Reservation reservation = parkingService.reserve("豫G00001", null, 2, 1);
+		assertNotNull(reservation);
+		assertEquals(2, reservation.getFloor());
+		int spotId = reservation.getSpotId();
+
+		for (int i = 0; i < 100 && parkingService.getReservationByPlate("豫G00001") != null; i++) {
+			Thread.sleep(50);
+		}
+		assertNull(parkingService.getReservationByPlate("豫G00001"));
+		assertEquals("FREE", parkingService.getAllSpots().get(spotId - 1).getStatus());
+		// 到期后车位回到空闲表，可以再次预约和取消
+		Reservation again = parkingService.reserve("豫G00002", spotId, null, 60);
+		assertNotNull(again);
+		assertTrue(parkingService.cancelReservation(again.getReservationId()));
+		assertEquals("FREE", parkingService.getAllSpots().get(spotId - 1).getStatus());
+	}
+
+	@Test
+	void writeBehindFlushesRecordsToDatabase() throws Exception {
+		assertTrue(parkingService.parkIn("粤B66666", 3));
+		int recordId = parkingService.getActiveRecordBySpotId(3).getRecordId();
+		ParkingRecord stored = awaitRecord(recordId);
+		assertEquals("粤B66666", stored.getPlateNum());
+		assertNull(stored.getExitTime());
+		assertEquals("OCCUPIED", spotMapper.getSpotById(3).getStatus());
+
+		parkingService.parkOut(3);
+		for (int i = 0; i < 100 && recordMapper.getRecordById(recordId).getExitTime() == null; i++) {
+			Thread.sleep(20);
+		}
+		assertNotNull(recordMapper.getRecordById(recordId).getExitTime());
+		assertEquals("FREE", spotMapper.getSpotById(3).getStatus());
+	}
+
+	@Test
+	void desktopWritesAreFoldedIntoOccupancy() throws Exception {
+		int desktopId = ParkingServiceImpl.DESKTOP_RECORD_ID_BASE + 101;
+		try {
+			// 桌面客户端直接写库入场
+			jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) "
+					+ "VALUES (?, '赣A00001', 4, CURRENT_TIMESTAMP)", desktopId);
+			parkingServiceImpl.syncExternal();
+			assertEquals(desktopId, parkingService.getActiveRecordBySpotId(4).getRecordId());
+			assertFalse(parkingService.parkIn("赣A00002", 4));
+			assertFalse(parkingService.parkIn("赣A00001", 5));
+
+			// 桌面客户端出场：自己的车和本服务入场的车
+			assertTrue(parkingService.parkIn("赣A00003", 5));
+			awaitRecord(parkingService.getActiveRecordBySpotId(5).getRecordId());
+			jdbc.update("UPDATE parking_records SET exit_time = CURRENT_TIMESTAMP, payment = 15 "
+					+ "WHERE spot_id IN (4, 5) AND exit_time IS NULL");
+			parkingServiceImpl.syncExternal();
+			assertNull(parkingService.getActiveRecordBySpotId(4));
+			assertNull(parkingService.getActiveRecordBySpotId(5));
+			assertNull(parkingService.getActiveRecordByPlate("赣A00003"));
+			assertTrue(parkingService.parkIn("赣A00001", 4));
+			assertNotNull(parkingService.parkOut(4));
+		} finally {
+			jdbc.update("DELETE FROM parking_records WHERE record_id = ?", desktopId);
+		}
+	}
+
+	@Test
+	void reconcileCountsSpotsTakenByOtherWriters() {
+		int desktopId = ParkingServiceImpl.DESKTOP_RECORD_ID_BASE + 102;
+		long free = availabilityCounters.getFacility().getFree();
+		try {
+			jdbc.update("INSERT INTO parking_records(record_id, plate_num, spot_id, entry_time) "
+					+ "VALUES (?, '赣A00004', 6, CURRENT_TIMESTAMP)", desktopId);
+			parkingServiceImpl.reconcileAvailability();
+			assertEquals(free - 1, availabilityCounters.getFacility().getFree());
+			assertEquals("OCCUPIED", parkingService.getAllSpots().get(5).getStatus());
+
+			jdbc.update("UPDATE parking_records SET exit_time = CURRENT_TIMESTAMP, payment = 15 WHERE record_id = ?", desktopId);
+			parkingServiceImpl.reconcileAvailability();
+			assertEquals(free, availabilityCounters.getFacility().getFree());
+		} finally {
+			jdbc.update("DELETE FROM parking_records WHERE record_id = ?", desktopId);
+		}
+	}
+
+	@Test
+	void operationsAndMapperCallsAreTimed() throws Exception {
+		assertTrue(parkingService.parkIn("浙A55555", 5));
+		assertFalse(parkingService.parkIn("浙A55556", 5));
+		int recordId = parkingService.getActiveRecordBySpotId(5).getRecordId();
+		assertNotNull(parkingService.parkOut(5));
+		awaitRecord(recordId);
+
+		assertTrue(meterRegistry.get("parking.operation").tag("operation", "park_in").tag("outcome", "success")
+				.timer().count() >= 1);
+		assertTrue(meterRegistry.get("parking.operation").tag("operation", "park_out").timer().count() >= 1);
+		assertTrue(meterRegistry.get("parking.spot.conflicts").tag("operation", "park_in").counter().count() >= 1);
+		assertTrue(meterRegistry.get("parking.mapper").tag("statement", "ParkingRecordMapper.getRecordById")
+				.timer().count() >= 1);
+		assertTrue(meterRegistry.get("parking.write_behind.batch.size").summary().count() >= 1);
+		assertEquals(10, meterRegistry.get("parking.spots").tag("floor", "all").gauges().stream()
+				.mapToDouble(g -> g.value()).sum());
+	}
+
+	@Test
+	void keysetPaginationWalksAllRecordsInOrder() {
+		List<ParkingRecord> rows = new ArrayList<>();
+		long base = System.currentTimeMillis() - 86400000L;
+		for (int i = 0; i < 5; i++) {
+			ParkingRecord r = new ParkingRecord();
+			r.setRecordId(900000 + i);
+			r.setPlateNum("津C00001");
+			r.setSpotId(4);
+			// 后两条入场时间相同，依靠 record_id 区分先后
+			r.setEntryTime(new Date(base + Math.min(i, 3) * 60000L));
+			rows.add(r);
+		}
+		recordMapper.insertRecords(rows);
+
+		RecordQuery query = new RecordQuery();
+		query.setPlateNum("津C00001");
+		query.setLimit(2);
+		List<Integer> seen = new ArrayList<>();
+		RecordPage page;
+		do {
+			page = parkingService.getParkingRecords(query);
+			page.getRecords().forEach(r -> seen.add(r.getRecordId()));
+			query.setAfterEntryTime(page.getNextEntryTime());
+			query.setAfterRecordId(page.getNextRecordId());
+		} while (page.isHasMore());
+		assertEquals(List.of(900004, 900003, 900002, 900001, 900000), seen);
+
+		List<Integer> exported = new ArrayList<>();
+		RecordQuery all = new RecordQuery();
+		all.setPlateNum("津C00001");
+		parkingService.exportRecords(all, r -> exported.add(r.getRecordId()));
+		assertEquals(seen, exported);
+	}
+
+	private ParkingRecord awaitRecord(int recordId) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			ParkingRecord record = recordMapper.getRecordById(recordId);
+			if (record != null) {
+				return record;
+			}
+			Thread.sleep(20);
+		}
+		fail("停车记录未写入数据库: " + recordId);
+		return null;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateIndexTests {
+
+	private final PlateIndex index = new PlateIndex();
+
+	@Test
+	void normalizesSeparatorsCaseAndFullWidth() {
+		assertEquals("沪A12345", PlateIndex.normalize(" 沪a·12 345 "));
+		assertEquals("沪A12345", PlateIndex.normalize("沪Ａ１２３４５"));
+	}
+
+	@Test
+	void exactAndPrefixLookup() {
+		ParkingRecord a = record(1, "沪A12345");
+		ParkingRecord b = record(2, "沪A12399");
+		index.rebuild(List.of(a, b, record(3, "京B00001")));
+
+		assertSame(a, index.get("沪a 12345"));
+		assertEquals(2, index.findByPrefix("沪A123").size());
+		assertTrue(index.findByPrefix("粤").isEmpty());
+	}
+
+	@Test
+	void fuzzyLookupCorrectsCommonMisreads() {
+		ParkingRecord a = record(1, "沪A1O8S5");
+		index.rebuild(List.of(a));
+
+		assertEquals(List.of(a), index.findFuzzy("沪A10855"));
+		assertEquals(List.of(a), index.findFuzzy("沪A1O8S"));
+		assertTrue(index.findFuzzy("京B99999").isEmpty());
+	}
+
+	@Test
+	void exitRemovesOnlyTheSameSession() {
+		ParkingRecord first = record(1, "沪A12345");
+		index.rebuild(List.of(first));
+		ParkingRecord stale = record(0, "沪A12345");
+		stale.setExitTime(new Date());
+		index.onSpotChanged(null, "OCCUPIED", stale);
+		assertSame(first, index.get("沪A12345"));
+
+		first.setExitTime(new Date());
+		index.onSpotChanged(null, "OCCUPIED", first);
+		assertNull(index.get("沪A12345"));
+		assertEquals(0, index.size());
+	}
+
+	private static ParkingRecord record(int id, String plate) {
+		ParkingRecord r = new ParkingRecord();
+		r.setRecordId(id);
+		r.setPlateNum(plate);
+		r.setSpotId(id);
+		r.setEntryTime(new Date());
+		return r;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.example.parkingwebbackend.service;
+
+import com.example.parkingwebbackend.model.ParkingSpot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotAllocatorTests {
+
+	private final SpotAllocator allocator = new SpotAllocator();
+
+	@Test
+	void prefersFloorThenNearestFloor() {
+		allocator.rebuild(List.of(spot(1, 1, "FREE"), spot(2, 1, "FREE"), spot(3, 2, "OCCUPIED"),
+				spot(4, 3, "FREE")));
+
+		assertEquals(1, allocator.take(null, null));
+		assertEquals(2, allocator.take(2, null));
+		assertEquals(4, allocator.take(2, null));
+		assertNull(allocator.take(2, null));
+
+		allocator.free(2);
+		assertEquals(2, allocator.take(3, null));
+	}
+
+	@Test
+	void nearSpotPicksClosestOnSameFloor() {
+		allocator.rebuild(List.of(spot(1, 1, "FREE"), spot(5, 1, "FREE"), spot(9, 1, "FREE"),
+				spot(6, 1, "OCCUPIED")));
+
+		assertEquals(5, allocator.take(null, 6));
+		assertEquals(9, allocator.take(null, 6));
+		assertEquals(1, allocator.take(null, 6));
+	}
+
+	@Test
+	void transitionsAndReconcileKeepFreeListCurrent() {
+		List<ParkingSpot> spots = List.of(spot(1, 1, "FREE"), spot(2, 1, "FREE"));
+		allocator.rebuild(spots);
+
+		allocator.onSpotChanged(spot(1, 1, "OCCUPIED"), "FREE", null);
+		assertEquals(1, allocator.getFreeCount(1));
+		assertEquals(2, allocator.take(1, null));
+		assertNull(allocator.take(1, null));
+
+		// 车位 2 取出后没有用上，也没有归还
+		assertEquals(1, allocator.reconcile(spots.subList(1, 2)));
+		assertEquals(2, allocator.take(1, null));
+	}
+
+	private static ParkingSpot spot(int id, int floor, String status) {
+		ParkingSpot spot = new ParkingSpot();
+		spot.setSpotId(id);
+		spot.setSpotNumber("S-" + id);
+		spot.setFloor(floor);
+		spot.setStatus(status);
+		return spot;
+	}
+}
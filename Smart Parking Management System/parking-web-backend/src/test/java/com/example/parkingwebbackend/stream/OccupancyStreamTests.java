@@ -0,0 +1,61 @@
+package com.example.parkingwebbackend.stream;
+
+import com.example.parkingwebbackend.service.ParkingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OccupancyStreamTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ParkingService parkingService;
+
+	@Test
+	void sendsSnapshotThenDeltas() throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(
+				URI.create("http://localhost:" + port + "/parking/api/stream/occupancy")).build();
+		HttpResponse<InputStream> response = HttpClient.newHttpClient()
+				.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+			assertEquals("event:snapshot", readEvent(reader));
+
+			assertTrue(parkingService.parkIn("苏E10086", 6));
+			assertEquals("event:spots", readEvent(reader));
+			String data = reader.readLine();
+			assertTrue(data.contains("\"spotId\":6"));
+			assertTrue(data.contains("苏E10086"));
+
+			assertNotNull(parkingService.parkOut(6));
+			assertEquals("event:spots", readEvent(reader));
+			assertEquals("event:records", readEvent(reader));
+		}
+	}
+
+	private String readEvent(BufferedReader reader) throws Exception {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith("event:")) {
+				return line;
+			}
+		}
+		return null;
+	}
+
+}
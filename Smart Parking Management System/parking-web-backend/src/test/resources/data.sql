@@ -0,0 +1,7 @@
+INSERT INTO parking_spots(spot_number, status, floor) VALUES
+    ('A-01', 'FREE', 1), ('A-02', 'FREE', 1), ('A-03', 'FREE', 1), ('A-04', 'FREE', 1), ('A-05', 'FREE', 1),
+    ('B-01', 'FREE', 2), ('B-02', 'FREE', 2), ('B-03', 'FREE', 2), ('B-04', 'FREE', 2), ('B-05', 'FREE', 2);
+
+INSERT INTO fee_rules(base_price, free_minutes, daily_cap) VALUES (10.00, 30, 100.00);
+
+INSERT INTO admin_users(username, password, real_name) VALUES ('admin', 'admin', '系统管理员');